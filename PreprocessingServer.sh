@@ -0,0 +1,6 @@
+export CLASSPATH=./target/TTS_Utils-1.0.jar:./target/lib/commons-cli-1.5.0.jar:./target/lib/gson-2.9.0.jar
+# SIMD audio kernels if the JVM has the vector module (Java 17+), plain loops otherwise
+if java --add-modules jdk.incubator.vector -version > /dev/null 2>&1; then
+  VECTOR_OPTS="--add-modules jdk.incubator.vector"
+fi
+java -Dfile.encoding=UTF-8 $VECTOR_OPTS ai.bhashini.tts.utils.PreprocessingServer $@
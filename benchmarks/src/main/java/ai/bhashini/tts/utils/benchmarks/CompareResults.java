@@ -0,0 +1,131 @@
+package ai.bhashini.tts.utils.benchmarks;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.TreeMap;
+
+import com.google.gson.Gson;
+
+/**
+ * Compares two JMH JSON result files (-rf json) and exits with status 1 if any
+ * benchmark present in both got slower by more than the given fraction, e.g.
+ * 0.25 for 25%, even after allowing for the error of both scores, i.e. when
+ * the slowdown between the nearest ends of the two confidence intervals
+ * exceeds it. Noise alone thus doesn't fail the comparison. Benchmarks are
+ * matched by name and parameters; those in only one of the files are listed
+ * but never fail the comparison.
+ *
+ * Usage: CompareResults baseline.json current.json [maxSlowdown]
+ */
+public class CompareResults {
+	static final double DEFAULT_MAX_SLOWDOWN = 0.25;
+
+	static class Result {
+		String benchmark;
+		String mode;
+		Map<String, String> params;
+		Metric primaryMetric;
+	}
+
+	static class Metric {
+		double score;
+		double scoreError;
+		String scoreUnit;
+	}
+
+	static Map<String, Result> load(String path) throws IOException {
+		Result[] results;
+		try (Reader reader = Files.newBufferedReader(Paths.get(path), StandardCharsets.UTF_8)) {
+			results = new Gson().fromJson(reader, Result[].class);
+		}
+		Map<String, Result> resultsByKey = new LinkedHashMap<>();
+		if (results != null) {
+			for (Result result : results) {
+				resultsByKey.put(getKey(result), result);
+			}
+		}
+		return resultsByKey;
+	}
+
+	static String getKey(Result result) {
+		StringBuilder sb = new StringBuilder(result.benchmark);
+		if (result.params != null) {
+			// Sorted, so that the key doesn't depend on the order in the file
+			for (Map.Entry<String, String> param : new TreeMap<>(result.params).entrySet()) {
+				sb.append(' ').append(param.getKey()).append('=').append(param.getValue());
+			}
+		}
+		return sb.toString();
+	}
+
+	// current / baseline time, i.e. > 1 if slower, for both time and throughput modes
+	static double getSlowdown(Result baseline, Result current) {
+		double ratio = current.primaryMetric.score / baseline.primaryMetric.score;
+		return "thrpt".equals(current.mode) ? 1.0 / ratio : ratio;
+	}
+
+	// Same as getSlowdown, but between the nearest ends of the two confidence
+	// intervals; <= 1 if they overlap
+	static double getMinSlowdown(Result baseline, Result current) {
+		double baselineError = getError(baseline);
+		double currentError = getError(current);
+		if ("thrpt".equals(current.mode)) {
+			return (baseline.primaryMetric.score - baselineError) / (current.primaryMetric.score + currentError);
+		}
+		return (current.primaryMetric.score - currentError) / (baseline.primaryMetric.score + baselineError);
+	}
+
+	// JMH reports NaN if there were too few iterations to estimate the error
+	static double getError(Result result) {
+		double error = result.primaryMetric.scoreError;
+		return Double.isNaN(error) ? 0 : error;
+	}
+
+	public static void main(String[] args) throws IOException {
+		if (args.length < 2) {
+			System.out.println("Usage: " + CompareResults.class.getCanonicalName()
+					+ " baseline.json current.json [maxSlowdown, default " + DEFAULT_MAX_SLOWDOWN + "]");
+			System.exit(2);
+		}
+		Map<String, Result> baseline = load(args[0]);
+		Map<String, Result> current = load(args[1]);
+		double maxSlowdown = args.length > 2 ? Double.parseDouble(args[2]) : DEFAULT_MAX_SLOWDOWN;
+
+		int numRegressions = 0;
+		for (Map.Entry<String, Result> entry : current.entrySet()) {
+			Result result = entry.getValue();
+			Result baselineResult = baseline.get(entry.getKey());
+			if (baselineResult == null || !baselineResult.mode.equals(result.mode)
+					|| !baselineResult.primaryMetric.scoreUnit.equals(result.primaryMetric.scoreUnit)) {
+				System.out.println(String.format(Locale.ROOT, "  NEW  %s: %.3f %s", entry.getKey(),
+						result.primaryMetric.score, result.primaryMetric.scoreUnit));
+				continue;
+			}
+			double slowdown = getSlowdown(baselineResult, result);
+			boolean regressed = getMinSlowdown(baselineResult, result) > 1.0 + maxSlowdown;
+			if (regressed) {
+				numRegressions++;
+			}
+			System.out.println(String.format(Locale.ROOT, "%s %s: %.3f +- %.3f -> %.3f +- %.3f %s (%+.1f%%)",
+					regressed ? "SLOWER" : "    ok", entry.getKey(), baselineResult.primaryMetric.score,
+					getError(baselineResult), result.primaryMetric.score, getError(result),
+					result.primaryMetric.scoreUnit, 100 * (slowdown - 1.0)));
+		}
+		for (String key : baseline.keySet()) {
+			if (!current.containsKey(key)) {
+				System.out.println("  GONE " + key);
+			}
+		}
+		if (numRegressions > 0) {
+			System.out.println(numRegressions + " benchmarks slower by more than "
+					+ String.format(Locale.ROOT, "%.0f%%", 100 * maxSlowdown) + " beyond their score errors");
+			System.exit(1);
+		}
+	}
+}
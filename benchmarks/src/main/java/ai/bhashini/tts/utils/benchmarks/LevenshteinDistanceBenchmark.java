@@ -0,0 +1,84 @@
+package ai.bhashini.tts.utils.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ai.bhashini.tts.utils.LevenshteinDistance;
+import ai.bhashini.tts.utils.LevenshteinDistance.TokenIds;
+import ai.bhashini.tts.utils.Script;
+
+/**
+ * Word level alignment of an ASR-like output against its ground truth, with
+ * about 10% substitutions, insertions and deletions. Up to 64 words the
+ * distance-only methods use the bit-parallel algorithm, beyond that the banded
+ * one.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class LevenshteinDistanceBenchmark {
+	static final double ERROR_RATE = 0.1;
+
+	@Param({ "20", "200" })
+	int numWords;
+
+	List<String> groundTruth;
+	List<String> output;
+	int[] groundTruthIds;
+	int[] outputIds;
+
+	@Setup
+	public void setup() {
+		groundTruth = SyntheticText.generateWords(Script.Devanagari, numWords, SyntheticText.DEFAULT_SEED);
+		List<String> otherWords = SyntheticText.generateWords(Script.Devanagari, numWords,
+				SyntheticText.DEFAULT_SEED + 1);
+		Random random = new Random(SyntheticText.DEFAULT_SEED);
+		output = new ArrayList<>();
+		for (int i = 0; i < numWords; i++) {
+			double r = random.nextDouble();
+			if (r < ERROR_RATE / 3) {
+				output.add(otherWords.get(i)); // Substitution
+			} else if (r < 2 * ERROR_RATE / 3) {
+				output.add(groundTruth.get(i));
+				output.add(otherWords.get(i)); // Insertion
+			} else if (r >= ERROR_RATE) {
+				output.add(groundTruth.get(i));
+			} // else deletion
+		}
+		TokenIds<String> tokenIds = new TokenIds<>();
+		groundTruthIds = tokenIds.getIds(groundTruth);
+		outputIds = tokenIds.getIds(output);
+	}
+
+	@Benchmark
+	public double alignment() {
+		return new LevenshteinDistance(output, groundTruth).getErrorRate();
+	}
+
+	@Benchmark
+	public int editDistance() {
+		return LevenshteinDistance.getEditDistance(outputIds, groundTruthIds);
+	}
+
+	@Benchmark
+	public boolean isErrorRateWithin() {
+		return LevenshteinDistance.isErrorRateWithin(outputIds, groundTruthIds, 2 * ERROR_RATE);
+	}
+}
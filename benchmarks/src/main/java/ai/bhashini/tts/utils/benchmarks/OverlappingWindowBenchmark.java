@@ -0,0 +1,54 @@
+package ai.bhashini.tts.utils.benchmarks;
+
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ai.bhashini.tts.utils.OverlappingWindow;
+
+// Silence trimming of 10 seconds of normalized 22.05 kHz audio, as done by TrimAndNormalizeAudio
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class OverlappingWindowBenchmark {
+	static final int SAMPLE_RATE = 22050;
+	static final double SECS = 10;
+	static final int CUTOFF_DB = -30;
+	static final int SILENCE_PADDING = 5;
+
+	@Param({ "1024" })
+	int windowLength;
+
+	@Param({ "256" })
+	int hopLength;
+
+	double[] audio;
+
+	@Setup
+	public void setup() {
+		audio = SyntheticAudio.generate(1, (int) (SECS * SAMPLE_RATE), SAMPLE_RATE, SyntheticAudio.DEFAULT_SEED)[0];
+	}
+
+	@Benchmark
+	public double[] trimSilences() {
+		return OverlappingWindow.trimSilences(audio, windowLength, hopLength, CUTOFF_DB, SILENCE_PADDING);
+	}
+
+	@Benchmark
+	public double[] computeMeanSquares() {
+		return OverlappingWindow.computeMeanSquares(audio, windowLength, hopLength);
+	}
+}
@@ -0,0 +1,98 @@
+package ai.bhashini.tts.utils.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Random;
+
+import ai.bhashini.tts.utils.WavFile;
+import ai.bhashini.tts.utils.WavFileException;
+
+/**
+ * Deterministic speech-like recordings for the benchmarks: leading and trailing
+ * near-silence around a run of "syllables" (harmonics of a varying pitch under
+ * a smooth envelope), a low noise floor, and occasional single-sample polarity
+ * flips of the kind RepairAudio.repairNegativeClicks() repairs. The same seed
+ * always gives the same samples.
+ */
+public class SyntheticAudio {
+	public static final long DEFAULT_SEED = 42;
+
+	static final double LEADING_SILENCE_SECS = 0.4;
+	static final double TRAILING_SILENCE_SECS = 0.6;
+	static final double SYLLABLE_SECS = 0.2;
+	static final int NUM_HARMONICS = 6;
+	static final double PEAK = 0.5;
+	static final double NOISE_LEVEL = 1e-4;
+	static final int FRAMES_PER_CLICK = 2000;
+
+	// Samples in [-1, 1), channels of the same length with slightly different gains
+	public static double[][] generate(int numChannels, int numFrames, int sampleRate, long seed) {
+		Random random = new Random(seed);
+		double[][] audio = new double[numChannels][numFrames];
+		int voicedBegin = Math.min(numFrames, (int) (LEADING_SILENCE_SECS * sampleRate));
+		int voicedEnd = Math.max(voicedBegin, numFrames - (int) (TRAILING_SILENCE_SECS * sampleRate));
+		int syllableLength = Math.max(1, (int) (SYLLABLE_SECS * sampleRate));
+
+		double pitch = 0;
+		double phase = 0;
+		for (int i = 0; i < numFrames; i++) {
+			double value = NOISE_LEVEL * random.nextGaussian();
+			if (i >= voicedBegin && i < voicedEnd) {
+				int positionInSyllable = (i - voicedBegin) % syllableLength;
+				if (positionInSyllable == 0) {
+					pitch = 100 + 150 * random.nextDouble();
+				}
+				double envelope = Math.sin(Math.PI * positionInSyllable / syllableLength);
+				phase += 2 * Math.PI * pitch / sampleRate;
+				double voiced = 0;
+				for (int k = 1; k <= NUM_HARMONICS; k++) {
+					voiced += Math.sin(k * phase) / k;
+				}
+				value += PEAK * envelope * envelope * voiced / 2.5;
+			}
+			for (int c = 0; c < numChannels; c++) {
+				audio[c][i] = value * (1.0 - 0.1 * c);
+			}
+		}
+		addClicks(audio, voicedBegin, voicedEnd, random);
+		return audio;
+	}
+
+	// Flips a sample against two same-signed neighbours about every FRAMES_PER_CLICK frames
+	static void addClicks(double[][] audio, int begin, int end, Random random) {
+		for (int i = begin + 1; i < end - 1; i += 1 + random.nextInt(2 * FRAMES_PER_CLICK)) {
+			for (double[] channel : audio) {
+				double prev = channel[i - 1];
+				double next = channel[i + 1];
+				if (prev * next > 0 && Math.abs(prev) > 0.01) {
+					channel[i] = -Math.signum(prev) * Math.min(0.99, 2 * Math.max(Math.abs(prev), Math.abs(next)));
+				}
+			}
+		}
+	}
+
+	public static File createWavFile(File file, int numChannels, double secs, int sampleRate, int validBits, long seed)
+			throws IOException, WavFileException {
+		int numFrames = (int) (secs * sampleRate);
+		double[][] audio = generate(numChannels, numFrames, sampleRate, seed);
+		file.getAbsoluteFile().getParentFile().mkdirs();
+		WavFile wavFile = WavFile.newWavFile(file, numChannels, numFrames, validBits, sampleRate);
+		try {
+			wavFile.writeFrames(audio, numFrames);
+		} finally {
+			wavFile.close();
+		}
+		return file;
+	}
+
+	// Creates numFiles recordings of secs seconds each (with different seeds) in dir
+	public static File[] createWavFiles(File dir, int numFiles, int numChannels, double secs, int sampleRate,
+			int validBits, long seed) throws IOException, WavFileException {
+		File[] files = new File[numFiles];
+		for (int i = 0; i < numFiles; i++) {
+			files[i] = createWavFile(new File(dir, String.format("take_%04d.wav", i)), numChannels, secs, sampleRate,
+					validBits, seed + i);
+		}
+		return files;
+	}
+}
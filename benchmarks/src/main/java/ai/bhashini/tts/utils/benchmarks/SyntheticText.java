@@ -0,0 +1,140 @@
+package ai.bhashini.tts.utils.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import ai.bhashini.tts.utils.Language;
+import ai.bhashini.tts.utils.Script;
+
+/**
+ * Deterministic Indic text for the benchmarks. Words are random syllables of
+ * the language's script; sentences mix in numbers in the formats seen in news
+ * text (years, Indian digit grouping, decimals, ranges), abbreviations from the
+ * language's AbbreviationExpansion properties and commas. The same seed always
+ * gives the same text.
+ */
+public class SyntheticText {
+	public static final long DEFAULT_SEED = 42;
+	public static final Language[] LANGUAGES = { Language.Hindi, Language.Kannada, Language.Telugu };
+
+	// Offsets in the script's Unicode block, assigned in Devanagari, Kannada and Telugu alike
+	static final int[] CONSONANTS = { 0x15, 0x16, 0x17, 0x18, 0x1A, 0x1B, 0x1C, 0x1F, 0x21, 0x23, 0x24, 0x25, 0x26,
+			0x27, 0x28, 0x2A, 0x2B, 0x2C, 0x2D, 0x2E, 0x2F, 0x30, 0x32, 0x35, 0x36, 0x37, 0x38, 0x39 };
+	static final int[] VOWEL_SIGNS = { 0x3E, 0x3F, 0x40, 0x41, 0x42, 0x47, 0x48, 0x4B };
+	static final int[] VOWELS = { 0x05, 0x06, 0x07, 0x09, 0x0F };
+	static final int ANUSVARA = 0x02;
+	static final int VIRAMA = 0x4D;
+
+	static final String[] HINDI_ABBREVIATIONS = { "ऩाम", "कमळ", "—", "ऱाज", "ऎक" };
+	static final String[] KANNADA_ABBREVIATIONS = { "ಡಾ.", "ಕಿ. ಮೀ.", "ಶೇ. 25", "ಜ. 26", "ರೂ.", "ಗ್ರಾ. ಪಂ.", "ಪ್ರೊ." };
+	static final String[] TELUGU_ABBREVIATIONS = { "కి.మీ", "సెం.మీ", "క్రీ.పూ", "ఉదా.", "కె.జి" };
+
+	static String[] getAbbreviations(Language language) {
+		switch (language) {
+		case Hindi:
+			return HINDI_ABBREVIATIONS;
+		case Kannada:
+			return KANNADA_ABBREVIATIONS;
+		case Telugu:
+			return TELUGU_ABBREVIATIONS;
+		default:
+			return new String[0];
+		}
+	}
+
+	static String getSentenceEnd(Script script) {
+		return script == Script.Devanagari ? "।" : ".";
+	}
+
+	public static String generateWord(Script script, Random random) {
+		StringBuilder sb = new StringBuilder();
+		int numSyllables = 1 + random.nextInt(4);
+		if (random.nextInt(5) == 0) {
+			sb.appendCodePoint(script.unicodeBlockStart + VOWELS[random.nextInt(VOWELS.length)]);
+			numSyllables--;
+		}
+		for (int s = 0; s < numSyllables; s++) {
+			sb.appendCodePoint(script.unicodeBlockStart + CONSONANTS[random.nextInt(CONSONANTS.length)]);
+			int r = random.nextInt(10);
+			if (r < 5) {
+				sb.appendCodePoint(script.unicodeBlockStart + VOWEL_SIGNS[random.nextInt(VOWEL_SIGNS.length)]);
+			} else if (r == 5 && s + 1 < numSyllables) {
+				// Conjunct with the next consonant
+				sb.appendCodePoint(script.unicodeBlockStart + VIRAMA);
+			} else if (r == 6) {
+				sb.appendCodePoint(script.unicodeBlockStart + ANUSVARA);
+			}
+		}
+		return sb.toString();
+	}
+
+	public static List<String> generateWords(Script script, int numWords, long seed) {
+		Random random = new Random(seed);
+		List<String> words = new ArrayList<>(numWords);
+		for (int i = 0; i < numWords; i++) {
+			words.add(generateWord(script, random));
+		}
+		return words;
+	}
+
+	public static String generateNumber(Random random) {
+		switch (random.nextInt(6)) {
+		case 0: // Year
+			return Integer.toString(1950 + random.nextInt(80));
+		case 1: // Indian digit grouping, e.g. 1,25,000
+			return String.format("%d,%02d,%03d", 1 + random.nextInt(99), random.nextInt(100), random.nextInt(1000));
+		case 2: // Decimal
+			return random.nextInt(1000) + "." + random.nextInt(100);
+		case 3: // Range
+			int from = random.nextInt(100);
+			return from + "-" + (from + 1 + random.nextInt(100));
+		case 4: // Phone number like
+			return Long.toString(6000000000L + (long) (random.nextDouble() * 3999999999L));
+		default:
+			return Integer.toString(random.nextInt(1000));
+		}
+	}
+
+	public static String generateSentence(Language language, Random random) {
+		String[] abbreviations = getAbbreviations(language);
+		StringBuilder sb = new StringBuilder();
+		int numWords = 6 + random.nextInt(9);
+		for (int w = 0; w < numWords; w++) {
+			if (w > 0) {
+				sb.append(random.nextInt(12) == 0 ? ", " : " ");
+			}
+			int r = random.nextInt(20);
+			if (r < 2) {
+				sb.append(generateNumber(random));
+			} else if (r == 2 && abbreviations.length > 0) {
+				sb.append(abbreviations[random.nextInt(abbreviations.length)]);
+			} else {
+				sb.append(generateWord(language.script, random));
+			}
+		}
+		sb.append(random.nextInt(10) == 0 ? "?" : getSentenceEnd(language.script));
+		return sb.toString();
+	}
+
+	public static String generateParagraph(Language language, int numSentences, Random random) {
+		StringBuilder sb = new StringBuilder();
+		for (int s = 0; s < numSentences; s++) {
+			if (s > 0) {
+				sb.append(' ');
+			}
+			sb.append(generateSentence(language, random));
+		}
+		return sb.toString();
+	}
+
+	// Paragraphs separated by line breaks
+	public static String generateText(Language language, int numParagraphs, int sentencesPerParagraph, long seed) {
+		Random random = new Random(seed);
+		StringBuilder sb = new StringBuilder();
+		for (int p = 0; p < numParagraphs; p++) {
+			sb.append(generateParagraph(language, sentencesPerParagraph, random)).append('\n');
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,80 @@
+package ai.bhashini.tts.utils.benchmarks;
+
+import java.util.ArrayList;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ai.bhashini.tts.utils.AbbreviationExpansion;
+import ai.bhashini.tts.utils.Language;
+import ai.bhashini.tts.utils.NumberExpansion;
+import ai.bhashini.tts.utils.Script;
+import ai.bhashini.tts.utils.SentenceSplitter;
+import ai.bhashini.tts.utils.SentenceSplitter.Paragraph;
+import ai.bhashini.tts.utils.Transliterate;
+
+/**
+ * Text front-end steps on 20 paragraphs of 5 sentences of synthetic text. The
+ * singletons (and their resources) are loaded during setup, so only the
+ * processing is measured.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TextNormalizationBenchmark {
+	static final int NUM_PARAGRAPHS = 20;
+	static final int SENTENCES_PER_PARAGRAPH = 5;
+
+	@Param({ "Hindi", "Kannada", "Telugu" })
+	Language language;
+
+	String text;
+	NumberExpansion numberExpansion;
+	AbbreviationExpansion abbreviationExpansion;
+	Transliterate transliterate;
+	Script transliterationScript;
+
+	@Setup
+	public void setup() {
+		text = SyntheticText.generateText(language, NUM_PARAGRAPHS, SENTENCES_PER_PARAGRAPH,
+				SyntheticText.DEFAULT_SEED);
+		numberExpansion = NumberExpansion.getInstance(language);
+		abbreviationExpansion = AbbreviationExpansion.getInstance(language);
+		SentenceSplitter.getInstance(language.script);
+		transliterate = Transliterate.getInstance();
+		transliterationScript = language.script == Script.Devanagari ? Script.Kannada : Script.Devanagari;
+	}
+
+	@Benchmark
+	public String expandNumbers() {
+		return numberExpansion.expandNumbers(text, false);
+	}
+
+	@Benchmark
+	public String expandAbbreviations() {
+		return abbreviationExpansion.expandAbbreviations(text);
+	}
+
+	@Benchmark
+	public ArrayList<Paragraph> normalizeAndSplit() {
+		return SentenceSplitter.normalizeAndSplit(language, text);
+	}
+
+	@Benchmark
+	public String transliterate() {
+		return transliterate.transliterate(text, language.script, transliterationScript);
+	}
+}
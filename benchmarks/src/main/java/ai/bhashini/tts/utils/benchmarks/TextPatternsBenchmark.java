@@ -0,0 +1,106 @@
+package ai.bhashini.tts.utils.benchmarks;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ai.bhashini.tts.utils.Language;
+import ai.bhashini.tts.utils.NumberExpansion;
+import ai.bhashini.tts.utils.SentenceSplitter;
+import ai.bhashini.tts.utils.TextPatterns;
+
+/**
+ * The regex-per-call way of cleaning up text (String.replaceAll and
+ * String.split) against {@link TextPatterns}, on 200 lines of synthetic text
+ * with citations in square brackets and numbers retained in curly brackets
+ * next to their expansions. Setup checks that both produce the same output.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TextPatternsBenchmark {
+	static final int NUM_LINES = 200;
+	static final int SENTENCES_PER_LINE = 3;
+
+	@Param({ "Hindi", "Kannada", "Telugu" })
+	Language language;
+
+	List<String> lines;
+	NumberExpansion numberExpansion;
+
+	@Setup
+	public void setup() {
+		numberExpansion = NumberExpansion.getInstance(language);
+		Random random = new Random(SyntheticText.DEFAULT_SEED);
+		lines = new ArrayList<>(NUM_LINES);
+		for (int i = 0; i < NUM_LINES; i++) {
+			String line = SyntheticText.generateParagraph(language, SENTENCES_PER_LINE, random);
+			if (random.nextBoolean()) {
+				line += " [" + (1 + random.nextInt(50)) + "]";
+			}
+			lines.add(numberExpansion.expandNumbers(line, true));
+		}
+		for (String line : lines) {
+			if (!legacyCleanUp(line).equals(cleanUp(line))) {
+				throw new IllegalStateException("Outputs differ for: " + line);
+			}
+		}
+	}
+
+	// The text clean-up steps as they were done before TextPatterns
+	String legacyCleanUp(String text) {
+		String newText = text.replaceAll("\\[\\s*(\\p{Nd}[\\p{Nd},\\-–—\\s]*)\\s*\\]", "$1,");
+		newText = newText.replaceAll(",\\s*,+", ",");
+		newText = newText.replaceAll("\\s+,", ",");
+		newText = newText.replaceAll(",\\s+", ", ");
+		newText = newText.replaceAll("\\s+", " ");
+		char langZero = (char) language.script.digitZero;
+		char langNine = (char) language.script.digitNine;
+		newText = newText.replaceAll("\\{[" + langZero + "-" + langNine + ",.\\-]+\\}", "");
+		newText = newText.replaceAll("\\{[\\d,.\\-]+\\}", "");
+		newText = newText.replaceAll("\\{", "");
+		newText = newText.replaceAll("\\}", "");
+		return newText + " " + newText.split("\\s+").length;
+	}
+
+	String cleanUp(String text) {
+		String newText = SentenceSplitter.removeSquareBrackets(text);
+		newText = TextPatterns.collapseWhitespaces(newText);
+		newText = numberExpansion.removeNumbersAndCurlyBrackets(newText);
+		return newText + " " + TextPatterns.WHITESPACES.split(newText).length;
+	}
+
+	@Benchmark
+	public long legacyReplaceAll() {
+		long checksum = 0;
+		for (String line : lines) {
+			checksum += legacyCleanUp(line).length();
+		}
+		return checksum;
+	}
+
+	@Benchmark
+	public long textPatterns() {
+		long checksum = 0;
+		for (String line : lines) {
+			checksum += cleanUp(line).length();
+		}
+		return checksum;
+	}
+}
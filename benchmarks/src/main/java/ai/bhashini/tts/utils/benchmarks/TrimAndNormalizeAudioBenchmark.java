@@ -0,0 +1,82 @@
+package ai.bhashini.tts.utils.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ai.bhashini.tts.utils.Resampler;
+import ai.bhashini.tts.utils.TrimAndNormalizeAudio;
+import ai.bhashini.tts.utils.WavFileException;
+
+// Resampling, normalizing and trimming a 10 second 48 kHz / 24 bit studio take
+// to 22.05 kHz / 16 bit, with the default settings of TrimAndNormalizeAudio
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class TrimAndNormalizeAudioBenchmark {
+	static final int SAMPLE_RATE = 48000;
+	static final int VALID_BITS = 24;
+	static final double SECS = 10;
+	// Defaults of TrimAndNormalizeAudio
+	static final int NEW_SAMPLING_RATE = 22050;
+	static final int NEW_BITS_PER_SAMPLE = 16;
+	static final int WINDOW_LENGTH = 1024;
+	static final int HOP_LENGTH = 256;
+	static final int CUTOFF_DB = -30;
+	static final int SILENCE_PADDING = 5;
+
+	@Param({ "false", "true" })
+	boolean fusedPipeline;
+
+	File dir;
+	File inputFile;
+	File outputFile;
+
+	@Setup
+	public void setup() throws IOException, WavFileException {
+		dir = Files.createTempDirectory("trim-benchmark").toFile();
+		inputFile = SyntheticAudio.createWavFile(new File(dir, "input.wav"), 1, SECS, SAMPLE_RATE, VALID_BITS,
+				SyntheticAudio.DEFAULT_SEED);
+		outputFile = new File(dir, "output.wav");
+	}
+
+	@TearDown
+	public void tearDown() {
+		inputFile.delete();
+		outputFile.delete();
+		dir.delete();
+	}
+
+	@Benchmark
+	public long trim() throws IOException, UnsupportedAudioFileException, WavFileException {
+		if (fusedPipeline) {
+			TrimAndNormalizeAudio.trimAudioFused(inputFile.getPath(), outputFile.getPath(), NEW_SAMPLING_RATE,
+					NEW_BITS_PER_SAMPLE, WINDOW_LENGTH, HOP_LENGTH, CUTOFF_DB, SILENCE_PADDING, false, false,
+					Resampler.DEFAULT_FILTER_LENGTH);
+		} else {
+			TrimAndNormalizeAudio.trimAudio(inputFile.getPath(), outputFile.getPath(), NEW_SAMPLING_RATE,
+					NEW_BITS_PER_SAMPLE, WINDOW_LENGTH, HOP_LENGTH, CUTOFF_DB, SILENCE_PADDING, false, false,
+					Resampler.DEFAULT_FILTER_LENGTH);
+		}
+		return outputFile.length();
+	}
+}
@@ -0,0 +1,87 @@
+package ai.bhashini.tts.utils.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ai.bhashini.tts.utils.WavFile;
+import ai.bhashini.tts.utils.WavFileException;
+
+// Decoding a whole 10 second 48 kHz recording with WavFile.readFrames()
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WavFileReadBenchmark {
+	static final int SAMPLE_RATE = 48000;
+	static final double SECS = 10;
+
+	@Param({ "8", "16", "24", "32" })
+	int validBits;
+
+	@Param({ "1", "2" })
+	int numChannels;
+
+	@Param({ "false", "true" })
+	boolean memoryMapped;
+
+	File dir;
+	File wavFile;
+	int numFrames;
+	long[] longSamples;
+	double[] doubleSamples;
+
+	@Setup
+	public void setup() throws IOException, WavFileException {
+		dir = Files.createTempDirectory("wav-read-benchmark").toFile();
+		wavFile = SyntheticAudio.createWavFile(new File(dir, "input.wav"), numChannels, SECS, SAMPLE_RATE, validBits,
+				SyntheticAudio.DEFAULT_SEED);
+		numFrames = (int) (SECS * SAMPLE_RATE);
+		longSamples = new long[numFrames * numChannels];
+		doubleSamples = new double[numFrames * numChannels];
+	}
+
+	@TearDown
+	public void tearDown() {
+		wavFile.delete();
+		dir.delete();
+	}
+
+	@Benchmark
+	public long readFramesLong() throws IOException, WavFileException {
+		WavFile readWavFile = WavFile.openWavFile(wavFile, memoryMapped);
+		try {
+			readWavFile.readFrames(longSamples, numFrames);
+		} finally {
+			readWavFile.close();
+		}
+		return longSamples[longSamples.length / 2];
+	}
+
+	@Benchmark
+	public double readFramesDouble() throws IOException, WavFileException {
+		WavFile readWavFile = WavFile.openWavFile(wavFile, memoryMapped);
+		try {
+			readWavFile.readFrames(doubleSamples, numFrames);
+		} finally {
+			readWavFile.close();
+		}
+		return doubleSamples[doubleSamples.length / 2];
+	}
+}
@@ -0,0 +1,93 @@
+package ai.bhashini.tts.utils.benchmarks;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.util.concurrent.TimeUnit;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import ai.bhashini.tts.utils.TrimAndNormalizeAudio;
+import ai.bhashini.tts.utils.WavFile;
+import ai.bhashini.tts.utils.WavFileException;
+
+// Encoding a 10 second 48 kHz recording with WavFile.writeFrames()
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class WavFileWriteBenchmark {
+	static final int SAMPLE_RATE = 48000;
+	static final double SECS = 10;
+
+	@Param({ "8", "16", "24", "32" })
+	int validBits;
+
+	@Param({ "1", "2" })
+	int numChannels;
+
+	File dir;
+	File wavFile;
+	int numFrames;
+	long[] longSamples; // Interleaved
+	double[] doubleSamples; // Interleaved
+
+	@Setup
+	public void setup() throws IOException {
+		dir = Files.createTempDirectory("wav-write-benchmark").toFile();
+		wavFile = new File(dir, "output.wav");
+		numFrames = (int) (SECS * SAMPLE_RATE);
+		double[][] audio = SyntheticAudio.generate(numChannels, numFrames, SAMPLE_RATE, SyntheticAudio.DEFAULT_SEED);
+		longSamples = new long[numFrames * numChannels];
+		doubleSamples = new double[numFrames * numChannels];
+		for (int c = 0; c < numChannels; c++) {
+			long[] quantized = TrimAndNormalizeAudio.quantize(audio[c], validBits);
+			for (int i = 0; i < numFrames; i++) {
+				// 8 bit WAV samples are unsigned
+				longSamples[i * numChannels + c] = validBits <= 8 ? quantized[i] + (1 << (validBits - 1)) : quantized[i];
+				doubleSamples[i * numChannels + c] = audio[c][i];
+			}
+		}
+	}
+
+	@TearDown
+	public void tearDown() {
+		wavFile.delete();
+		dir.delete();
+	}
+
+	@Benchmark
+	public long writeFramesLong() throws IOException, WavFileException {
+		WavFile writeWavFile = WavFile.newWavFile(wavFile, numChannels, numFrames, validBits, SAMPLE_RATE);
+		try {
+			writeWavFile.writeFrames(longSamples, numFrames);
+		} finally {
+			writeWavFile.close();
+		}
+		return wavFile.length();
+	}
+
+	@Benchmark
+	public long writeFramesDouble() throws IOException, WavFileException {
+		WavFile writeWavFile = WavFile.newWavFile(wavFile, numChannels, numFrames, validBits, SAMPLE_RATE);
+		try {
+			writeWavFile.writeFrames(doubleSamples, numFrames);
+		} finally {
+			writeWavFile.close();
+		}
+		return wavFile.length();
+	}
+}
@@ -2,12 +2,19 @@ package ai.bhashini.tts.utils;
 
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
+import java.io.File;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.StringReader;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
 import java.util.Properties;
 import java.util.concurrent.ConcurrentHashMap;
 import java.util.regex.Pattern;
@@ -19,14 +26,17 @@ public class AbbreviationExpansion {
 			Language.Bengali, Language.Marathi };
 
 	protected Language language;
+	protected ArrayList<String> keys = new ArrayList<>(); // In the order of the properties file
 	protected Properties patternsAndReplacements = new Properties();
-	protected HashMap<String, Pattern> patternsMap = new HashMap<>();
+	protected HashMap<String, Pattern> patternsMap = new LinkedHashMap<>();
+	protected MultiPatternReplacer replacer;
 
 	// Singleton class => private constructor
 	private AbbreviationExpansion(Language language) {
 		this.language = language;
 		loadPatternsAndReplacements(language.name() + "_AbbreviationExpansion.properties");
 		createPatternsMap();
+		createReplacer();
 	}
 
 	private static ConcurrentHashMap<Language, AbbreviationExpansion> uniqueInstancesMap = new ConcurrentHashMap<>();
@@ -40,16 +50,56 @@ public class AbbreviationExpansion {
 		try {
 			InputStream is = getClass().getResourceAsStream("/" + abbreviationExpansionPropertiesFile);
 			if (is != null) {
-				patternsAndReplacements.load(new InputStreamReader(is, "UTF-8"));
+				ArrayList<String> lines = new ArrayList<>();
+				try (BufferedReader br = new BufferedReader(new InputStreamReader(is, StandardCharsets.UTF_8))) {
+					String line;
+					while ((line = br.readLine()) != null) {
+						lines.add(line);
+					}
+				}
+				patternsAndReplacements.load(new StringReader(String.join("\n", lines)));
+				keys = getKeysInFileOrder(lines);
 			}
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
 	}
 
+	// Keys of the properties file lines in the order they appear (a key given
+	// twice at its first position), each parsed by Properties itself
+	protected static ArrayList<String> getKeysInFileOrder(List<String> lines) throws IOException {
+		LinkedHashSet<String> keys = new LinkedHashSet<>();
+		StringBuilder entry = new StringBuilder();
+		for (String line : lines) {
+			if (entry.length() == 0) {
+				String trimmed = line.trim();
+				if (trimmed.isEmpty() || trimmed.startsWith("#") || trimmed.startsWith("!")) {
+					continue;
+				}
+			}
+			entry.append(line).append('\n');
+			if (endsWithContinuation(line)) {
+				continue;
+			}
+			Properties properties = new Properties();
+			properties.load(new StringReader(entry.toString()));
+			keys.addAll(properties.stringPropertyNames());
+			entry.setLength(0);
+		}
+		return new ArrayList<>(keys);
+	}
+
+	// Whether the line ends with an odd number of backslashes, i.e. continues on the next line
+	private static boolean endsWithContinuation(String line) {
+		int numBackslashes = 0;
+		for (int i = line.length() - 1; i >= 0 && line.charAt(i) == '\\'; i--) {
+			numBackslashes++;
+		}
+		return numBackslashes % 2 == 1;
+	}
+
 	protected void createPatternsMap() {
-		for (Object keyObj : patternsAndReplacements.keySet()) {
-			String key = (String) keyObj;
+		for (String key : keys) {
 			Pattern pattern;
 			// Use Unicode-aware character classes so \b and \w treat Kannada (and other Unicode letters)
 			// as word characters/boundaries. Fall back to plain compilation if the flag isn't supported.
@@ -63,20 +113,35 @@ public class AbbreviationExpansion {
 		}
 	}
 
-	public String expandAbbreviations(String text) {
-		String newText = text;
-		for (String key: patternsMap.keySet()) {
-			Pattern pattern = patternsMap.get(key);
-			String replacement = patternsAndReplacements.getProperty(key);
-			newText = pattern.matcher(newText).replaceAll(replacement);
+	// All the patterns are matched in a single pass; at any position the longest
+	// match wins, and ties go to the pattern that comes first in the file
+	protected void createReplacer() {
+		ArrayList<String> replacements = new ArrayList<>();
+		for (String key : patternsMap.keySet()) {
+			replacements.add(patternsAndReplacements.getProperty(key));
 		}
+		replacer = new MultiPatternReplacer(new ArrayList<>(patternsMap.values()), replacements);
+	}
+
+	public String expandAbbreviations(String text) {
+		String newText = replacer.replaceAll(text);
 		newText = newText.replace("  ", " ");
 		return newText;
 	}
 
 	public void expandAbbreviationsInFile(String inputFilePath, String outputFilePath, boolean printDifferences) {
-		try (BufferedReader br = new BufferedReader(new FileReader(inputFilePath));
-				BufferedWriter bw = new BufferedWriter(new FileWriter(outputFilePath))) {
+		try {
+			expandAbbreviationsInFile(new File(inputFilePath), new File(outputFilePath), printDifferences);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	// Same as above, but throws the exception if the input can't be read or the output written
+	public void expandAbbreviationsInFile(File inputFile, File outputFile, boolean printDifferences)
+			throws IOException {
+		try (BufferedReader br = new BufferedReader(new FileReader(inputFile));
+				BufferedWriter bw = new BufferedWriter(new FileWriter(outputFile))) {
 			String line;
 			while ((line = br.readLine()) != null) {
 				String[] contents = line.split("\t");
@@ -88,8 +153,6 @@ public class AbbreviationExpansion {
 					System.out.println(sentenceId + "\n\t" + oldContent + "\n\t" + newContent);
 				}
 			}
-		} catch (IOException e) {
-			e.printStackTrace();
 		}
 	}
 
@@ -0,0 +1,116 @@
+package ai.bhashini.tts.utils;
+
+/**
+ * Loops over sample arrays shared by the audio tools: abs-max, scaling,
+ * sum of squares and quantization.
+ *
+ * This class holds the scalar implementations. On JDK 17+ the jar also
+ * carries VectorAudioKernels (under META-INF/versions/17), which overrides them
+ * with SIMD versions built on jdk.incubator.vector. {@link #get()} returns that
+ * implementation when it can be loaded (i.e. the jar is run on JDK 17+ with
+ * --add-modules jdk.incubator.vector) and its isSupported() accepts the
+ * platform's vector shapes, and this one otherwise.
+ *
+ * All kernels give exactly the same results in both implementations, except
+ * {@link #sumOfSquares}, whose vector version adds the squares in a different
+ * order and so may differ in the last bits.
+ */
+public class AudioKernels {
+	private static final String VECTOR_KERNELS_CLASS = "ai.bhashini.tts.utils.VectorAudioKernels";
+	private static final AudioKernels instance = createInstance();
+
+	private static AudioKernels createInstance() {
+		Class<?> vectorKernelsClass;
+		try {
+			vectorKernelsClass = Class.forName(VECTOR_KERNELS_CLASS);
+			if (!(Boolean) vectorKernelsClass.getMethod("isSupported").invoke(null)) {
+				// No suitable vector shape on this platform
+				return new AudioKernels();
+			}
+		} catch (ReflectiveOperationException | LinkageError e) {
+			// Older JDK, classes not loaded from the multi-release jar, or the
+			// incubator module not added
+			return new AudioKernels();
+		}
+		try {
+			return (AudioKernels) vectorKernelsClass.getDeclaredConstructor().newInstance();
+		} catch (ReflectiveOperationException e) {
+			throw new IllegalStateException("Could not create " + VECTOR_KERNELS_CLASS, e);
+		}
+	}
+
+	public static AudioKernels get() {
+		return instance;
+	}
+
+	public String getName() {
+		return "scalar";
+	}
+
+	// Largest absolute value of data[from..to)
+	public long absMax(long[] data, int from, int to) {
+		long max = 0;
+		for (int i = from; i < to; i++) {
+			long d = Math.abs(data[i]);
+			if (d > max) {
+				max = d;
+			}
+		}
+		return max;
+	}
+
+	// out[outOffset + i] = in[inOffset + i] / divisor for i in [0, length)
+	public void scale(long[] in, int inOffset, double[] out, int outOffset, int length, double divisor) {
+		for (int i = 0; i < length; i++) {
+			out[outOffset + i] = in[inOffset + i] / divisor;
+		}
+	}
+
+	// Same as above in single precision
+	public void scale(long[] in, int inOffset, float[] out, int outOffset, int length, float divisor) {
+		for (int i = 0; i < length; i++) {
+			out[outOffset + i] = in[inOffset + i] / divisor;
+		}
+	}
+
+	// data[offset + i] /= divisor for i in [0, length)
+	public void divide(double[] data, int offset, int length, double divisor) {
+		for (int i = offset; i < offset + length; i++) {
+			data[i] = data[i] / divisor;
+		}
+	}
+
+	// Sum of data[i]^2 for i in [from, to)
+	public double sumOfSquares(double[] data, int from, int to) {
+		double sum = 0.0;
+		for (int i = from; i < to; i++) {
+			sum += data[i] * data[i];
+		}
+		return sum;
+	}
+
+	/**
+	 * out[i] = clamp(Math.round(in[i] * scale), min, max) for i in [offset,
+	 * offset + length). Returns the largest absolute value written.
+	 */
+	public long quantize(double[] in, int offset, int length, double scale, long min, long max, long[] out) {
+		long absMax = 0;
+		for (int i = offset; i < offset + length; i++) {
+			long sample = Math.max(min, Math.min(max, Math.round(in[i] * scale)));
+			out[i] = sample;
+			absMax = Math.max(absMax, Math.abs(sample));
+		}
+		return absMax;
+	}
+
+	// Same as above, with the quantized samples stored as doubles (out may be in)
+	public long quantize(double[] in, int offset, int length, double scale, long min, long max, double[] out) {
+		long absMax = 0;
+		for (int i = offset; i < offset + length; i++) {
+			long sample = Math.max(min, Math.min(max, Math.round(in[i] * scale)));
+			out[i] = sample;
+			absMax = Math.max(absMax, Math.abs(sample));
+		}
+		return absMax;
+	}
+}
@@ -0,0 +1,78 @@
+package ai.bhashini.tts.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Persistent cache of WAV header information for all the files under a
+ * dataset root directory.
+ *
+ * The cache is a TSV sidecar file ({@value #CACHE_FILE_NAME}) in the root
+ * directory with one line per WAV file: its path relative to the root, its
+ * size and last-modified time, and the format fields of its header. An entry
+ * is only used if the size and last-modified time of the file still match, so
+ * an unchanged corpus can be measured again from the cache file alone, and
+ * changed files are transparently parsed again. Instances are thread-safe.
+ */
+public class AudioMetadataCache extends TsvSidecarFile<AudioMetadataCache.Entry> {
+	public static final String CACHE_FILE_NAME = ".audio_metadata.tsv";
+	private static final String HEADER_LINE = "#path\tsize\tlastModified\tsampleRate\tvalidBits\tnumChannels\tnumFrames";
+
+	static class Entry {
+		long size;
+		long lastModified;
+		WavHeader header;
+
+		Entry(long size, long lastModified, WavHeader header) {
+			this.size = size;
+			this.lastModified = lastModified;
+			this.header = header;
+		}
+	}
+
+	// Singleton per root directory => private constructor
+	private AudioMetadataCache(File rootDir) {
+		super(rootDir, CACHE_FILE_NAME, null, HEADER_LINE, 7);
+		load();
+	}
+
+	// Thread-safe map
+	private static ConcurrentHashMap<File, AudioMetadataCache> uniqueInstancesMap = new ConcurrentHashMap<>();
+
+	public static AudioMetadataCache getInstance(File rootDir) {
+		return uniqueInstancesMap.computeIfAbsent(rootDir.getAbsoluteFile(), AudioMetadataCache::new);
+	}
+
+	/**
+	 * Returns the header information of the given WAV file, from the cache if
+	 * the file has not changed since it was cached, otherwise by parsing its
+	 * header (and caching the result).
+	 */
+	public WavHeader getHeader(File wavFile) throws IOException, WavFileException {
+		String key = getKey(wavFile);
+		long size = wavFile.length();
+		long lastModified = wavFile.lastModified();
+		Entry entry = entries.get(key);
+		if (entry != null && entry.size == size && entry.lastModified == lastModified) {
+			return entry.header;
+		}
+		WavHeader header = WavHeader.read(wavFile);
+		put(key, new Entry(size, lastModified, header));
+		return header;
+	}
+
+	@Override
+	protected Entry parseEntry(String[] fields) {
+		WavHeader header = new WavHeader(Long.parseLong(fields[3]), Integer.parseInt(fields[4]),
+				Integer.parseInt(fields[5]), Long.parseLong(fields[6]));
+		return new Entry(Long.parseLong(fields[1]), Long.parseLong(fields[2]), header);
+	}
+
+	@Override
+	protected String formatEntry(Entry entry) {
+		WavHeader header = entry.header;
+		return entry.size + "\t" + entry.lastModified + "\t" + header.getSampleRate() + "\t" + header.getValidBits()
+				+ "\t" + header.getNumChannels() + "\t" + header.getNumFrames();
+	}
+}
@@ -65,7 +65,7 @@ public class CheckCharacters {
 				if (verbose) {
 					System.out.println((i + 1) + ") " + txtFilePath);
 				}
-				String txt = FileUtils.getFileContents(txtFilePath).replaceAll("\n", " ").trim();
+				String txt = FileUtils.getFileContents(txtFilePath).replace('\n', ' ').trim();
 				String promptId = FileUtils.getFileNameWithoutExtension(new File(txtFilePath).getName());
 				bw.write(promptId + "\t" + txt + "\n");
 			}
@@ -209,15 +209,15 @@ public class CheckCharacters {
 		String newTxt = txt;
 		for (String oldStr : replacements.keySet()) {
 			String newStr = replacements.get(oldStr);
-			newTxt = newTxt.replaceAll(oldStr, newStr);
+			newTxt = TextPatterns.replaceAll(newTxt, oldStr, newStr);
 		}
 		return newTxt;
 	}
 
 	void removeExtraSpaces() {
 		for (String txtFilePath : txtFilePaths) {
-			String txt = FileUtils.getFileContents(txtFilePath).replaceAll("\n", " ").trim();
-			String newTxt = txt.replaceAll("\\s+", " ");
+			String txt = FileUtils.getFileContents(txtFilePath).replace('\n', ' ').trim();
+			String newTxt = TextPatterns.collapseWhitespaces(txt);
 			if (!newTxt.contentEquals(txt)) {
 				if (verbose) {
 					System.out.println(txtFilePath + "\n\t" + txt + "\n\t" + newTxt);
@@ -230,7 +230,7 @@ public class CheckCharacters {
 	void expandAbbreviationsInTranscriptFiles(Language language) {
 		AbbreviationExpansion abbreviationExpansion = AbbreviationExpansion.getInstance(language);
 		for (String txtFilePath : txtFilePaths) {
-			String txt = FileUtils.getFileContents(txtFilePath).replaceAll("\n", " ").trim();
+			String txt = FileUtils.getFileContents(txtFilePath).replace('\n', ' ').trim();
 			String newTxt = abbreviationExpansion.expandAbbreviations(txt);
 			if (!newTxt.contentEquals(txt)) {
 				if (verbose) {
@@ -244,7 +244,7 @@ public class CheckCharacters {
 	void expandNumbersInTranscriptFiles(Language language, boolean retainNumbersForValidation) {
 		NumberExpansion numberExpansion = NumberExpansion.getInstance(language);
 		for (String txtFilePath : txtFilePaths) {
-			String txt = FileUtils.getFileContents(txtFilePath).replaceAll("\n", " ").trim();
+			String txt = FileUtils.getFileContents(txtFilePath).replace('\n', ' ').trim();
 			String newTxt = numberExpansion.expandNumbers(txt, retainNumbersForValidation);
 			if (!newTxt.contentEquals(txt)) {
 				if (verbose) {
@@ -257,7 +257,7 @@ public class CheckCharacters {
 
 	void replaceAll() {
 		for (String txtFilePath : txtFilePaths) {
-			String txt = FileUtils.getFileContents(txtFilePath).replaceAll("\n", " ").trim();
+			String txt = FileUtils.getFileContents(txtFilePath).replace('\n', ' ').trim();
 			String newTxt = replaceText(txt);
 			if (!newTxt.contentEquals(txt)) {
 				if (verbose) {
@@ -2,9 +2,17 @@ package ai.bhashini.tts.utils;
 
 import java.io.File;
 import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
 import java.util.ArrayList;
+import java.util.List;
 
 public class CombineWAVs {
+	// Silence is written from this buffer; it is never modified, so all threads can
+	// share it through duplicates
+	private static final int ZERO_BUFFER_SIZE = 64 * 1024;
+	private static final ByteBuffer ZERO_BUFFER = ByteBuffer.allocateDirect(ZERO_BUFFER_SIZE).asReadOnlyBuffer();
 
     private static void copyWavData(WavFile readWavFile, WavFile writeWavFile, int numChannels)
             throws IOException, WavFileException {
@@ -26,6 +34,88 @@ public class CombineWAVs {
         writeWavFile.writeFrames(buffer, numFrames);
     }
 
+	// Headers of the given files if they all have the same format and complete
+	// data chunks, so that the data can be copied without decoding. Null otherwise.
+	private static List<WavHeader> getHeadersIfCopyable(List<File> files) {
+		ArrayList<WavHeader> headers = new ArrayList<>();
+		for (File file : files) {
+			try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+				WavHeader header = WavHeader.read(channel);
+				if (!headers.isEmpty() && !header.hasSameFormat(headers.get(0))) {
+					return null;
+				}
+				if (header.getDataOffset() + header.getDataChunkSize() > channel.size()) {
+					return null;
+				}
+				headers.add(header);
+			} catch (IOException | WavFileException e) {
+				// Left to the decoding path to report
+				return null;
+			}
+		}
+		return headers;
+	}
+
+	private static void writeSilence(FileChannel outChannel, long numBytes) throws IOException {
+		while (numBytes > 0) {
+			ByteBuffer zeros = ZERO_BUFFER.duplicate();
+			zeros.limit((int) Math.min(numBytes, ZERO_BUFFER_SIZE));
+			while (zeros.hasRemaining()) {
+				numBytes -= outChannel.write(zeros);
+			}
+		}
+	}
+
+	/**
+	 * Writes the data chunks of the given files, which must have the same format,
+	 * one after the other into outputFile, with gapFrames frames of silence after
+	 * each file except the last, and also after the last if gapAfterLast is true.
+	 * The data is transferred from channel to channel without being decoded, so
+	 * the output is byte for byte what decoding and re-encoding would give.
+	 */
+	private static void copyWavData(List<File> files, List<WavHeader> headers, File outputFile, long gapFrames,
+			boolean gapAfterLast) throws IOException, WavFileException {
+		WavHeader format = headers.get(0);
+		long gapBytes = gapFrames * format.getBlockAlign();
+		long numFrames = 0;
+		for (int i = 0; i < headers.size(); i++) {
+			numFrames += headers.get(i).getNumFrames();
+			if (i < headers.size() - 1 || gapAfterLast) {
+				numFrames += gapFrames;
+			}
+		}
+		WavHeader outputHeader = new WavHeader(format.getSampleRate(), format.getValidBits(),
+				format.getNumChannels(), numFrames);
+		try (FileChannel outChannel = FileChannel.open(outputFile.toPath(), StandardOpenOption.WRITE,
+				StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING)) {
+			ByteBuffer header = outputHeader.createCanonicalHeader();
+			while (header.hasRemaining()) {
+				outChannel.write(header);
+			}
+			for (int i = 0; i < files.size(); i++) {
+				WavHeader inputHeader = headers.get(i);
+				try (FileChannel inChannel = FileChannel.open(files.get(i).toPath(), StandardOpenOption.READ)) {
+					long position = inputHeader.getDataOffset();
+					long end = position + inputHeader.getDataChunkSize();
+					while (position < end) {
+						long transferred = inChannel.transferTo(position, end - position, outChannel);
+						if (transferred <= 0) {
+							throw new WavFileException("Not enough data available in " + files.get(i));
+						}
+						position += transferred;
+					}
+				}
+				if (i < files.size() - 1 || gapAfterLast) {
+					writeSilence(outChannel, gapBytes);
+				}
+			}
+			// Word alignment
+			if (outputHeader.getDataChunkSize() % 2 == 1) {
+				writeSilence(outChannel, 1);
+			}
+		}
+	}
+
     public static File combine(ArrayList<File> files, int gapToBeInsertedInMilliSecs) {
 		if (files.size() == 0) {
 			return null;
@@ -33,6 +123,19 @@ public class CombineWAVs {
         if (files.size() == 1) {
             return files.get(0);
         }
+		File firstFile = files.get(0);
+		List<WavHeader> headers = getHeadersIfCopyable(files);
+		if (headers != null) {
+			File combinedFile = new File(firstFile.getParent(), firstFile.getName().replace(".wav", "_combined.wav"));
+			long gapFrames = headers.get(0).getSampleRate() * gapToBeInsertedInMilliSecs / 1000;
+			try {
+				copyWavData(files, headers, combinedFile, gapFrames, false);
+				return combinedFile;
+			} catch (IOException | WavFileException e) {
+				e.printStackTrace();
+				return firstFile;
+			}
+		}
         try {
             ArrayList<WavFile> wavFiles = new ArrayList<>();
             long sampleRate = 0;
@@ -76,6 +179,20 @@ public class CombineWAVs {
     }
 
 	public static File padSilenceAtTheEnd(File file, int gapToBeInsertedInMilliSecs) {
+		List<File> files = new ArrayList<>();
+		files.add(file);
+		List<WavHeader> headers = getHeadersIfCopyable(files);
+		if (headers != null) {
+			File newFile = new File(file.getParent(), file.getName().replace(".wav", "_padded.wav"));
+			long gapFrames = headers.get(0).getSampleRate() * gapToBeInsertedInMilliSecs / 1000;
+			try {
+				copyWavData(files, headers, newFile, gapFrames, true);
+				return newFile;
+			} catch (IOException | WavFileException e) {
+				e.printStackTrace();
+				return file;
+			}
+		}
 		try {
 			WavFile wavFile = WavFile.openWavFile(file);
 			long sampleRate = wavFile.getSampleRate();
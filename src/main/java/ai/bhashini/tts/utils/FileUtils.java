@@ -7,14 +7,14 @@ import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileFilter;
 import java.io.FileInputStream;
-import java.io.FileNotFoundException;
 import java.io.FileOutputStream;
-import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.FilenameFilter;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.InputStreamReader;
 import java.io.OutputStream;
+import java.nio.charset.Charset;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.Comparator;
@@ -41,16 +41,26 @@ public class FileUtils {
 	}
 
 	public static String getFileContents(String filePath) {
+        try {
+            return readFileContents(filePath);
+        } catch (IOException e) {
+            e.printStackTrace();
+            return "";
+        }
+    }
+
+	// Same as getFileContents, but throws the exception instead of returning an empty string
+	public static String readFileContents(String filePath) throws IOException {
+        return readFileContents(filePath, Charset.defaultCharset());
+    }
+
+	public static String readFileContents(String filePath, Charset charset) throws IOException {
         StringBuffer strBuffer = new StringBuffer();
-        try (BufferedReader br = new BufferedReader(new FileReader(filePath))) {
+        try (BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(filePath), charset))) {
             String line;
             while ((line = br.readLine()) != null) {
                 strBuffer.append(line + "\n");
             }
-        } catch (FileNotFoundException e) {
-            e.printStackTrace();
-        } catch (IOException e) {
-            e.printStackTrace();
         }
         return strBuffer.toString().trim();
     }
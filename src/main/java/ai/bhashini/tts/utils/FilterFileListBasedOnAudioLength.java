@@ -23,6 +23,8 @@ public class FilterFileListBasedOnAudioLength {
 				"Maximum audio length in seconds");
 		BooleanOption replaceOriginalFile = new BooleanOption("replace", "replace-original-file",
 				"Replace original audio-text-file with the filtered one");
+		BooleanOption noCache = new BooleanOption("nc", "no-cache", "Do not read or update the "
+				+ AudioMetadataCache.CACHE_FILE_NAME + " metadata cache in the dataset directory");
 
 		public Arguments() {
 			super();
@@ -33,6 +35,7 @@ public class FilterFileListBasedOnAudioLength {
 			options.addOption(minLengthInSecs);
 			options.addOption(maxLengthInSecs);
 			options.addOption(replaceOriginalFile);
+			options.addOption(noCache);
 		}
 	}
 
@@ -60,6 +63,10 @@ public class FilterFileListBasedOnAudioLength {
 			return;
 		}
 
+		AudioMetadataCache metadataCache = null;
+		if (!arguments.noCache.getBoolValue()) {
+			metadataCache = AudioMetadataCache.getInstance(new File(datasetPath));
+		}
 		String filteredFileListPath = audioTextFileListPath + ".filtered";
 		String logFilePath = audioTextFileListPath + ".filtered.log";
 		double totalLenShortAudios = 0.0;
@@ -85,7 +92,7 @@ public class FilterFileListBasedOnAudioLength {
 					System.out.print(logInfo);
 					continue;
 				}
-				double lenInSecs = MeasureAudioLength.getAudioLengthInSecs(wavFilePath);
+				double lenInSecs = MeasureAudioLength.getAudioLengthInSecs(wavFilePath, metadataCache);
 				if (lenInSecs >= minLengthInSecs && lenInSecs <= maxLengtInSecs) {
 					bw.write(line + "\n");
 				} else {
@@ -106,6 +113,9 @@ public class FilterFileListBasedOnAudioLength {
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
+		if (metadataCache != null) {
+			metadataCache.save();
+		}
 		if (replaceOriginalFile) {
 			File backupFile = new File(audioTextFileListPath + ".bak");
 			try {
@@ -2,13 +2,22 @@ package ai.bhashini.tts.utils;
 
 import java.text.DecimalFormat;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicInteger;
 
 /**
  * See 'edit distance' algorithm in 'Pattern Classification' book by Duda, Hart & Stork
  * (section 8.5.2, page 418 in Second Edition).
  * 
+ * The constructor computes the full alignment (positions of substitutions,
+ * insertions and deletions). When only the distance is needed, use the static
+ * getEditDistance() / isErrorRateWithin() methods on token ids (see
+ * {@link TokenIds}) instead: they run in O(n) words of memory without a
+ * backtrace, using Myers' bit-parallel algorithm when the shorter sequence has
+ * at most 64 tokens and a banded two-row DP otherwise.
  */
 public class LevenshteinDistance {
     int outputSize;
@@ -168,4 +177,203 @@ public class LevenshteinDistance {
 		return stringBuffer.toString();
 	}
 
+
+	// Distance-only computation
+	// -------------------------
+
+	/**
+	 * Maps tokens to dense int ids so that sequences can be compared with ==.
+	 * Thread-safe; the same token always gets the same id.
+	 */
+	public static class TokenIds<T> {
+		private ConcurrentHashMap<T, Integer> ids = new ConcurrentHashMap<>();
+		private AtomicInteger nextId = new AtomicInteger();
+
+		public int getId(T token) {
+			Integer id = ids.get(token);
+			if (id == null) {
+				id = ids.computeIfAbsent(token, t -> nextId.getAndIncrement());
+			}
+			return id;
+		}
+
+		public int[] getIds(List<T> tokens) {
+			int[] tokenIds = new int[tokens.size()];
+			for (int i = 0; i < tokenIds.length; i++) {
+				tokenIds[i] = getId(tokens.get(i));
+			}
+			return tokenIds;
+		}
+
+		public int size() {
+			return ids.size();
+		}
+	}
+
+	// Per-thread scratch space of the distance-only methods
+	private static class Scratch {
+		static final int TABLE_SIZE = 128; // Open addressing table for <= 64 pattern tokens
+		int[] keys = new int[TABLE_SIZE];
+		long[] masks = new long[TABLE_SIZE];
+		int[] usedSlots = new int[64];
+		int[] prevRow = new int[0];
+		int[] currRow = new int[0];
+
+		Scratch() {
+			Arrays.fill(keys, -1);
+		}
+	}
+
+	private static final ThreadLocal<Scratch> scratch = ThreadLocal.withInitial(Scratch::new);
+
+	/**
+	 * Returns the edit distance between two sequences of token ids. This is the
+	 * same value as the editDistance (and the total number of errors) of the
+	 * alignment computed by the constructor.
+	 */
+	public static int getEditDistance(int[] output, int[] groundTruth) {
+		return getEditDistance(output, groundTruth, Integer.MAX_VALUE - 1);
+	}
+
+	/**
+	 * Returns the edit distance between two sequences of token ids if it is at
+	 * most maxDistance, else any value greater than maxDistance. Pairs that
+	 * cannot be within maxDistance are rejected early.
+	 */
+	public static int getEditDistance(int[] output, int[] groundTruth, int maxDistance) {
+		int m = output.length;
+		int n = groundTruth.length;
+		if (Math.abs(m - n) > maxDistance) {
+			return maxDistance + 1;
+		}
+		if (m == 0 || n == 0) {
+			return Math.max(m, n);
+		}
+		// The distance is symmetric, so the shorter sequence is used as the pattern
+		if (m <= 64 || n <= 64) {
+			return m <= n ? myersDistance(output, groundTruth) : myersDistance(groundTruth, output);
+		}
+		return bandedDistance(output, groundTruth, maxDistance);
+	}
+
+	// Largest edit distance d for which 1.0 * d / groundTruthSize <= maxErrorRate
+	public static int getMaxEditDistance(int groundTruthSize, double maxErrorRate) {
+		if (groundTruthSize == 0 || maxErrorRate < 0) {
+			return -1;
+		}
+		long d = (long) Math.min(Integer.MAX_VALUE - 2, Math.floor(maxErrorRate * groundTruthSize));
+		// Make the bound agree exactly with the floating point comparison in getErrorRate()
+		while (d + 1 <= Integer.MAX_VALUE - 2 && 1.0 * (d + 1) / groundTruthSize <= maxErrorRate) {
+			d++;
+		}
+		while (d >= 0 && 1.0 * d / groundTruthSize > maxErrorRate) {
+			d--;
+		}
+		return (int) d;
+	}
+
+	/**
+	 * Returns true iff getErrorRate() of the alignment between the two
+	 * sequences would be at most maxErrorRate.
+	 */
+	public static boolean isErrorRateWithin(int[] output, int[] groundTruth, double maxErrorRate) {
+		int maxDistance = getMaxEditDistance(groundTruth.length, maxErrorRate);
+		return maxDistance >= 0 && getEditDistance(output, groundTruth, maxDistance) <= maxDistance;
+	}
+
+	// Myers / Hyyro bit-parallel global edit distance; pattern.length <= 64
+	private static int myersDistance(int[] pattern, int[] text) {
+		Scratch s = scratch.get();
+		int m = pattern.length;
+		int numUsedSlots = 0;
+		for (int i = 0; i < m; i++) {
+			int slot = findSlot(s.keys, pattern[i]);
+			if (s.keys[slot] == -1) {
+				s.keys[slot] = pattern[i];
+				s.usedSlots[numUsedSlots++] = slot;
+			}
+			s.masks[slot] |= 1L << i;
+		}
+		long pv = -1L;
+		long mv = 0L;
+		long last = 1L << (m - 1);
+		int score = m;
+		for (int token : text) {
+			int slot = findSlot(s.keys, token);
+			long eq = s.keys[slot] == token ? s.masks[slot] : 0L;
+			long xv = eq | mv;
+			long xh = (((eq & pv) + pv) ^ pv) | eq;
+			long ph = mv | ~(xh | pv);
+			long mh = pv & xh;
+			if ((ph & last) != 0) {
+				score++;
+			} else if ((mh & last) != 0) {
+				score--;
+			}
+			// Shifting in a 1 makes the first row 0, 1, 2, ... (global alignment)
+			ph = (ph << 1) | 1L;
+			mh <<= 1;
+			pv = mh | ~(xv | ph);
+			mv = ph & xv;
+		}
+		// Only the slots filled above are cleared, which keeps the probe chains intact
+		for (int i = 0; i < numUsedSlots; i++) {
+			s.keys[s.usedSlots[i]] = -1;
+			s.masks[s.usedSlots[i]] = 0L;
+		}
+		return score;
+	}
+
+	private static int findSlot(int[] keys, int key) {
+		int mask = keys.length - 1;
+		int slot = (key * 0x9E3779B9) >>> 25 & mask;
+		while (keys[slot] != -1 && keys[slot] != key) {
+			slot = (slot + 1) & mask;
+		}
+		return slot;
+	}
+
+	// Two-row DP restricted to the diagonal band |i - j| <= maxDistance, which
+	// stops as soon as every cell of a row exceeds maxDistance
+	private static int bandedDistance(int[] output, int[] groundTruth, int maxDistance) {
+		int m = output.length;
+		int n = groundTruth.length;
+		int k = Math.min(maxDistance, Math.max(m, n));
+		int inf = k + 1;
+		Scratch s = scratch.get();
+		if (s.prevRow.length < n + 2) {
+			s.prevRow = new int[n + 2];
+			s.currRow = new int[n + 2];
+		}
+		int[] prev = s.prevRow;
+		int[] curr = s.currRow;
+		for (int j = 0; j <= n; j++) {
+			prev[j] = j <= k ? j : inf;
+		}
+		for (int i = 1; i <= m; i++) {
+			int lo = Math.max(1, i - k);
+			int hi = Math.min(n, i + k);
+			curr[lo - 1] = lo == 1 ? Math.min(i, inf) : inf;
+			int rowMin = curr[lo - 1];
+			int token = output[i - 1];
+			for (int j = lo; j <= hi; j++) {
+				int d = prev[j - 1] + (token == groundTruth[j - 1] ? 0 : 1);
+				d = Math.min(d, prev[j] + 1);
+				d = Math.min(d, curr[j - 1] + 1);
+				d = Math.min(d, inf);
+				curr[j] = d;
+				rowMin = Math.min(rowMin, d);
+			}
+			if (hi < n) {
+				curr[hi + 1] = inf;
+			}
+			if (rowMin > k) {
+				return inf;
+			}
+			int[] t = prev;
+			prev = curr;
+			curr = t;
+		}
+		return prev[n];
+	}
 }
@@ -0,0 +1,67 @@
+package ai.bhashini.tts.utils;
+
+/**
+ * Bounded cache from long keys to strings that can be shared by any number of
+ * threads without locking.
+ *
+ * The cache is 2-way set-associative: every key maps to a set of two slots,
+ * the most recently used entry first. A hit in the second slot moves that entry
+ * to the first, and a new entry pushes the first one into the second, evicting
+ * the least recently used entry of the set. Entries are immutable, so a reader
+ * sees either a complete entry or none. Concurrent updates of the same set may
+ * drop an entry, which only costs a recomputation.
+ */
+public class LongStringCache {
+	private static class Entry {
+		final long key;
+		final String value;
+
+		Entry(long key, String value) {
+			this.key = key;
+			this.value = value;
+		}
+	}
+
+	private final Entry[] entries;
+	private final int setMask;
+
+	public LongStringCache(int capacity) {
+		int numSets = Integer.highestOneBit(Math.max(1, capacity / 2));
+		entries = new Entry[numSets * 2];
+		setMask = numSets - 1;
+	}
+
+	private int getSetIndex(long key) {
+		long h = key * 0x9E3779B97F4A7C15L;
+		return ((int) (h >>> 32) & setMask) * 2;
+	}
+
+	// Returns null if the key isn't cached
+	public String get(long key) {
+		int i = getSetIndex(key);
+		Entry first = entries[i];
+		if (first != null && first.key == key) {
+			return first.value;
+		}
+		Entry second = entries[i + 1];
+		if (second != null && second.key == key) {
+			entries[i + 1] = first;
+			entries[i] = second;
+			return second.value;
+		}
+		return null;
+	}
+
+	public void put(long key, String value) {
+		int i = getSetIndex(key);
+		Entry first = entries[i];
+		if (first != null && first.key != key) {
+			entries[i + 1] = first;
+		}
+		entries[i] = new Entry(key, value);
+	}
+
+	public int capacity() {
+		return entries.length;
+	}
+}
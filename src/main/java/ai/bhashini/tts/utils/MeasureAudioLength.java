@@ -3,7 +3,14 @@ package ai.bhashini.tts.utils;
 import java.io.File;
 import java.io.IOException;
 import java.text.DecimalFormat;
+import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.commons.cli.ParseException;
 
@@ -14,6 +21,12 @@ public class MeasureAudioLength {
 		BooleanOption recursive = new BooleanOption("r", "recursive",
 				"Measure WAV files in each of the <child-dir>/<sub-dir> directories");
 		BooleanOption verbose = new BooleanOption("v", "verbose", "Also print the length of each .wav file");
+		BooleanOption fast = new BooleanOption("f", "fast",
+				"Only read the RIFF header of each .wav file, and measure files and directories in parallel");
+		IntegerOption numThreads = new IntegerOption("t", "threads", Runtime.getRuntime().availableProcessors(),
+				"Number of threads used with --fast");
+		BooleanOption noCache = new BooleanOption("nc", "no-cache", "Do not read or update the "
+				+ AudioMetadataCache.CACHE_FILE_NAME + " metadata cache in the input directory");
 		StringOption subDirName = new StringOption("sub", "sub-dir",
 				"Name of the sub-directory within <child-dirs> for recursive measuring of WAV file lengths", "wav");
 
@@ -24,6 +37,9 @@ public class MeasureAudioLength {
 			options.addOption(recursive);
 			options.addOption(subDirName);
 			options.addOption(verbose);
+			options.addOption(fast);
+			options.addOption(numThreads);
+			options.addOption(noCache);
 		}
 	}
 
@@ -41,21 +57,41 @@ public class MeasureAudioLength {
 		boolean recursive = arguments.recursive.getBoolValue();
 		String subDirName = arguments.subDirName.getStringValue();
 		boolean verboseOutput = arguments.verbose.getBoolValue();
+		AudioMetadataCache metadataCache = null;
+		if (!arguments.noCache.getBoolValue()) {
+			metadataCache = AudioMetadataCache.getInstance(new File(inputDir));
+		}
 
-		if (!recursive) {
-			printAudioLength(inputDir, verboseOutput);
+		if (arguments.fast.getBoolValue()) {
+			List<File> wavDirs = new ArrayList<>();
+			if (!recursive) {
+				wavDirs.add(new File(inputDir));
+			} else {
+				for (File subDir : FileUtils.getSubDirs(new File(inputDir))) {
+					File wavDir = new File(subDir, subDirName);
+					if (wavDir.exists()) {
+						wavDirs.add(wavDir.getAbsoluteFile());
+					}
+				}
+			}
+			printAudioLengthsInParallel(wavDirs, verboseOutput, arguments.numThreads.getIntValue(), metadataCache);
+		} else if (!recursive) {
+			printAudioLength(inputDir, verboseOutput, metadataCache);
 		} else {
 			File[] subDirs = FileUtils.getSubDirs(new File(inputDir));
 			for (File subDir : subDirs) {
 				File wavDir = new File(subDir, subDirName);
 				if (wavDir.exists()) {
-					printAudioLength(wavDir.getAbsolutePath(), verboseOutput);
+					printAudioLength(wavDir.getAbsolutePath(), verboseOutput, metadataCache);
 				}
 			}
 		}
+		if (metadataCache != null) {
+			metadataCache.save();
+		}
 	}
 
-	private static void printAudioLength(String inputDir, boolean verboseOutput) {
+	private static void printAudioLength(String inputDir, boolean verboseOutput, AudioMetadataCache metadataCache) {
 		SystemTime systemTime = new SystemTime(true);
 		HashMap<String, Integer> samplingRates = new HashMap<>();
 		File[] wavFiles = FileUtils.getWavFiles(inputDir);
@@ -65,34 +101,179 @@ public class MeasureAudioLength {
 		for (int i = 0; i < wavFiles.length; i++) {
 			File wavFile = wavFiles[i];
 			String fileCountPrefix = String.format(fileCountFormat, i + 1);
-			double length = getAudioLengthInSecs(wavFile.getAbsolutePath(), samplingRates, verboseOutput, fileCountPrefix);
+			double length = getAudioLengthInSecs(wavFile.getAbsolutePath(), samplingRates, verboseOutput, fileCountPrefix,
+					metadataCache);
 			totalLengthInSecs += length;
 		}
+		printSummary(totalLengthInSecs, samplingRates, wavFiles.length);
+		systemTime.tock(true);
+	}
+
+	private static void printSummary(double totalLengthInSecs, HashMap<String, Integer> samplingRates,
+			int numWavFiles) {
 		System.out.println("Total length = " + SystemTime.toHrsMinsSecs(totalLengthInSecs));
 		for (String samplingRateInfo : samplingRates.keySet()) {
 			int count = samplingRates.get(samplingRateInfo);
-			double percent = 100.0 * count / wavFiles.length;
-			System.out.println(samplingRateInfo + " -> " + count + "/" + wavFiles.length + " ("
+			double percent = 100.0 * count / numWavFiles;
+			System.out.println(samplingRateInfo + " -> " + count + "/" + numWavFiles + " ("
 					+ String.format("%.2f", percent) + "%)");
 		}
+	}
+
+	// Number of files whose headers are read by one task in fast mode
+	private static final int FILES_PER_TASK = 256;
+
+	// Headers of the .wav files in one directory, filled in by parallel tasks
+	private static class DirInventory {
+		File wavDir;
+		File[] wavFiles;
+		WavHeader[] headers; // null where the header could not be parsed
+		String[] errors;
+		List<Future<?>> tasks = new ArrayList<>();
+
+		DirInventory(File wavDir, File[] wavFiles) {
+			this.wavDir = wavDir;
+			this.wavFiles = wavFiles;
+			this.headers = new WavHeader[wavFiles.length];
+			this.errors = new String[wavFiles.length];
+		}
+	}
+
+	/**
+	 * Same report as printAudioLength() for each of the given directories, but
+	 * only the RIFF headers are read (see {@link WavHeader}), and both the
+	 * directory listings and the header reads are spread over a thread pool.
+	 * The reports are still printed in the order of wavDirs. metadataCache may
+	 * be null.
+	 */
+	public static void printAudioLengthsInParallel(List<File> wavDirs, boolean verboseOutput, int numThreads,
+			AudioMetadataCache metadataCache) {
+		SystemTime systemTime = new SystemTime(true);
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, numThreads));
+		try {
+			List<Future<File[]>> listings = new ArrayList<>();
+			for (File wavDir : wavDirs) {
+				listings.add(executor.submit(new Callable<File[]>() {
+					@Override
+					public File[] call() {
+						File[] wavFiles = FileUtils.getWavFiles(wavDir);
+						return wavFiles == null ? new File[0] : wavFiles;
+					}
+				}));
+			}
+			// Queue the header reads of each directory as soon as it has been listed
+			List<DirInventory> inventories = new ArrayList<>();
+			for (int d = 0; d < wavDirs.size(); d++) {
+				DirInventory inventory = new DirInventory(wavDirs.get(d), listings.get(d).get());
+				for (int begin = 0; begin < inventory.wavFiles.length; begin += FILES_PER_TASK) {
+					int from = begin;
+					int to = Math.min(begin + FILES_PER_TASK, inventory.wavFiles.length);
+					inventory.tasks.add(executor.submit(new Runnable() {
+						@Override
+						public void run() {
+							for (int i = from; i < to; i++) {
+								try {
+									File wavFile = inventory.wavFiles[i];
+									inventory.headers[i] = metadataCache != null ? metadataCache.getHeader(wavFile)
+											: WavHeader.read(wavFile);
+								} catch (IOException | WavFileException e) {
+									inventory.errors[i] = e.toString();
+								}
+							}
+						}
+					}));
+				}
+				inventories.add(inventory);
+			}
+
+			double grandTotalInSecs = 0.0;
+			int grandTotalFiles = 0;
+			for (DirInventory inventory : inventories) {
+				for (Future<?> task : inventory.tasks) {
+					task.get();
+				}
+				grandTotalInSecs += printInventory(inventory, verboseOutput);
+				grandTotalFiles += inventory.wavFiles.length;
+			}
+			if (inventories.size() > 1) {
+				System.out.println("\nGrand total length = " + SystemTime.toHrsMinsSecs(grandTotalInSecs) + " ("
+						+ grandTotalFiles + " files in " + inventories.size() + " directories)");
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			e.printStackTrace();
+		} finally {
+			executor.shutdownNow();
+		}
 		systemTime.tock(true);
 	}
 
+	private static double printInventory(DirInventory inventory, boolean verboseOutput) {
+		HashMap<String, Integer> samplingRates = new HashMap<>();
+		int numWavFiles = inventory.wavFiles.length;
+		String fileCountFormat = "%0" + (numWavFiles + "").length() + "d/" + numWavFiles + ": ";
+		double totalLengthInSecs = 0.0;
+		System.out.println("\nWAV Dir = " + inventory.wavDir.getPath());
+		for (int i = 0; i < numWavFiles; i++) {
+			WavHeader header = inventory.headers[i];
+			if (header == null) {
+				System.err.println("Error while parsing " + inventory.wavFiles[i].getAbsolutePath() + ": "
+						+ inventory.errors[i]);
+				continue;
+			}
+			String samplingRateInfo = getSamplingRateInfo(header.getSampleRate(), header.getValidBits());
+			samplingRates.merge(samplingRateInfo, 1, Integer::sum);
+			double lengthInSecs = header.getLengthInSecs();
+			if (verboseOutput) {
+				String lengthStr = "Length(secs)=" + df.format(lengthInSecs);
+				System.out.println(String.format(fileCountFormat, i + 1) + inventory.wavFiles[i].getName() + " "
+						+ samplingRateInfo + ", " + lengthStr);
+			}
+			totalLengthInSecs += lengthInSecs;
+		}
+		printSummary(totalLengthInSecs, samplingRates, numWavFiles);
+		return totalLengthInSecs;
+	}
+
+	static String getSamplingRateInfo(long sampleRate, int bitsPerSample) {
+		return "SampleRate=" + sampleRate + ", BitsPerSample=" + bitsPerSample;
+	}
+
 	public static double getAudioLengthInSecs(String wavFilePath) {
 		return getAudioLengthInSecs(wavFilePath, null, false, "");
 	}
 
+	public static double getAudioLengthInSecs(String wavFilePath, AudioMetadataCache metadataCache) {
+		return getAudioLengthInSecs(wavFilePath, null, false, "", metadataCache);
+	}
+
 	static DecimalFormat df = new DecimalFormat("00.0");
 
 	public static double getAudioLengthInSecs(String wavFilePath, HashMap<String, Integer> samplingRates,
 			boolean verboseOutput, String prefix) {
+		return getAudioLengthInSecs(wavFilePath, samplingRates, verboseOutput, prefix, null);
+	}
+
+	public static double getAudioLengthInSecs(String wavFilePath, HashMap<String, Integer> samplingRates,
+			boolean verboseOutput, String prefix, AudioMetadataCache metadataCache) {
 		try {
-			WavFile readWavFile = WavFile.openWavFile(new File(wavFilePath));
-			long sampleRate = readWavFile.getSampleRate();
-			long numFrames = readWavFile.getNumFrames();
-			int bitsPerSample = readWavFile.getValidBits();
-			readWavFile.close();
-			String samplingRateInfo = "SampleRate=" + sampleRate + ", BitsPerSample=" + bitsPerSample;
+			long sampleRate;
+			long numFrames;
+			int bitsPerSample;
+			if (metadataCache != null) {
+				WavHeader header = metadataCache.getHeader(new File(wavFilePath));
+				sampleRate = header.getSampleRate();
+				numFrames = header.getNumFrames();
+				bitsPerSample = header.getValidBits();
+			} else {
+				WavFile readWavFile = WavFile.openWavFile(new File(wavFilePath));
+				sampleRate = readWavFile.getSampleRate();
+				numFrames = readWavFile.getNumFrames();
+				bitsPerSample = readWavFile.getValidBits();
+				readWavFile.close();
+			}
+			String samplingRateInfo = getSamplingRateInfo(sampleRate, bitsPerSample);
 			if (samplingRates != null) {
 				int count = 1;
 				if (samplingRates.containsKey(samplingRateInfo)) {
@@ -0,0 +1,431 @@
+package ai.bhashini.tts.utils;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+/**
+ * Replaces the matches of a list of patterns in a single left-to-right pass
+ * over the text.
+ *
+ * Patterns without any regex metacharacters are matched together with one
+ * Aho-Corasick automaton. The remaining (regex) patterns are combined into one
+ * alternation, which finds the next position where any of them matches; only
+ * there are the individual patterns tried. At every position the longest match
+ * wins, ties going to the pattern that comes first in the list, and scanning
+ * continues after the match, so replaced text is never matched again. The cost
+ * of a pass thus depends on the length of the text and the number of matches,
+ * not on the number of patterns.
+ *
+ * Replacement strings use the syntax of {@link Matcher#replaceAll(String)}:
+ * $n refers to group n of the matching pattern and \ escapes the next
+ * character. Empty matches are ignored. Instances are thread-safe.
+ */
+public class MultiPatternReplacer {
+	private static final String REGEX_METACHARACTERS = "\\^$.|?*+()[]{}";
+	// Flags that do not change how a pattern without metacharacters matches
+	private static final int LITERAL_SAFE_FLAGS = Pattern.LITERAL | Pattern.UNICODE_CHARACTER_CLASS
+			| Pattern.UNICODE_CASE | Pattern.MULTILINE | Pattern.DOTALL | Pattern.UNIX_LINES;
+
+	// Replacement split into literal text and group references (-1 => text)
+	private static class Replacement {
+		String[] texts;
+		int[] groups;
+	}
+
+	protected Pattern[] patterns;
+	protected Replacement[] replacements;
+	protected int[] regexRules; // Indices of the patterns that are not plain strings
+	protected int[] standaloneRules; // Regex patterns that cannot be part of the alternation
+	protected Pattern combinedPattern;
+
+	// Aho-Corasick automaton over the plain string patterns; node 0 is the root
+	protected char[][] labels; // Sorted labels of the outgoing edges
+	protected int[][] children;
+	protected int[] fail;
+	protected int[] depth;
+	protected int[] rule; // Pattern that ends at the node, or -1
+	protected int[] outputLink; // Nearest node on the failure chain with a pattern, or -1
+
+	// Per-thread matchers and buffers
+	private class State {
+		Matcher combinedMatcher;
+		Matcher[] matchers = new Matcher[patterns.length];
+		String[] matcherInputs = new String[patterns.length];
+		int[] literalLengths = new int[256];
+		int[] literalRules = new int[256];
+	}
+
+	private final ThreadLocal<State> states = new ThreadLocal<State>() {
+		@Override
+		protected State initialValue() {
+			State state = new State();
+			if (combinedPattern != null) {
+				state.combinedMatcher = combinedPattern.matcher("");
+			}
+			for (int r : regexRules) {
+				// Let \b, lookbehinds etc. see the text before the start position
+				state.matchers[r] = patterns[r].matcher("").useTransparentBounds(true).useAnchoringBounds(false);
+			}
+			return state;
+		}
+	};
+
+	public MultiPatternReplacer(List<Pattern> patterns, List<String> replacements) {
+		if (patterns.size() != replacements.size()) {
+			throw new IllegalArgumentException("Number of patterns and replacements differ");
+		}
+		this.patterns = patterns.toArray(new Pattern[0]);
+		this.replacements = new Replacement[this.patterns.length];
+		List<String> literals = new ArrayList<>();
+		List<Integer> literalRules = new ArrayList<>();
+		List<Integer> regexRuleList = new ArrayList<>();
+		List<Integer> standaloneRuleList = new ArrayList<>();
+		StringBuilder combinedRegex = new StringBuilder();
+		int combinedFlags = 0;
+		for (int r = 0; r < this.patterns.length; r++) {
+			Pattern pattern = this.patterns[r];
+			String literal = getLiteral(pattern);
+			if (literal != null) {
+				literals.add(literal);
+				literalRules.add(r);
+				this.replacements[r] = compileReplacement(replacements.get(r), 0);
+				continue;
+			}
+			regexRuleList.add(r);
+			this.replacements[r] = compileReplacement(replacements.get(r), pattern.matcher("").groupCount());
+			// Back references would refer to the wrong groups within the alternation
+			if (pattern.pattern().matches("(?s).*\\\\([1-9]|k<).*")) {
+				standaloneRuleList.add(r);
+				continue;
+			}
+			if (combinedRegex.length() > 0) {
+				combinedRegex.append('|');
+			}
+			combinedRegex.append("(?").append(getInlineFlags(pattern.flags())).append(':').append(pattern.pattern())
+					.append(')');
+			combinedFlags |= pattern.flags() & Pattern.CANON_EQ;
+		}
+		this.regexRules = toIntArray(regexRuleList);
+		this.standaloneRules = toIntArray(standaloneRuleList);
+		if (combinedRegex.length() > 0) {
+			combinedPattern = Pattern.compile(combinedRegex.toString(), combinedFlags);
+		}
+		buildAutomaton(literals, literalRules);
+	}
+
+	private static int[] toIntArray(List<Integer> list) {
+		int[] array = new int[list.size()];
+		for (int i = 0; i < array.length; i++) {
+			array[i] = list.get(i);
+		}
+		return array;
+	}
+
+	// Returns the string that the pattern matches if it is a plain string, else null
+	private static String getLiteral(Pattern pattern) {
+		String regex = pattern.pattern();
+		if (regex.isEmpty() || (pattern.flags() & ~LITERAL_SAFE_FLAGS) != 0) {
+			return null;
+		}
+		if ((pattern.flags() & Pattern.LITERAL) != 0) {
+			return regex;
+		}
+		for (int i = 0; i < regex.length(); i++) {
+			if (REGEX_METACHARACTERS.indexOf(regex.charAt(i)) != -1) {
+				return null;
+			}
+		}
+		return regex;
+	}
+
+	private static String getInlineFlags(int flags) {
+		StringBuilder sb = new StringBuilder();
+		if ((flags & Pattern.CASE_INSENSITIVE) != 0) {
+			sb.append('i');
+		}
+		if ((flags & Pattern.UNIX_LINES) != 0) {
+			sb.append('d');
+		}
+		if ((flags & Pattern.MULTILINE) != 0) {
+			sb.append('m');
+		}
+		if ((flags & Pattern.DOTALL) != 0) {
+			sb.append('s');
+		}
+		if ((flags & Pattern.UNICODE_CASE) != 0) {
+			sb.append('u');
+		}
+		if ((flags & Pattern.COMMENTS) != 0) {
+			sb.append('x');
+		}
+		if ((flags & Pattern.UNICODE_CHARACTER_CLASS) != 0) {
+			sb.append('U');
+		}
+		return sb.toString();
+	}
+
+	// Parses the replacement the same way as Matcher.appendReplacement does
+	private static Replacement compileReplacement(String replacement, int groupCount) {
+		List<String> texts = new ArrayList<>();
+		List<Integer> groups = new ArrayList<>();
+		StringBuilder text = new StringBuilder();
+		int i = 0;
+		while (i < replacement.length()) {
+			char c = replacement.charAt(i++);
+			if (c == '\\') {
+				if (i == replacement.length()) {
+					throw new IllegalArgumentException("character to be escaped is missing");
+				}
+				text.append(replacement.charAt(i++));
+			} else if (c == '$') {
+				if (i == replacement.length()) {
+					throw new IllegalArgumentException("Illegal group reference: group index is missing");
+				}
+				if (replacement.charAt(i) == '{') {
+					throw new IllegalArgumentException("Named group references are not supported: " + replacement);
+				}
+				int group = replacement.charAt(i++) - '0';
+				if (group < 0 || group > 9) {
+					throw new IllegalArgumentException("Illegal group reference");
+				}
+				// Take as many digits as still form a valid group number
+				while (i < replacement.length()) {
+					int digit = replacement.charAt(i) - '0';
+					if (digit < 0 || digit > 9 || group * 10 + digit > groupCount) {
+						break;
+					}
+					group = group * 10 + digit;
+					i++;
+				}
+				if (group > groupCount) {
+					throw new IndexOutOfBoundsException("No group " + group);
+				}
+				if (text.length() > 0) {
+					texts.add(text.toString());
+					groups.add(-1);
+					text.setLength(0);
+				}
+				texts.add(null);
+				groups.add(group);
+			} else {
+				text.append(c);
+			}
+		}
+		if (text.length() > 0) {
+			texts.add(text.toString());
+			groups.add(-1);
+		}
+		Replacement compiled = new Replacement();
+		compiled.texts = texts.toArray(new String[0]);
+		compiled.groups = toIntArray(groups);
+		return compiled;
+	}
+
+	private void buildAutomaton(List<String> literals, List<Integer> literalRules) {
+		List<TreeMap<Character, Integer>> edges = new ArrayList<>();
+		List<Integer> depths = new ArrayList<>();
+		List<Integer> rules = new ArrayList<>();
+		edges.add(new TreeMap<>());
+		depths.add(0);
+		rules.add(-1);
+		for (int k = 0; k < literals.size(); k++) {
+			String literal = literals.get(k);
+			int node = 0;
+			for (int i = 0; i < literal.length(); i++) {
+				Integer next = edges.get(node).get(literal.charAt(i));
+				if (next == null) {
+					next = edges.size();
+					edges.get(node).put(literal.charAt(i), next);
+					edges.add(new TreeMap<>());
+					depths.add(i + 1);
+					rules.add(-1);
+				}
+				node = next;
+			}
+			if (rules.get(node) == -1) {
+				rules.set(node, literalRules.get(k));
+			}
+		}
+
+		int numNodes = edges.size();
+		labels = new char[numNodes][];
+		children = new int[numNodes][];
+		depth = new int[numNodes];
+		rule = new int[numNodes];
+		for (int node = 0; node < numNodes; node++) {
+			TreeMap<Character, Integer> nodeEdges = edges.get(node);
+			labels[node] = new char[nodeEdges.size()];
+			children[node] = new int[nodeEdges.size()];
+			int e = 0;
+			for (Character label : nodeEdges.keySet()) {
+				labels[node][e] = label;
+				children[node][e++] = nodeEdges.get(label);
+			}
+			depth[node] = depths.get(node);
+			rule[node] = rules.get(node);
+		}
+
+		// Failure and output links in breadth-first order
+		fail = new int[numNodes];
+		outputLink = new int[numNodes];
+		outputLink[0] = -1;
+		ArrayDeque<Integer> queue = new ArrayDeque<>();
+		for (int child : children[0]) {
+			fail[child] = 0;
+			outputLink[child] = -1;
+			queue.add(child);
+		}
+		while (!queue.isEmpty()) {
+			int node = queue.poll();
+			for (int e = 0; e < labels[node].length; e++) {
+				char label = labels[node][e];
+				int child = children[node][e];
+				int f = fail[node];
+				int next;
+				while ((next = getChild(f, label)) < 0 && f != 0) {
+					f = fail[f];
+				}
+				fail[child] = next < 0 ? 0 : next;
+				outputLink[child] = rule[fail[child]] >= 0 ? fail[child] : outputLink[fail[child]];
+				queue.add(child);
+			}
+		}
+	}
+
+	private int getChild(int node, char label) {
+		int e = Arrays.binarySearch(labels[node], label);
+		return e < 0 ? -1 : children[node][e];
+	}
+
+	/**
+	 * Returns the text with all the matches replaced. The text itself is
+	 * returned if nothing matches.
+	 */
+	public String replaceAll(String text) {
+		int n = text.length();
+		if (n == 0 || patterns.length == 0) {
+			return text;
+		}
+		State state = states.get();
+		findLiteralMatches(state, text);
+
+		StringBuilder sb = null;
+		int last = 0;
+		int regexStart = regexRules.length == 0 ? Integer.MAX_VALUE : -1;
+		int i = 0;
+		while (i < n) {
+			if (regexStart < i) {
+				regexStart = findNextRegexMatch(state, text, i);
+			}
+			int bestLength = state.literalLengths[i];
+			int bestRule = state.literalRules[i];
+			if (regexStart == i) {
+				for (int r : regexRules) {
+					Matcher matcher = getMatcher(state, r, text);
+					matcher.region(i, n);
+					if (matcher.lookingAt()) {
+						int length = matcher.end() - i;
+						if (length > bestLength || (length > 0 && length == bestLength && r < bestRule)) {
+							bestLength = length;
+							bestRule = r;
+						}
+					}
+				}
+			}
+			if (bestLength == 0) {
+				i++;
+				continue;
+			}
+			if (sb == null) {
+				sb = new StringBuilder(n + 16);
+			}
+			sb.append(text, last, i);
+			appendReplacement(sb, text, bestRule, i, i + bestLength, state.matchers[bestRule]);
+			i += bestLength;
+			last = i;
+		}
+		if (sb == null) {
+			return text;
+		}
+		sb.append(text, last, n);
+		return sb.toString();
+	}
+
+	// Stores the longest plain string match starting at every position
+	private void findLiteralMatches(State state, String text) {
+		int n = text.length();
+		if (state.literalLengths.length < n) {
+			state.literalLengths = new int[Math.max(n, 2 * state.literalLengths.length)];
+			state.literalRules = new int[state.literalLengths.length];
+		}
+		int[] lengths = state.literalLengths;
+		int[] rules = state.literalRules;
+		Arrays.fill(lengths, 0, n, 0);
+		if (labels.length == 1) {
+			return;
+		}
+		int node = 0;
+		for (int j = 0; j < n; j++) {
+			char c = text.charAt(j);
+			int next;
+			while ((next = getChild(node, c)) < 0 && node != 0) {
+				node = fail[node];
+			}
+			node = next < 0 ? 0 : next;
+			for (int t = rule[node] >= 0 ? node : outputLink[node]; t >= 0; t = outputLink[t]) {
+				int start = j - depth[t] + 1;
+				if (depth[t] > lengths[start]) {
+					lengths[start] = depth[t];
+					rules[start] = rule[t];
+				}
+			}
+		}
+	}
+
+	// Returns the first position >= from where a regex pattern matches, or
+	// Integer.MAX_VALUE if there is none
+	private int findNextRegexMatch(State state, String text, int from) {
+		int next = Integer.MAX_VALUE;
+		if (state.combinedMatcher != null) {
+			state.combinedMatcher.reset(text);
+			if (state.combinedMatcher.find(from)) {
+				next = state.combinedMatcher.start();
+			}
+		}
+		for (int r : standaloneRules) {
+			Matcher matcher = getMatcher(state, r, text);
+			if (matcher.find(from)) {
+				next = Math.min(next, matcher.start());
+			}
+		}
+		return next;
+	}
+
+	private Matcher getMatcher(State state, int r, String text) {
+		Matcher matcher = state.matchers[r];
+		if (state.matcherInputs[r] != text) {
+			matcher.reset(text);
+			state.matcherInputs[r] = text;
+		}
+		return matcher;
+	}
+
+	private void appendReplacement(StringBuilder sb, String text, int r, int start, int end, Matcher matcher) {
+		Replacement replacement = replacements[r];
+		for (int k = 0; k < replacement.groups.length; k++) {
+			int group = replacement.groups[k];
+			if (group < 0) {
+				sb.append(replacement.texts[k]);
+			} else if (matcher == null || group == 0) {
+				sb.append(text, start, end);
+			} else if (matcher.start(group) >= 0) {
+				sb.append(text, matcher.start(group), matcher.end(group));
+			}
+		}
+	}
+}
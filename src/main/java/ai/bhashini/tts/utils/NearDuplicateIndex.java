@@ -0,0 +1,215 @@
+package ai.bhashini.tts.utils;
+
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * Finds, for a query sentence, the first indexed sentence whose word error rate
+ * (WER) with respect to the query is within a threshold, without comparing the
+ * query with every indexed sentence.
+ *
+ * Sentences are sequences of word ids (see {@link LevenshteinDistance.TokenIds}).
+ * Each edit changes at most one word, so an edit distance of at most k implies
+ * that the two sentences share at least max(m, n) - k words (counted as
+ * multisets) and that their lengths differ by at most k. Candidates are
+ * generated with an inverted index over a prefix of each sentence's words,
+ * rarest words first ("prefix filtering"): two sentences that must share t
+ * words always share one within their first (length - t + 1) words. This
+ * filter never discards a true match, so the results are exactly those of a
+ * linear scan; only the candidates are verified with the exact (banded) edit
+ * distance. Queries may be run from multiple threads.
+ */
+public class NearDuplicateIndex {
+	protected List<int[]> lines;
+	protected double werThreshold;
+	protected boolean useIndex;
+	protected HashMap<Long, Integer> ranks = new HashMap<>(); // Word occurrence -> position in rarest-first order
+	protected int[][] postings; // Rank -> indices of lines with that rank in their prefix
+	protected int maxLineLength;
+
+	// Per-thread candidate bookkeeping
+	private static class Scratch {
+		int[] stamps;
+		int stamp;
+		int[] candidates = new int[64];
+	}
+
+	private final ThreadLocal<Scratch> scratch = new ThreadLocal<Scratch>() {
+		@Override
+		protected Scratch initialValue() {
+			Scratch s = new Scratch();
+			s.stamps = new int[lines.size()];
+			return s;
+		}
+	};
+
+	public NearDuplicateIndex(List<int[]> lines, double werThreshold) {
+		this.lines = lines;
+		this.werThreshold = werThreshold;
+		// With a threshold of 1 or more, sentences without any common word can match
+		this.useIndex = werThreshold >= 0 && werThreshold < 1;
+		if (useIndex) {
+			buildIndex();
+		}
+	}
+
+	// A word that occurs for the i-th time in a sentence is a distinct element
+	// of the sentence's multiset
+	private static long[] getOccurrenceKeys(int[] wordIds) {
+		long[] keys = new long[wordIds.length];
+		HashMap<Integer, Integer> counts = new HashMap<>();
+		for (int i = 0; i < wordIds.length; i++) {
+			int occurrence = counts.merge(wordIds[i], 1, Integer::sum);
+			keys[i] = ((long) occurrence << 32) | (wordIds[i] & 0xFFFFFFFFL);
+		}
+		return keys;
+	}
+
+	private void buildIndex() {
+		int numLines = lines.size();
+		long[][] keys = new long[numLines][];
+		HashMap<Long, int[]> frequencies = new HashMap<>();
+		for (int i = 0; i < numLines; i++) {
+			keys[i] = getOccurrenceKeys(lines.get(i));
+			maxLineLength = Math.max(maxLineLength, keys[i].length);
+			for (long key : keys[i]) {
+				int[] frequency = frequencies.get(key);
+				if (frequency == null) {
+					frequencies.put(key, new int[] { 1 });
+				} else {
+					frequency[0]++;
+				}
+			}
+		}
+
+		// Rarest first; ties broken by key so that the order is deterministic
+		Long[] sortedKeys = frequencies.keySet().toArray(new Long[0]);
+		Arrays.sort(sortedKeys, (a, b) -> {
+			int c = Integer.compare(frequencies.get(a)[0], frequencies.get(b)[0]);
+			return c != 0 ? c : Long.compare(a, b);
+		});
+		for (int r = 0; r < sortedKeys.length; r++) {
+			ranks.put(sortedKeys[r], r);
+		}
+
+		int[] prefixLengths = getIndexPrefixLengths(maxLineLength);
+		int[][] lineRanks = new int[numLines][];
+		int[] postingSizes = new int[sortedKeys.length];
+		for (int i = 0; i < numLines; i++) {
+			int[] r = new int[keys[i].length];
+			for (int j = 0; j < r.length; j++) {
+				r[j] = ranks.get(keys[i][j]);
+			}
+			Arrays.sort(r);
+			lineRanks[i] = r;
+			for (int j = 0; j < prefixLengths[r.length]; j++) {
+				postingSizes[r[j]]++;
+			}
+		}
+		postings = new int[sortedKeys.length][];
+		for (int r = 0; r < postings.length; r++) {
+			postings[r] = new int[postingSizes[r]];
+			postingSizes[r] = 0;
+		}
+		// Lines are added in order, so every posting list is sorted
+		for (int i = 0; i < numLines; i++) {
+			int[] r = lineRanks[i];
+			for (int j = 0; j < prefixLengths[r.length]; j++) {
+				postings[r[j]][postingSizes[r[j]]++] = i;
+			}
+		}
+	}
+
+	// Maximum edit distance for a query of the given length
+	private int getMaxEditDistance(int queryLength) {
+		return LevenshteinDistance.getMaxEditDistance(queryLength, werThreshold);
+	}
+
+	/**
+	 * For every indexed line length m, the prefix length that guarantees a
+	 * common word with any query that could match: m - t + 1, with t the
+	 * smallest overlap max(m, n) - k(n) over query lengths n with |m - n| <= k(n).
+	 */
+	private int[] getIndexPrefixLengths(int maxLength) {
+		int[] prefixLengths = new int[maxLength + 1];
+		for (int m = 1; m <= maxLength; m++) {
+			int minOverlap = Integer.MAX_VALUE;
+			int maxQueryLength = (int) Math.ceil(m / (1 - werThreshold)) + 1;
+			for (int n = 1; n <= maxQueryLength; n++) {
+				int k = getMaxEditDistance(n);
+				if (k >= 0 && Math.abs(m - n) <= k) {
+					minOverlap = Math.min(minOverlap, Math.max(m, n) - k);
+				}
+			}
+			prefixLengths[m] = minOverlap == Integer.MAX_VALUE ? 0 : Math.min(m, m - minOverlap + 1);
+		}
+		return prefixLengths;
+	}
+
+	public int size() {
+		return lines.size();
+	}
+
+	/**
+	 * Returns the smallest index i such that the WER of line i against the query
+	 * (as ground truth) is at most the threshold, or -1 if there is none.
+	 */
+	public int findFirstMatch(int[] query) {
+		int maxDistance = getMaxEditDistance(query.length);
+		if (maxDistance < 0) {
+			return -1;
+		}
+		if (!useIndex) {
+			for (int i = 0; i < lines.size(); i++) {
+				if (LevenshteinDistance.getEditDistance(lines.get(i), query, maxDistance) <= maxDistance) {
+					return i;
+				}
+			}
+			return -1;
+		}
+
+		// Query words in the same rarest-first order; words that no indexed line
+		// contains sort first (and have no postings)
+		long[] keys = getOccurrenceKeys(query);
+		int[] queryRanks = new int[keys.length];
+		for (int j = 0; j < keys.length; j++) {
+			Integer rank = ranks.get(keys[j]);
+			queryRanks[j] = rank == null ? -1 : rank;
+		}
+		Arrays.sort(queryRanks);
+		// Indexed lines match only if they share >= n - k words with the query
+		int prefixLength = Math.min(query.length, maxDistance + 1);
+
+		Scratch s = scratch.get();
+		if (++s.stamp == 0) {
+			Arrays.fill(s.stamps, 0);
+			s.stamp = 1;
+		}
+		int numCandidates = 0;
+		for (int j = 0; j < prefixLength; j++) {
+			if (queryRanks[j] < 0) {
+				continue;
+			}
+			for (int i : postings[queryRanks[j]]) {
+				if (s.stamps[i] != s.stamp) {
+					s.stamps[i] = s.stamp;
+					if (Math.abs(lines.get(i).length - query.length) <= maxDistance) {
+						if (numCandidates == s.candidates.length) {
+							s.candidates = Arrays.copyOf(s.candidates, numCandidates * 2);
+						}
+						s.candidates[numCandidates++] = i;
+					}
+				}
+			}
+		}
+		Arrays.sort(s.candidates, 0, numCandidates);
+		for (int c = 0; c < numCandidates; c++) {
+			int i = s.candidates[c];
+			if (LevenshteinDistance.getEditDistance(lines.get(i), query, maxDistance) <= maxDistance) {
+				return i;
+			}
+		}
+		return -1;
+	}
+}
@@ -2,6 +2,7 @@ package ai.bhashini.tts.utils;
 
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
+import java.io.File;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
@@ -40,6 +41,19 @@ public class NumberExpansion {
 	protected Pattern commaPattern2;
 	protected Pattern commaPattern3;
 	protected Pattern commaPattern4;
+	protected Pattern languageNumbersInCurlyBracketsPattern;
+	protected Pattern numbersInCurlyBracketsPattern;
+	protected Pattern expansionBeforeNumbersPattern;
+
+	// Caches of the expansions of numbers and number strings, shared by all the
+	// threads using this instance. Small numbers (which the expansions of larger
+	// numbers are made of) are kept in an array indexed by the number.
+	public static final int NUM_SMALL_NUMBERS = 10000;
+	public static final int CACHE_CAPACITY = 1 << 12;
+	protected String[] smallNumberExpansions = new String[NUM_SMALL_NUMBERS];
+	protected LongStringCache numberExpansionCache = new LongStringCache(CACHE_CAPACITY);
+	protected LongStringCache numberStrExpansionCache = new LongStringCache(CACHE_CAPACITY);
+	protected boolean prewarmed;
 
 	// Singleton class => private constructor
 	private NumberExpansion(Language language) {
@@ -49,6 +63,7 @@ public class NumberExpansion {
 		this.commaPattern2 = Pattern.compile(COMMA_REGEX2);
 		this.commaPattern3 = Pattern.compile(COMMA_REGEX3);
 		this.commaPattern4 = Pattern.compile(COMMA_REGEX4);
+		compileCurlyBracketsPatterns();
 		loadNumberExpansionProperties(language.name() + "_NumberExpansion.properties");
 		anusvara = Character.valueOf((char) (language.script.unicodeBlockStart + 0x02)).toString();
 	}
@@ -60,6 +75,28 @@ public class NumberExpansion {
 		return uniqueInstancesMap.computeIfAbsent(language, NumberExpansion::new);
 	}
 
+	/**
+	 * Same as getInstance(language), but with prewarm = true, the expansions of
+	 * the numbers 0 to 9999 are computed before the instance is returned.
+	 */
+	public static NumberExpansion getInstance(Language language, boolean prewarm) {
+		NumberExpansion numberExpansion = getInstance(language);
+		if (prewarm) {
+			numberExpansion.prewarmCache();
+		}
+		return numberExpansion;
+	}
+
+	public synchronized void prewarmCache() {
+		if (prewarmed) {
+			return;
+		}
+		for (int n = 0; n < NUM_SMALL_NUMBERS; n++) {
+			expandNumber(n);
+		}
+		prewarmed = true;
+	}
+
 	protected void loadNumberExpansionProperties(String numberExpansionPropertiesFile) {
 		// https://stackoverflow.com/a/30755227 and https://stackoverflow.com/a/17852323
 		try {
@@ -92,6 +129,25 @@ public class NumberExpansion {
 	}
 
 	public String expandNumber(long number) {
+		// Expansions are immutable strings, so a thread either sees a complete one or
+		// null, in which case it computes the expansion itself
+		if (number >= 0 && number < NUM_SMALL_NUMBERS) {
+			String output = smallNumberExpansions[(int) number];
+			if (output == null) {
+				output = computeNumberExpansion(number);
+				smallNumberExpansions[(int) number] = output;
+			}
+			return output;
+		}
+		String output = numberExpansionCache.get(number);
+		if (output == null) {
+			output = computeNumberExpansion(number);
+			numberExpansionCache.put(number, output);
+		}
+		return output;
+	}
+
+	protected String computeNumberExpansion(long number) {
 		if (number == 0) {
 			return "";
 		}
@@ -261,7 +317,46 @@ public class NumberExpansion {
 		return output.toString();
 	}
 
+	// Packs a number string of up to 16 characters (digits, '-', ',' and '.') into a
+	// long, 4 bits per character. Returns 0 for strings that can't be packed.
+	protected static long getNumberStrKey(String numberStr) {
+		if (numberStr.length() > 16) {
+			return 0;
+		}
+		long key = 0;
+		for (int i = 0; i < numberStr.length(); i++) {
+			char c = numberStr.charAt(i);
+			int code;
+			if (c >= '0' && c <= '9') {
+				code = c - '0' + 1;
+			} else if (c == ',') {
+				code = 11;
+			} else if (c == '.') {
+				code = 12;
+			} else if (c == '-') {
+				code = 13;
+			} else {
+				return 0;
+			}
+			key = (key << 4) | code;
+		}
+		return key;
+	}
+
 	protected String expandByHandlingDashes(String numberStr) {
+		long key = getNumberStrKey(numberStr);
+		if (key == 0) {
+			return computeExpansionByHandlingDashes(numberStr);
+		}
+		String output = numberStrExpansionCache.get(key);
+		if (output == null) {
+			output = computeExpansionByHandlingDashes(numberStr);
+			numberStrExpansionCache.put(key, output);
+		}
+		return output;
+	}
+
+	protected String computeExpansionByHandlingDashes(String numberStr) {
 		StringBuffer output = new StringBuffer();
 		if (numberStr.charAt(0) == '-') {
 			output.append(numberExpansionProperties.getProperty("-") + SPACE);
@@ -271,7 +366,7 @@ public class NumberExpansion {
 		for (String part: parts) {
 			output.append(expandByHandlingDots(part) + SPACE);
 		}
-		return output.toString().trim().replaceAll("\\s+", " ");
+		return TextPatterns.collapseWhitespaces(output.toString().trim());
 	}
 
 	protected String expandByHandlingDots(String numberStr) {
@@ -362,7 +457,7 @@ public class NumberExpansion {
 
 	protected boolean isAnusvaraMistypedAsZero(String inputSoFar, String numberStrOrig) {
 		if (inputSoFar.length() > 0) {
-			String[] words = inputSoFar.split("\\s+");
+			String[] words = TextPatterns.WHITESPACES.split(inputSoFar);
 			String wordBeforeZero = replaceLanguageDigitsWithEnglishDigits(words[words.length - 1]);
 			boolean wordBeforeHasDigits = numbersPattern.matcher(wordBeforeZero).find();
 			return !wordBeforeHasDigits;
@@ -371,7 +466,7 @@ public class NumberExpansion {
 	}
 
 	protected String handleSandhiWithNextWord(String expandedStr, String restOfInput) {
-		String nextWord = restOfInput.trim().split("\\s")[0];
+		String nextWord = TextPatterns.WHITESPACE.split(restOfInput.trim())[0];
 		for (int i = 1;; i++) {
 			String suffix = numberExpansionProperties.getProperty("s" + i);
 			String prefix = numberExpansionProperties.getProperty("p" + i);
@@ -416,31 +511,46 @@ public class NumberExpansion {
 		return vowelSign.offset + language.script.unicodeBlockStart;
 	}
 
-	public String removeNumbersAndCurlyBrackets(String text) {
-		char langZero = (char) language.script.digitZero;
-		char langNine = (char) language.script.digitNine;
-		text = text.replaceAll("\\{[" + langZero + "-" + langNine + ",.\\-]+\\}", "");
-		text = text.replaceAll("\\{[\\d,.\\-]+\\}", "");
-		text = text.replaceAll("\\{", "");
-		text = text.replaceAll("\\}", "");
-		return text;
-	}
-
-	public String putNumbersBeforeExpansionInCurlyBrackets(String text) {
+	// The patterns depend only on the language, so they are compiled once per instance
+	protected void compileCurlyBracketsPatterns() {
 		char langZero = (char) language.script.digitZero;
 		char langNine = (char) language.script.digitNine;
 		char startLetter = (char) (language.script.unicodeBlockStart);
 		char endLetter = (char) (language.script.unicodeBlockStart + 0x65);
+		languageNumbersInCurlyBracketsPattern = Pattern.compile("\\{[" + langZero + "-" + langNine + ",.\\-]+\\}");
+		numbersInCurlyBracketsPattern = Pattern.compile("\\{[\\d,.\\-]+\\}");
 		String pattern1 = "[" + startLetter + "-" + endLetter + " -]+";
 		String pattern2 = "[" + langZero + "-" + langNine + "0-9,.-]+";
-		text = text.replaceAll("\\{(" + pattern1 + ")\\}\\s*\\{(" + pattern2 + ")\\}", "{$2}{$1}");
+		expansionBeforeNumbersPattern = Pattern.compile("\\{(" + pattern1 + ")\\}\\s*\\{(" + pattern2 + ")\\}");
+	}
+
+	public String removeNumbersAndCurlyBrackets(String text) {
+		text = languageNumbersInCurlyBracketsPattern.matcher(text).replaceAll("");
+		text = numbersInCurlyBracketsPattern.matcher(text).replaceAll("");
+		text = text.replace("{", "");
+		text = text.replace("}", "");
 		return text;
 	}
 
+	public String putNumbersBeforeExpansionInCurlyBrackets(String text) {
+		return expansionBeforeNumbersPattern.matcher(text).replaceAll("{$2}{$1}");
+	}
+
 	public void expandNumbersInFile(String inputFilePath, String outputFilePath, boolean retainNumbersForValidation,
 			boolean removeNumbersAndCurlyBrackets) {
-		try (BufferedReader br = new BufferedReader(new FileReader(inputFilePath));
-				BufferedWriter bw = new BufferedWriter(new FileWriter(outputFilePath))) {
+		try {
+			expandNumbersInFile(new File(inputFilePath), new File(outputFilePath), retainNumbersForValidation,
+					removeNumbersAndCurlyBrackets);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	// Same as above, but throws the exception if the input can't be read or the output written
+	public void expandNumbersInFile(File inputFile, File outputFile, boolean retainNumbersForValidation,
+			boolean removeNumbersAndCurlyBrackets) throws IOException {
+		try (BufferedReader br = new BufferedReader(new FileReader(inputFile));
+				BufferedWriter bw = new BufferedWriter(new FileWriter(outputFile))) {
 			String line;
 			while ((line = br.readLine()) != null) {
 				String newContent;
@@ -451,8 +561,6 @@ public class NumberExpansion {
 				}
 				bw.write(newContent + "\n");
 			}
-		} catch (IOException e) {
-			e.printStackTrace();
 		}
 	}
 
@@ -470,6 +578,8 @@ public class NumberExpansion {
 				"Prints number expansion from this number");
 		IntegerOption printEndNumber = new IntegerOption("to", "show-number-expansion-to", 0,
 				"Prints number expansion upto this number");
+		BooleanOption prewarm = new BooleanOption("w", "prewarm",
+				"Compute the expansions of the numbers 0 to 9999 before processing the input.");
 
 		public Arguments() {
 			super();
@@ -481,6 +591,7 @@ public class NumberExpansion {
 			options.addOption(removeNumbersAndCurlyBrackets);
 			options.addOption(printStartNumber);
 			options.addOption(printEndNumber);
+			options.addOption(prewarm);
 		}
 	}
 
@@ -501,6 +612,7 @@ public class NumberExpansion {
 		boolean removeNumbersAndCurlyBrackets = arguments.removeNumbersAndCurlyBrackets.getBoolValue();
 		int printStartNumber = arguments.printStartNumber.getIntValue();
 		int printEndNumber = arguments.printEndNumber.getIntValue();
+		boolean prewarm = arguments.prewarm.getBoolValue();
 
 		Language language;
 		try {
@@ -513,7 +625,7 @@ public class NumberExpansion {
 			arguments.printHelp(NumberExpansion.class.getCanonicalName());
 			return;
 		}
-		NumberExpansion numberExpansion = NumberExpansion.getInstance(language);
+		NumberExpansion numberExpansion = NumberExpansion.getInstance(language, prewarm);
 		if (printEndNumber > printStartNumber) {
 			for (int n = printStartNumber; n <= printEndNumber; n++) {
 				System.out.println(n + ": " + numberExpansion.expandNumber(n));
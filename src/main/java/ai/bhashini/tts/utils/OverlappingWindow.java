@@ -47,12 +47,9 @@ public class OverlappingWindow {
     }
 
     public double computeMeanSquare() {
-        double sum = 0.0;
-        for (int i = winBegin; i < winEnd; i++) {
-            if (i >= 0 && i < data.length) {
-                sum += Math.pow(data[i], 2);
-            }
-        }
+        int from = Math.max(0, winBegin);
+        int to = Math.min(data.length, winEnd);
+        double sum = from < to ? AudioKernels.get().sumOfSquares(data, from, to) : 0.0;
         meanSquare = sum / windowLength;
         return meanSquare;
     }
@@ -94,47 +91,96 @@ public class OverlappingWindow {
         return 10 * Math.log10(Math.max(MIN_POWER, p));
     }
 
-    public static double[] trimSilences(double[] wavData, int windowLength, int hopLength, double cutoffDB,
-            int silencePadding) {
+    public static int getNumWindows(int numSamples, int hopLength) {
+        // Same count as getOverlappingWindows(): the last window is the first one whose frame reaches the end
+        int firstFrameBegin = -hopLength / 2;
+        long n = (long) numSamples - firstFrameBegin;
+        return (int) Math.max(1, (n + hopLength - 1) / hopLength);
+    }
+
+    /**
+     * Mean square of every overlapping window, in the same order as getOverlappingWindows(). Two running sums of
+     * squares (one trailing the window beginnings and one trailing the window ends) are advanced sample by sample,
+     * so the cost is O(n) irrespective of the window length.
+     */
+    public static double[] computeMeanSquares(double[] wavData, int windowLength, int hopLength) {
+        return computeMeanSquares(wavData, wavData.length, 1.0, windowLength, hopLength);
+    }
+
+    /**
+     * Same as computeMeanSquares(wavData, windowLength, hopLength) for the first numSamples of wavData, with each
+     * sample divided by scale first. The result is identical to scaling the audio into a new array beforehand.
+     */
+    public static double[] computeMeanSquares(double[] wavData, int numSamples, double scale, int windowLength,
+            int hopLength) {
+        int numWindows = getNumWindows(numSamples, hopLength);
+        double[] meanSquares = new double[numWindows];
+        int offset = (windowLength - hopLength) / 2;
+        double sumToBegin = 0.0;
+        double sumToEnd = 0.0;
+        int posBegin = 0;
+        int posEnd = 0;
+        int frameBegin = -hopLength / 2;
+        for (int k = 0; k < numWindows; k++) {
+            int winBegin = Math.min(numSamples, Math.max(0, frameBegin - offset));
+            int winEnd = Math.min(numSamples, Math.max(0, frameBegin + hopLength + offset));
+            while (posBegin < winBegin) {
+                double x = wavData[posBegin] / scale;
+                sumToBegin += x * x;
+                posBegin++;
+            }
+            while (posEnd < winEnd) {
+                double x = wavData[posEnd] / scale;
+                sumToEnd += x * x;
+                posEnd++;
+            }
+            meanSquares[k] = winEnd > winBegin ? Math.max(0.0, sumToEnd - sumToBegin) / windowLength : 0.0;
+            frameBegin += hopLength;
+        }
+        return meanSquares;
+    }
+
+    /**
+     * Returns {trimBegin, trimEnd}, the range of samples that trimSilences() retains (before silence padding).
+     */
+    public static int[] getTrimPoints(double[] meanSquares, int numSamples, int hopLength, double cutoffDB) {
         // Reference: https://github.com/librosa/librosa/blob/main/librosa/effects.py
-        ArrayList<OverlappingWindow> overlappingWindows = OverlappingWindow.getOverlappingWindows(wavData, windowLength,
-                hopLength);
         double maxP = 0.0;
-        for (OverlappingWindow win : overlappingWindows) {
-            double p = win.computeMeanSquare();
+        for (double p : meanSquares) {
             if (p > maxP) {
                 maxP = p;
             }
-            win.computePowerDB();
-        }
-        double refDB = OverlappingWindow.convertPowerToDB(maxP);
-        for (OverlappingWindow win : overlappingWindows) {
-            win.subtractRefDB(refDB);
-            // System.out.println(win.powerDB);
         }
+        double refDB = convertPowerToDB(maxP);
+        int firstFrameBegin = -hopLength / 2;
         int trimBegin = 0;
-        for (int i = 0; i < overlappingWindows.size(); i++) {
-            OverlappingWindow win = overlappingWindows.get(i);
-            if (win.powerDB > cutoffDB) {
-                trimBegin = Math.max(0, win.frameBegin);
+        for (int i = 0; i < meanSquares.length; i++) {
+            if (convertPowerToDB(meanSquares[i]) - refDB > cutoffDB) {
+                trimBegin = Math.max(0, firstFrameBegin + i * hopLength);
                 break;
             }
         }
-        int trimEnd = wavData.length;
-        for (int i = overlappingWindows.size() - 1; i > 0; i--) {
-            OverlappingWindow win = overlappingWindows.get(i);
-            if (win.powerDB > cutoffDB) {
-                trimEnd = Math.min(wavData.length, win.frameEnd);
+        int trimEnd = numSamples;
+        for (int i = meanSquares.length - 1; i > 0; i--) {
+            if (convertPowerToDB(meanSquares[i]) - refDB > cutoffDB) {
+                trimEnd = Math.min(numSamples, firstFrameBegin + (i + 1) * hopLength);
                 break;
             }
         }
+        return new int[] { trimBegin, trimEnd };
+    }
+
+    public static double[] trimSilences(double[] wavData, int windowLength, int hopLength, double cutoffDB,
+            int silencePadding) {
+        double[] meanSquares = computeMeanSquares(wavData, windowLength, hopLength);
+        int[] trimPoints = getTrimPoints(meanSquares, wavData.length, hopLength, cutoffDB);
+        int trimBegin = trimPoints[0];
+        int trimEnd = trimPoints[1];
         double[] trimmedData;
         if (trimBegin > 0 || trimEnd < wavData.length || silencePadding != 0) {
             int silenceLength = silencePadding * hopLength;
             trimmedData = new double[trimEnd - trimBegin + silenceLength * 2];
-            for (int i = trimBegin; i < trimEnd; i++) {
-                trimmedData[silenceLength + i - trimBegin] = wavData[i];
-            }
+            System.arraycopy(wavData, trimBegin, trimmedData, silenceLength, trimEnd - trimBegin);
         } else {
             trimmedData = wavData;
         }
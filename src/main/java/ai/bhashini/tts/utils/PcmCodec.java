@@ -0,0 +1,179 @@
+package ai.bhashini.tts.utils;
+
+import java.nio.ByteBuffer;
+
+/**
+ * Width-specialized PCM decoders and encoders working on whole runs of
+ * samples. Each kernel handles exactly one sample width, so the inner loops
+ * have no per-byte or per-sample branching. The decoded values are identical
+ * to what the generic byte loops in {@link WavFile} produce: 8-bit samples are
+ * unsigned, wider samples are signed.
+ */
+public class PcmCodec {
+
+	// Decoding from ByteBuffer
+	// ------------------------
+	// src must be in little endian byte order; its position is advanced.
+	public static void decode8(ByteBuffer src, long[] dst, int offset, int numSamples) {
+		int pos = src.position();
+		for (int i = 0; i < numSamples; i++) {
+			dst[offset + i] = src.get(pos + i) & 0xFF;
+		}
+		src.position(pos + numSamples);
+	}
+
+	public static void decode16LE(ByteBuffer src, long[] dst, int offset, int numSamples) {
+		int pos = src.position();
+		for (int i = 0; i < numSamples; i++) {
+			dst[offset + i] = src.getShort(pos);
+			pos += 2;
+		}
+		src.position(pos);
+	}
+
+	public static void decode24LE(ByteBuffer src, long[] dst, int offset, int numSamples) {
+		int pos = src.position();
+		for (int i = 0; i < numSamples; i++) {
+			dst[offset + i] = (src.get(pos) & 0xFF) | (src.getShort(pos + 1) << 8);
+			pos += 3;
+		}
+		src.position(pos);
+	}
+
+	public static void decode32LE(ByteBuffer src, long[] dst, int offset, int numSamples) {
+		int pos = src.position();
+		for (int i = 0; i < numSamples; i++) {
+			dst[offset + i] = src.getInt(pos);
+			pos += 4;
+		}
+		src.position(pos);
+	}
+
+	/**
+	 * Decodes numSamples little endian samples from src. Returns false (and
+	 * leaves src untouched) if there is no kernel for the given width.
+	 */
+	public static boolean decode(ByteBuffer src, int bytesPerSample, long[] dst, int offset, int numSamples) {
+		switch (bytesPerSample) {
+		case 1:
+			decode8(src, dst, offset, numSamples);
+			return true;
+		case 2:
+			decode16LE(src, dst, offset, numSamples);
+			return true;
+		case 3:
+			decode24LE(src, dst, offset, numSamples);
+			return true;
+		case 4:
+			decode32LE(src, dst, offset, numSamples);
+			return true;
+		default:
+			return false;
+		}
+	}
+
+	// Decoding from byte arrays
+	// -------------------------
+	// stride is the distance in bytes between consecutive samples, which lets
+	// callers pick a single channel out of interleaved frames.
+	public static void decode8(byte[] src, int srcPos, int stride, long[] dst, int offset, int numSamples) {
+		for (int i = 0; i < numSamples; i++) {
+			dst[offset + i] = src[srcPos] & 0xFF;
+			srcPos += stride;
+		}
+	}
+
+	public static void decode16LE(byte[] src, int srcPos, int stride, long[] dst, int offset, int numSamples) {
+		for (int i = 0; i < numSamples; i++) {
+			dst[offset + i] = (src[srcPos] & 0xFF) | (src[srcPos + 1] << 8);
+			srcPos += stride;
+		}
+	}
+
+	public static void decode16BE(byte[] src, int srcPos, int stride, long[] dst, int offset, int numSamples) {
+		for (int i = 0; i < numSamples; i++) {
+			dst[offset + i] = (src[srcPos] << 8) | (src[srcPos + 1] & 0xFF);
+			srcPos += stride;
+		}
+	}
+
+	public static void decode24LE(byte[] src, int srcPos, int stride, long[] dst, int offset, int numSamples) {
+		for (int i = 0; i < numSamples; i++) {
+			dst[offset + i] = (src[srcPos] & 0xFF) | ((src[srcPos + 1] & 0xFF) << 8) | (src[srcPos + 2] << 16);
+			srcPos += stride;
+		}
+	}
+
+	public static void decode32LE(byte[] src, int srcPos, int stride, long[] dst, int offset, int numSamples) {
+		for (int i = 0; i < numSamples; i++) {
+			dst[offset + i] = (src[srcPos] & 0xFF) | ((src[srcPos + 1] & 0xFF) << 8)
+					| ((src[srcPos + 2] & 0xFF) << 16) | (src[srcPos + 3] << 24);
+			srcPos += stride;
+		}
+	}
+
+	// Encoding to byte arrays (little endian)
+	// ---------------------------------------
+	// Each encoder returns the position in dst just after the last byte written.
+	public static int encode8(long[] src, int srcPos, byte[] dst, int dstPos, int numSamples) {
+		for (int i = 0; i < numSamples; i++) {
+			dst[dstPos++] = (byte) src[srcPos + i];
+		}
+		return dstPos;
+	}
+
+	public static int encode16LE(long[] src, int srcPos, byte[] dst, int dstPos, int numSamples) {
+		for (int i = 0; i < numSamples; i++) {
+			long val = src[srcPos + i];
+			dst[dstPos] = (byte) val;
+			dst[dstPos + 1] = (byte) (val >> 8);
+			dstPos += 2;
+		}
+		return dstPos;
+	}
+
+	public static int encode24LE(long[] src, int srcPos, byte[] dst, int dstPos, int numSamples) {
+		for (int i = 0; i < numSamples; i++) {
+			long val = src[srcPos + i];
+			dst[dstPos] = (byte) val;
+			dst[dstPos + 1] = (byte) (val >> 8);
+			dst[dstPos + 2] = (byte) (val >> 16);
+			dstPos += 3;
+		}
+		return dstPos;
+	}
+
+	public static int encode32LE(long[] src, int srcPos, byte[] dst, int dstPos, int numSamples) {
+		for (int i = 0; i < numSamples; i++) {
+			long val = src[srcPos + i];
+			dst[dstPos] = (byte) val;
+			dst[dstPos + 1] = (byte) (val >> 8);
+			dst[dstPos + 2] = (byte) (val >> 16);
+			dst[dstPos + 3] = (byte) (val >> 24);
+			dstPos += 4;
+		}
+		return dstPos;
+	}
+
+	public static int encodeLE(long[] src, int srcPos, byte[] dst, int dstPos, int numSamples, int bytesPerSample) {
+		switch (bytesPerSample) {
+		case 1:
+			return encode8(src, srcPos, dst, dstPos, numSamples);
+		case 2:
+			return encode16LE(src, srcPos, dst, dstPos, numSamples);
+		case 3:
+			return encode24LE(src, srcPos, dst, dstPos, numSamples);
+		case 4:
+			return encode32LE(src, srcPos, dst, dstPos, numSamples);
+		default:
+			for (int i = 0; i < numSamples; i++) {
+				long val = src[srcPos + i];
+				for (int b = 0; b < bytesPerSample; b++) {
+					dst[dstPos++] = (byte) (val & 0xFF);
+					val >>= 8;
+				}
+			}
+			return dstPos;
+		}
+	}
+}
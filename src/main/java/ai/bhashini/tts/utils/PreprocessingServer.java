@@ -0,0 +1,590 @@
+package ai.bhashini.tts.utils;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.PrintStream;
+import java.io.Writer;
+import java.net.InetAddress;
+import java.net.ServerSocket;
+import java.net.Socket;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.PosixFileAttributeView;
+import java.nio.file.attribute.PosixFilePermission;
+import java.security.MessageDigest;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import javax.sound.sampled.UnsupportedAudioFileException;
+import org.apache.commons.cli.ParseException;
+
+import com.google.gson.Gson;
+import com.google.gson.GsonBuilder;
+import com.google.gson.JsonParseException;
+
+import ai.bhashini.tts.utils.SentenceSplitter.Paragraph;
+
+/**
+ * Runs preprocessing jobs in one long-lived JVM, so that the resources of
+ * NumberExpansion, AbbreviationExpansion, SentenceSplitter and Transliterate are
+ * loaded once and the JIT-compiled code is reused across jobs, instead of
+ * paying JVM startup and warm-up for every directory or file.
+ *
+ * Jobs are read as JSON, one request per line, from stdin or from connections
+ * to a localhost TCP port, and run on a shared pool of worker threads. Each
+ * request gets one JSON response line, tagged with the request id, when the job
+ * finishes, so responses can come out of order. For example:
+ *
+ * <pre>
+ * {"id":"1","job":"trim","input":"raw/spk1","output":"trimmed/spk1","args":["-bps","24"]}
+ * {"id":"2","job":"expandNumbers","language":"Hindi","text":"..."}
+ * {"id":"3","job":"split","language":"Kannada","input":"in.txt","output":"out.txt"}
+ * {"id":"4","job":"transliterate","srcScript":"Devanagari","dstScript":"Kannada","text":"..."}
+ * {"id":"5","job":"shutdown"}
+ * </pre>
+ *
+ * Text jobs (expandNumbers, expandAbbreviations, split, transliterate) either
+ * take inline text and return the result in the response, or process the input
+ * file into the output file like the corresponding main(). Inline text is
+ * processed line by line, as the files are. trim takes input and output
+ * directories plus any other TrimAndNormalizeAudio options in args, and trims
+ * the files of the directory in parallel on the worker threads.
+ *
+ * Jobs read and write any path the server's user can, so on the TCP port every
+ * request must carry the shared secret of the token file given with
+ * --token-file, e.g. {"token":"...","id":"1",...}, or else any local user could
+ * run jobs or shut the server down. The token file must not be readable by
+ * group or others (chmod 600). Requests on stdin need no token, as only the
+ * process that started the server can write to it.
+ */
+public class PreprocessingServer {
+	public static class Request {
+		String token; // Shared secret, required on the TCP port
+		String id;
+		String job;
+		String language;
+		String srcScript; // transliterate; defaults to the script of language
+		String dstScript; // transliterate
+		String text; // Inline input, or
+		String input; // input file (directory for trim)
+		String output; // output file (directory for trim)
+		String[] args; // trim: other TrimAndNormalizeAudio command line options
+		boolean retainNumbers; // expandNumbers: keep the numbers for validation
+		boolean normalize = true; // split: normalize (expand numbers etc.) before splitting
+	}
+
+	public static class Response {
+		String id;
+		String status; // "ok" or "error"
+		String error;
+		String result; // Output of inline text jobs
+		List<List<String>> paragraphs; // Sentences of inline split jobs
+		Integer numFiles; // trim
+		Map<String, String> failures; // trim: file name -> error
+		long millis; // From receipt of the request to the response
+
+		Response(String id) {
+			this.id = id;
+			this.status = "ok";
+		}
+
+		static Response error(String id, String error) {
+			Response response = new Response(id);
+			response.status = "error";
+			response.error = error;
+			return response;
+		}
+	}
+
+	// Responses of one client; the pending jobs are counted so that its input can
+	// be closed only after all its responses are written
+	static class Connection {
+		private final Writer writer;
+		private final Gson gson;
+		private final byte[] token; // null if requests need no token
+		private int pendingJobs;
+
+		Connection(OutputStream outputStream, Gson gson, byte[] token) {
+			this.writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+			this.gson = gson;
+			this.token = token;
+		}
+
+		boolean isAuthorized(Request request) {
+			// Constant time comparison, so the token can't be guessed a byte at a time
+			return token == null || (request.token != null
+					&& MessageDigest.isEqual(token, request.token.getBytes(StandardCharsets.UTF_8)));
+		}
+
+		synchronized void send(Response response) {
+			try {
+				writer.write(gson.toJson(response));
+				writer.write('\n');
+				writer.flush();
+			} catch (IOException e) {
+				// Client gone; the job's output files are written anyway
+				e.printStackTrace();
+			}
+		}
+
+		synchronized void jobStarted() {
+			pendingJobs++;
+		}
+
+		synchronized void jobFinished(Response response) {
+			send(response);
+			pendingJobs--;
+			notifyAll();
+		}
+
+		synchronized void awaitJobs() throws InterruptedException {
+			while (pendingJobs > 0) {
+				wait();
+			}
+		}
+	}
+
+	private final ExecutorService workers;
+	private final Gson gson = new GsonBuilder().disableHtmlEscaping().create();
+	private volatile boolean shutdownRequested = false;
+	private volatile ServerSocket serverSocket;
+
+	public PreprocessingServer(int numThreads) {
+		workers = Executors.newFixedThreadPool(Math.max(1, numThreads));
+	}
+
+	// Loads the resources of the given languages, so that the first jobs don't pay for it
+	public void warmUp(List<Language> languages) {
+		Transliterate.getInstance();
+		for (Language language : languages) {
+			NumberExpansion.getInstance(language, true);
+			if (Arrays.asList(AbbreviationExpansion.SUPPORTED_LANGUAGES).contains(language)) {
+				AbbreviationExpansion.getInstance(language);
+			}
+			if (Arrays.asList(SentenceSplitter.SUPPORTED_SCRIPTS).contains(language.script)) {
+				SentenceSplitter.getInstance(language.script);
+			}
+		}
+	}
+
+	/**
+	 * Serves the requests read from inputStream until it ends or a shutdown job
+	 * is received, and returns once all the responses are written.
+	 */
+	public void serve(InputStream inputStream, OutputStream outputStream) throws IOException {
+		serve(inputStream, outputStream, null);
+	}
+
+	private void serve(InputStream inputStream, OutputStream outputStream, byte[] token) throws IOException {
+		Connection connection = new Connection(outputStream, gson, token);
+		BufferedReader br = new BufferedReader(new InputStreamReader(inputStream, StandardCharsets.UTF_8));
+		String line;
+		while (!shutdownRequested && (line = br.readLine()) != null) {
+			if (!line.trim().isEmpty()) {
+				handleRequest(line, connection);
+			}
+		}
+		try {
+			connection.awaitJobs();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	/**
+	 * Accepts connections on the given localhost port until a shutdown job is
+	 * received. Only the requests carrying the given token are run.
+	 */
+	public void serve(int port, String token) throws IOException {
+		if (token == null || token.isEmpty()) {
+			throw new IllegalArgumentException("A token is required to serve on a TCP port");
+		}
+		byte[] tokenBytes = token.getBytes(StandardCharsets.UTF_8);
+		// Daemon threads: a client that keeps its connection open doesn't keep the
+		// server alive after a shutdown job
+		ExecutorService connections = Executors.newCachedThreadPool(new ThreadFactory() {
+			@Override
+			public Thread newThread(Runnable r) {
+				Thread thread = new Thread(r);
+				thread.setDaemon(true);
+				return thread;
+			}
+		});
+		try (ServerSocket serverSocket = new ServerSocket(port, 50, InetAddress.getLoopbackAddress())) {
+			this.serverSocket = serverSocket;
+			System.err.println("Listening on " + serverSocket.getLocalSocketAddress());
+			while (!shutdownRequested) {
+				Socket socket;
+				try {
+					socket = serverSocket.accept();
+				} catch (IOException e) {
+					if (shutdownRequested) {
+						break; // Socket closed by the shutdown job
+					}
+					throw e;
+				}
+				connections.execute(new Runnable() {
+					@Override
+					public void run() {
+						try (Socket s = socket) {
+							serve(s.getInputStream(), s.getOutputStream(), tokenBytes);
+						} catch (IOException e) {
+							e.printStackTrace();
+						}
+					}
+				});
+			}
+		} finally {
+			connections.shutdown();
+		}
+	}
+
+	// Lets the submitted jobs finish and stops the worker threads
+	public void shutdown() {
+		workers.shutdown();
+		try {
+			workers.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+		} catch (InterruptedException e) {
+			workers.shutdownNow();
+			Thread.currentThread().interrupt();
+		}
+	}
+
+	void handleRequest(String line, Connection connection) {
+		Request request;
+		try {
+			request = gson.fromJson(line, Request.class);
+		} catch (JsonParseException e) {
+			connection.send(Response.error(null, "Invalid request: " + e.getMessage()));
+			return;
+		}
+		if (request != null && !connection.isAuthorized(request)) {
+			connection.send(Response.error(request.id, "Invalid token"));
+			return;
+		}
+		if (request == null || request.job == null) {
+			connection.send(Response.error(request == null ? null : request.id, "No job"));
+			return;
+		}
+		switch (request.job) {
+		case "ping":
+			connection.send(new Response(request.id));
+			break;
+		case "shutdown":
+			shutdownRequested = true;
+			connection.send(new Response(request.id));
+			closeServerSocket();
+			break;
+		case "trim":
+			submitTrimJob(request, connection);
+			break;
+		case "expandNumbers":
+		case "expandAbbreviations":
+		case "split":
+		case "transliterate":
+			submitTextJob(request, connection);
+			break;
+		default:
+			connection.send(Response.error(request.id, "Unknown job: " + request.job));
+		}
+	}
+
+	private void closeServerSocket() {
+		if (serverSocket != null) {
+			try {
+				serverSocket.close();
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+	}
+
+	void submitTextJob(Request request, Connection connection) {
+		long startTime = System.nanoTime();
+		connection.jobStarted();
+		try {
+			workers.execute(new Runnable() {
+				@Override
+				public void run() {
+					Response response;
+					try {
+						response = runTextJob(request);
+					} catch (IOException | RuntimeException e) {
+						response = Response.error(request.id, e.toString());
+					}
+					response.millis = (System.nanoTime() - startTime) / 1000000;
+					connection.jobFinished(response);
+				}
+			});
+		} catch (RejectedExecutionException e) {
+			connection.jobFinished(Response.error(request.id, "Server is shutting down"));
+		}
+	}
+
+	Response runTextJob(Request request) throws IOException {
+		Response response = new Response(request.id);
+		if (request.text == null) {
+			if (request.input == null || request.output == null) {
+				throw new IllegalArgumentException("Either text or input and output are required");
+			}
+			if (!new File(request.input).isFile()) {
+				throw new FileNotFoundException(request.input);
+			}
+			new File(request.output).getAbsoluteFile().getParentFile().mkdirs();
+		}
+		switch (request.job) {
+		case "expandNumbers": {
+			NumberExpansion numberExpansion = NumberExpansion.getInstance(getLanguage(request));
+			if (request.text != null) {
+				StringBuilder sb = new StringBuilder();
+				for (String line : getLines(request.text)) {
+					sb.append(sb.length() > 0 ? "\n" : "").append(numberExpansion.expandNumbers(line, request.retainNumbers));
+				}
+				response.result = sb.toString();
+			} else {
+				numberExpansion.expandNumbersInFile(new File(request.input), new File(request.output),
+						request.retainNumbers, false);
+			}
+			break;
+		}
+		case "expandAbbreviations": {
+			Language language = getLanguage(request);
+			if (!Arrays.asList(AbbreviationExpansion.SUPPORTED_LANGUAGES).contains(language)) {
+				throw new IllegalArgumentException("Abbreviation expansion not supported for " + language);
+			}
+			AbbreviationExpansion abbreviationExpansion = AbbreviationExpansion.getInstance(language);
+			if (request.text != null) {
+				StringBuilder sb = new StringBuilder();
+				for (String line : getLines(request.text)) {
+					sb.append(sb.length() > 0 ? "\n" : "").append(abbreviationExpansion.expandAbbreviations(line));
+				}
+				response.result = sb.toString();
+			} else {
+				abbreviationExpansion.expandAbbreviationsInFile(new File(request.input), new File(request.output),
+						false);
+			}
+			break;
+		}
+		case "split": {
+			Language language = getLanguage(request);
+			if (!Arrays.asList(SentenceSplitter.SUPPORTED_SCRIPTS).contains(language.script)) {
+				throw new IllegalArgumentException("Sentence splitting not supported for " + language.script);
+			}
+			if (request.text != null) {
+				ArrayList<Paragraph> splitText = request.normalize ? SentenceSplitter.normalizeAndSplit(language,
+						request.text)
+						: SentenceSplitter.getInstance(language.script).splitText(request.text,
+								SentenceSplitter.MAX_UNICODES_IN_SENTENCE);
+				response.paragraphs = new ArrayList<>();
+				for (Paragraph p : splitText) {
+					response.paragraphs.add(p.sentences);
+				}
+			} else {
+				SentenceSplitter.splitTextInFile(new File(request.input), new File(request.output),
+						request.normalize, language, language.script);
+			}
+			break;
+		}
+		case "transliterate": {
+			Script srcScript = request.srcScript != null ? Script.valueOf(request.srcScript)
+					: getLanguage(request).script;
+			if (request.dstScript == null) {
+				throw new IllegalArgumentException("No dstScript");
+			}
+			Script dstScript = Script.valueOf(request.dstScript);
+			if (request.text != null) {
+				response.result = Transliterate.getInstance().transliterate(request.text, srcScript, dstScript);
+			} else {
+				Transliterate.getInstance().transliterateFiles(Collections.singletonList(new File(request.input)),
+						Collections.singletonList(new File(request.output)), srcScript, dstScript, 1);
+			}
+			break;
+		}
+		}
+		return response;
+	}
+
+	private static Language getLanguage(Request request) {
+		Language language = Language.fromString(request.language);
+		if (language == null) {
+			throw new IllegalArgumentException("Unknown language: " + request.language);
+		}
+		return language;
+	}
+
+	private static String[] getLines(String text) {
+		return TextPatterns.LINE_BREAK.split(text, -1);
+	}
+
+	void submitTrimJob(Request request, Connection connection) {
+		long startTime = System.nanoTime();
+		TrimAndNormalizeAudio.Arguments arguments = new TrimAndNormalizeAudio.Arguments();
+		File[] inputWavFiles;
+		try {
+			if (request.input == null || request.output == null) {
+				throw new IllegalArgumentException("input and output directories are required");
+			}
+			ArrayList<String> args = new ArrayList<>();
+			if (request.args != null) {
+				args.addAll(Arrays.asList(request.args));
+			}
+			args.addAll(Arrays.asList("-in", request.input, "-out", request.output));
+			arguments.parse(args.toArray(new String[0]));
+			inputWavFiles = FileUtils.getWavFiles(request.input);
+			if (inputWavFiles == null) {
+				throw new FileNotFoundException(request.input);
+			}
+		} catch (ParseException | IOException | RuntimeException e) {
+			connection.send(Response.error(request.id, e.toString()));
+			return;
+		}
+		new File(request.output).mkdirs();
+
+		// Sorted by file name so that the response does not depend on thread scheduling
+		Map<String, String> failures = new ConcurrentSkipListMap<>();
+		AtomicInteger numRemaining = new AtomicInteger(inputWavFiles.length);
+		Runnable finish = new Runnable() {
+			@Override
+			public void run() {
+				Response response = failures.isEmpty() ? new Response(request.id)
+						: Response.error(request.id, "Failed to process " + failures.size() + "/"
+								+ inputWavFiles.length + " files");
+				response.numFiles = inputWavFiles.length;
+				response.failures = failures.isEmpty() ? null : failures;
+				response.millis = (System.nanoTime() - startTime) / 1000000;
+				connection.jobFinished(response);
+			}
+		};
+		connection.jobStarted();
+		if (inputWavFiles.length == 0) {
+			finish.run();
+			return;
+		}
+		for (File inputWavFile : inputWavFiles) {
+			File outputWavFile = new File(request.output, inputWavFile.getName());
+			try {
+				workers.execute(new Runnable() {
+					@Override
+					public void run() {
+						try {
+							TrimAndNormalizeAudio.trim(inputWavFile, outputWavFile, arguments);
+						} catch (IOException | UnsupportedAudioFileException | WavFileException | RuntimeException e) {
+							failures.put(inputWavFile.getName(), e.toString());
+						}
+						if (numRemaining.decrementAndGet() == 0) {
+							finish.run();
+						}
+					}
+				});
+			} catch (RejectedExecutionException e) {
+				failures.put(inputWavFile.getName(), "Server is shutting down");
+				if (numRemaining.decrementAndGet() == 0) {
+					finish.run();
+				}
+			}
+		}
+	}
+
+	public static class Arguments extends CommandLineOptions {
+		IntegerOption port = new IntegerOption("p", "port", 0,
+				"Localhost TCP port to accept connections on (default: read jobs from stdin, write responses to stdout)");
+		IntegerOption numThreads = new IntegerOption("t", "threads", Runtime.getRuntime().availableProcessors(),
+				"Number of worker threads shared by all jobs");
+		StringOption languages = new StringOption("lang", "languages",
+				"Comma separated languages whose resources are loaded at startup");
+		StringOption tokenFilePath = new StringOption("tf", "token-file",
+				"File (readable only by its owner) with the secret that requests must carry as \"token\". Required with --port.");
+
+		public Arguments() {
+			super();
+			options.addOption(port);
+			options.addOption(numThreads);
+			options.addOption(languages);
+			options.addOption(tokenFilePath);
+		}
+	}
+
+	// Reads the token from the first line of the file, which must not be accessible to group or others
+	static String readToken(File tokenFile) throws IOException {
+		Path path = tokenFile.toPath();
+		if (Files.getFileStore(path).supportsFileAttributeView(PosixFileAttributeView.class)) {
+			for (PosixFilePermission permission : Files.getPosixFilePermissions(path)) {
+				if (permission != PosixFilePermission.OWNER_READ && permission != PosixFilePermission.OWNER_WRITE
+						&& permission != PosixFilePermission.OWNER_EXECUTE) {
+					throw new IOException(tokenFile + " is accessible to other users; chmod 600 it");
+				}
+			}
+		}
+		List<String> lines = Files.readAllLines(path, StandardCharsets.UTF_8);
+		String token = lines.isEmpty() ? "" : lines.get(0).trim();
+		if (token.isEmpty()) {
+			throw new IOException("No token in " + tokenFile);
+		}
+		return token;
+	}
+
+	public static void main(String[] args) {
+		Arguments arguments = new Arguments();
+		try {
+			arguments.parse(args);
+		} catch (ParseException e) {
+			e.printStackTrace();
+			arguments.printHelp(PreprocessingServer.class.getCanonicalName());
+			return;
+		}
+		// In stdin mode stdout carries the responses, so everything the tools print goes to stderr
+		PrintStream stdout = System.out;
+		System.setOut(System.err);
+		arguments.printValues();
+
+		SystemTime sysTime = new SystemTime(true);
+		PreprocessingServer server = new PreprocessingServer(arguments.numThreads.getIntValue());
+		ArrayList<Language> languages = new ArrayList<>();
+		if (arguments.languages.getStringValue() != null) {
+			for (String languageStr : arguments.languages.getStringValue().split(",")) {
+				Language language = Language.fromString(languageStr);
+				if (language == null) {
+					System.out.println("Unknown language: " + languageStr);
+					return;
+				}
+				languages.add(language);
+			}
+		}
+		server.warmUp(languages);
+		sysTime.tock(true);
+
+		try {
+			if (arguments.port.getIntValue() > 0) {
+				if (arguments.tokenFilePath.getStringValue() == null) {
+					System.out.println("--token-file is required with --port");
+					return;
+				}
+				String token = readToken(new File(arguments.tokenFilePath.getStringValue()));
+				server.serve(arguments.port.getIntValue(), token);
+			} else {
+				server.serve(System.in, stdout);
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+		} finally {
+			server.shutdown();
+		}
+	}
+}
@@ -4,9 +4,29 @@ import java.io.File;
 import java.time.Duration;
 import java.util.HashMap;
 
-public class RecordingStats {
+/**
+ * Number and total duration of the recordings in a wav directory. The trimmed
+ * durations are cached by the {@link RecordingStatsEngine}; loadStats() saves
+ * the cache when it is done, while add() only saves it every SAVE_INTERVAL
+ * recordings, so instances that add() recordings must be closed (e.g. with
+ * try-with-resources) for the rest to be saved.
+ */
+public class RecordingStats implements AutoCloseable {
 	Duration total = Duration.ofSeconds(0);
 	HashMap<String, Duration> wavFilesAndDurations = new HashMap<String, Duration>();
+	RecordingStatsEngine statsEngine; // Defaults to one rooted at the parent of the wav directory
+	int numThreads = Runtime.getRuntime().availableProcessors();
+	// add() saves the engine's cache files only every SAVE_INTERVAL recordings; close() saves the rest
+	static final int SAVE_INTERVAL = 100;
+	int numUnsaved = 0;
+
+	public RecordingStats() {
+	}
+
+	public RecordingStats(RecordingStatsEngine statsEngine, int numThreads) {
+		this.statsEngine = statsEngine;
+		this.numThreads = numThreads;
+	}
 
 	public void add(String wavPath, boolean modified) {
 		Duration duration = getAudioDuration(wavPath, modified);
@@ -30,12 +50,33 @@ public class RecordingStats {
 
 	private Duration getAudioDuration(String wavPath, boolean modified) {
 		File wavFile = new File(wavPath);
-		File normalizedWavFile = new File(wavFile.getParent() + "_normalized", wavFile.getName());
-		if (!normalizedWavFile.exists() || modified) {
-			TrimAndNormalizeAudio.trim(wavPath, normalizedWavFile.getAbsolutePath());
+		Duration duration = getStatsEngine(wavFile.getParentFile()).getTrimmedDuration(wavFile, modified);
+		if (++numUnsaved >= SAVE_INTERVAL) {
+			save();
+		}
+		return duration;
+	}
+
+	// Writes the durations computed so far to the engine's cache files
+	public void save() {
+		if (statsEngine != null) {
+			statsEngine.save();
+		}
+		numUnsaved = 0;
+	}
+
+	// Saves the durations that add() computed since the last save
+	@Override
+	public void close() {
+		save();
+	}
+
+	private RecordingStatsEngine getStatsEngine(File wavDir) {
+		if (statsEngine == null) {
+			File rootDir = wavDir.getAbsoluteFile().getParentFile();
+			statsEngine = RecordingStatsEngine.getInstance(rootDir != null ? rootDir : wavDir);
 		}
-		double secs = MeasureAudioLength.getAudioLengthInSecs(normalizedWavFile.getAbsolutePath());
-		return Duration.ofMillis(Math.round(secs * 1000));
+		return statsEngine;
 	}
 
 	@Override
@@ -53,9 +94,13 @@ public class RecordingStats {
 		wavFilesAndDurations.clear();
 		File[] wavFiles = FileUtils.getWavFiles(wavDir);
 		if (wavFiles != null) {
-			for (File wavFile : wavFiles) {
-				add(wavFile.getAbsolutePath(), false);
+			RecordingStatsEngine engine = getStatsEngine(new File(wavDir));
+			Duration[] durations = engine.getTrimmedDurations(wavFiles, numThreads);
+			for (int i = 0; i < wavFiles.length; i++) {
+				wavFilesAndDurations.put(wavFiles[i].getAbsolutePath(), durations[i]);
+				total = total.plus(durations[i]);
 			}
+			engine.save();
 		}
 	}
 
@@ -70,8 +115,12 @@ public class RecordingStats {
 		}
 	}
 
+	// Usage: RecordingStats <data-dir> [<num-threads>]
 	public static void main(String[] args) {
+		SystemTime systemTime = new SystemTime(true);
 		File dataDir = new File(args[0]);
+		int numThreads = args.length > 1 ? Integer.parseInt(args[1]) : Runtime.getRuntime().availableProcessors();
+		RecordingStatsEngine statsEngine = RecordingStatsEngine.getInstance(dataDir);
 		RecordingStats totalRecordingStats = new RecordingStats();
 		File[] subDirs = FileUtils.getSubDirs(dataDir);
 		System.out.println("WavDir:\t#Sentences\tDuration");
@@ -79,13 +128,15 @@ public class RecordingStats {
 		for (File subDir : subDirs) {
 			File wavDir = new File(subDir, "wav");
 			if (wavDir.exists()) {
-				RecordingStats recordingStats = new RecordingStats();
-				recordingStats.loadStats(wavDir.getAbsolutePath());
-				System.out.println(wavDir.getAbsolutePath().substring(offset) + ":\t"
-						+ recordingStats.getNumRecordings() + "\t" + recordingStats.totalDurationAsString());
-				totalRecordingStats.add(recordingStats);
+				try (RecordingStats recordingStats = new RecordingStats(statsEngine, numThreads)) {
+					recordingStats.loadStats(wavDir.getAbsolutePath());
+					System.out.println(wavDir.getAbsolutePath().substring(offset) + ":\t"
+							+ recordingStats.getNumRecordings() + "\t" + recordingStats.totalDurationAsString());
+					totalRecordingStats.add(recordingStats);
+				}
 			}
 		}
 		System.out.println("\nTotal: " + totalRecordingStats.toString());
+		systemTime.tock(true);
 	}
 }
\ No newline at end of file
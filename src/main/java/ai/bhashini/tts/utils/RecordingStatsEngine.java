@@ -0,0 +1,166 @@
+package ai.bhashini.tts.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import javax.sound.sampled.UnsupportedAudioFileException;
+
+/**
+ * Computes the duration that each recording has after
+ * {@link TrimAndNormalizeAudio#trim(String, String)}, without writing the
+ * normalized WAV file.
+ *
+ * If an up-to-date normalized file already exists in the
+ * <code>&lt;wav-dir&gt;_normalized</code> directory its length is used, else the
+ * trimmed length is computed from the window energies of the resampled audio
+ * (see {@link TrimAndNormalizeAudio#getTrimmedNumFrames}). Results are kept in
+ * a TSV sidecar file ({@value #CACHE_FILE_NAME}) in the root directory and are
+ * reused for as long as the size and last-modified time of the recording do
+ * not change.
+ */
+public class RecordingStatsEngine extends TsvSidecarFile<RecordingStatsEngine.Entry> {
+	public static final String CACHE_FILE_NAME = ".trimmed_durations.tsv";
+	// Trimming parameters the cached durations were computed with
+	private static final String SETTINGS = TrimAndNormalizeAudio.NEW_SAMPLING_RATE + ":"
+			+ TrimAndNormalizeAudio.NEW_BITS_PER_SAMPLE + ":" + TrimAndNormalizeAudio.WINDOW_LENGTH + ":"
+			+ TrimAndNormalizeAudio.HOP_LENGTH + ":" + TrimAndNormalizeAudio.CUTOFF_DB + ":"
+			+ TrimAndNormalizeAudio.SILENCE_PADDING + ":" + Resampler.DEFAULT_FILTER_LENGTH;
+	private static final String SETTINGS_LINE = "#settings\t" + SETTINGS;
+	private static final String HEADER_LINE = "#path\tsize\tlastModified\tdurationMillis";
+
+	static class Entry {
+		long size;
+		long lastModified;
+		long durationMillis;
+
+		Entry(long size, long lastModified, long durationMillis) {
+			this.size = size;
+			this.lastModified = lastModified;
+			this.durationMillis = durationMillis;
+		}
+	}
+
+	protected AudioMetadataCache metadataCache;
+
+	// Singleton per root directory => private constructor
+	private RecordingStatsEngine(File rootDir) {
+		// Durations computed with other trimming parameters are discarded
+		super(rootDir, CACHE_FILE_NAME, SETTINGS_LINE, HEADER_LINE, 4);
+		this.metadataCache = AudioMetadataCache.getInstance(rootDir);
+		load();
+	}
+
+	// Thread-safe map
+	private static ConcurrentHashMap<File, RecordingStatsEngine> uniqueInstancesMap = new ConcurrentHashMap<>();
+
+	public static RecordingStatsEngine getInstance(File rootDir) {
+		return uniqueInstancesMap.computeIfAbsent(rootDir.getAbsoluteFile(), RecordingStatsEngine::new);
+	}
+
+	/**
+	 * Returns the trimmed duration of the given recording, or Duration.ZERO if
+	 * it could not be processed. If modified is true, cached results and
+	 * existing normalized files are ignored.
+	 */
+	public Duration getTrimmedDuration(File wavFile, boolean modified) {
+		String key = getKey(wavFile);
+		long size = wavFile.length();
+		long lastModified = wavFile.lastModified();
+		Entry entry = entries.get(key);
+		if (!modified && entry != null && entry.size == size && entry.lastModified == lastModified) {
+			return Duration.ofMillis(entry.durationMillis);
+		}
+		try {
+			double secs = computeTrimmedLengthInSecs(wavFile, modified);
+			long durationMillis = Math.round(secs * 1000);
+			// Recomputing an unchanged recording leaves the file as it is
+			if (entry == null || entry.size != size || entry.lastModified != lastModified
+					|| entry.durationMillis != durationMillis) {
+				put(key, new Entry(size, lastModified, durationMillis));
+			}
+			return Duration.ofMillis(durationMillis);
+		} catch (IOException | UnsupportedAudioFileException | WavFileException | RuntimeException e) {
+			System.err.println("Error while processing " + wavFile.getAbsolutePath());
+			e.printStackTrace();
+		}
+		return Duration.ZERO;
+	}
+
+	private double computeTrimmedLengthInSecs(File wavFile, boolean modified)
+			throws IOException, UnsupportedAudioFileException, WavFileException {
+		File normalizedWavFile = new File(wavFile.getParent() + "_normalized", wavFile.getName());
+		if (!modified && normalizedWavFile.exists() && normalizedWavFile.lastModified() >= wavFile.lastModified()) {
+			return metadataCache.getHeader(normalizedWavFile).getLengthInSecs();
+		}
+		long numFrames = TrimAndNormalizeAudio.getTrimmedNumFrames(wavFile.getAbsolutePath(),
+				TrimAndNormalizeAudio.NEW_SAMPLING_RATE, TrimAndNormalizeAudio.NEW_BITS_PER_SAMPLE,
+				TrimAndNormalizeAudio.WINDOW_LENGTH, TrimAndNormalizeAudio.HOP_LENGTH, TrimAndNormalizeAudio.CUTOFF_DB,
+				TrimAndNormalizeAudio.SILENCE_PADDING, false, false, Resampler.DEFAULT_FILTER_LENGTH);
+		return 1.0 * numFrames / TrimAndNormalizeAudio.NEW_SAMPLING_RATE;
+	}
+
+	/**
+	 * Returns the trimmed durations of the given recordings (in the same
+	 * order), processing up to numThreads of them in parallel.
+	 */
+	public Duration[] getTrimmedDurations(File[] wavFiles, int numThreads) {
+		Duration[] durations = new Duration[wavFiles.length];
+		if (numThreads <= 1 || wavFiles.length <= 1) {
+			for (int i = 0; i < wavFiles.length; i++) {
+				durations[i] = getTrimmedDuration(wavFiles[i], false);
+			}
+			return durations;
+		}
+		ExecutorService executor = Executors.newFixedThreadPool(Math.min(numThreads, wavFiles.length));
+		try {
+			List<Future<?>> tasks = new ArrayList<>();
+			for (int i = 0; i < wavFiles.length; i++) {
+				int index = i;
+				tasks.add(executor.submit(new Runnable() {
+					@Override
+					public void run() {
+						durations[index] = getTrimmedDuration(wavFiles[index], false);
+					}
+				}));
+			}
+			for (Future<?> task : tasks) {
+				task.get();
+			}
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+		} catch (ExecutionException e) {
+			e.printStackTrace();
+		} finally {
+			executor.shutdownNow();
+		}
+		return durations;
+	}
+
+	@Override
+	protected Entry parseEntry(String[] fields) {
+		return new Entry(Long.parseLong(fields[1]), Long.parseLong(fields[2]), Long.parseLong(fields[3]));
+	}
+
+	@Override
+	protected String formatEntry(Entry entry) {
+		return entry.size + "\t" + entry.lastModified + "\t" + entry.durationMillis;
+	}
+
+	/**
+	 * Writes the cache files if anything was added or updated since they were
+	 * loaded or last saved.
+	 */
+	@Override
+	public void save() {
+		metadataCache.save();
+		super.save();
+	}
+}
@@ -6,9 +6,16 @@ import java.io.File;
 import java.io.FileReader;
 import java.io.FileWriter;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
 import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveAction;
+import java.util.concurrent.RecursiveTask;
 
 import org.apache.commons.cli.ParseException;
 
@@ -19,15 +26,29 @@ public class RemoveRepeatedSentences {
 		StringOption file2 = new StringOption("f2", "file-2", "Path of 2nd text file");
 		BooleanOption prune2 = new BooleanOption("p2", "prune-file-2", "Prune lines in file2");
 		BooleanOption merge = new BooleanOption("m", "merge-files", "Merge unique lines in file1 and file2");
+		StringOption inputFiles = new StringOption("in", "input-files",
+				"Comma separated text files to be deduplicated against each other (instead of file-1/file-2)");
+		StringOption referenceFiles = new StringOption("ref", "reference-files",
+				"Comma separated text files of already recorded sentences; input lines matching them are dropped");
+		StringOption reportFile = new StringOption("report", "report-file",
+				"Report of dropped lines and the lines they matched (default: dedupe_report.tsv next to the 1st input file)");
+		DoubleOption werThreshold = new DoubleOption("wer", "wer-threshold", 0.25,
+				"Lines with a word error rate up to this value are considered close matches");
+		IntegerOption numThreads = new IntegerOption("t", "threads", Runtime.getRuntime().availableProcessors(),
+				"Number of threads used with --input-files");
 
 		public Arguments() {
 			super();
-			file1.setRequired(true);
 			options.addOption(file1);
 			options.addOption(prune1);
 			options.addOption(file2);
 			options.addOption(prune2);
 			options.addOption(merge);
+			options.addOption(inputFiles);
+			options.addOption(referenceFiles);
+			options.addOption(reportFile);
+			options.addOption(werThreshold);
+			options.addOption(numThreads);
 		}
 	}
 
@@ -56,8 +77,30 @@ public class RemoveRepeatedSentences {
 		String file2 = arguments.file2.getStringValue();
 		boolean prune2 = arguments.prune2.getBoolValue();
 		boolean merge = arguments.merge.getBoolValue();
+		double werThreshold = arguments.werThreshold.getDoubleValue();
 
-		double werThreshold = 0.25;
+		if (arguments.inputFiles.getStringValue() != null) {
+			List<String> inputFiles = Arrays.asList(arguments.inputFiles.getStringValue().split(","));
+			List<String> referenceFiles = new ArrayList<>();
+			if (arguments.referenceFiles.getStringValue() != null) {
+				referenceFiles = Arrays.asList(arguments.referenceFiles.getStringValue().split(","));
+			}
+			String reportFile = arguments.reportFile.getStringValue();
+			if (reportFile == null) {
+				reportFile = new File(new File(inputFiles.get(0)).getAbsoluteFile().getParentFile(),
+						"dedupe_report.tsv").getPath();
+			}
+			SystemTime systemTime = new SystemTime(true);
+			dedupeCorpus(inputFiles, referenceFiles, reportFile, werThreshold, arguments.numThreads.getIntValue());
+			systemTime.tock(true);
+			return;
+		}
+		if (file1 == null) {
+			System.out.println("Either " + arguments.file1.getLongOpt() + " or " + arguments.inputFiles.getLongOpt()
+					+ " is required");
+			arguments.printHelp(RemoveRepeatedSentences.class.getCanonicalName());
+			return;
+		}
 		List<String> lines1 = getLines(file1);
 		if (prune1) {
 			lines1 = removeCloseMatches(lines1, werThreshold);
@@ -110,38 +153,334 @@ public class RemoveRepeatedSentences {
 		if (lines.size() <= 1) {
 			return lines;
 		}
-		int mid = lines.size() / 2;
-		List<String> firstHalf = lines.subList(0, mid);
-		List<String> secondHalf = lines.subList(mid, lines.size());
-		List<String> uniqueInFirstHalf = removeCloseMatches(firstHalf, werThreshold);
-		List<String> uniqueInSecondHalf = removeCloseMatches(secondHalf, werThreshold);
-		return mergeUniqueLines(uniqueInFirstHalf, uniqueInSecondHalf, werThreshold);
+		// Each line is split and interned only once for all the merges
+		List<int[]> wordIds = getWordIds(new LevenshteinDistance.TokenIds<>(), lines);
+		int[] allLines = new int[lines.size()];
+		for (int i = 0; i < allLines.length; i++) {
+			allLines[i] = i;
+		}
+		int[] unique = removeCloseMatches(lines, wordIds, allLines, werThreshold, null);
+		ArrayList<String> uniqueLines = new ArrayList<>(unique.length);
+		for (int i : unique) {
+			uniqueLines.add(lines.get(i));
+		}
+		return uniqueLines;
+	}
+
+	// Same divide-and-conquer as before, on line indices
+	private static int[] removeCloseMatches(List<String> lines, List<int[]> wordIds, int[] indices,
+			double werThreshold, int[] matchedLines) {
+		if (indices.length <= 1) {
+			return indices;
+		}
+		int mid = indices.length / 2;
+		int[] uniqueInFirstHalf = removeCloseMatches(lines, wordIds, Arrays.copyOfRange(indices, 0, mid), werThreshold,
+				matchedLines);
+		int[] uniqueInSecondHalf = removeCloseMatches(lines, wordIds,
+				Arrays.copyOfRange(indices, mid, indices.length), werThreshold, matchedLines);
+		return mergeUniqueLines(lines, wordIds, uniqueInFirstHalf, uniqueInSecondHalf, werThreshold, matchedLines);
 	}
 
 	public static List<String> mergeUniqueLines(List<String> uniqueLines1, List<String> uniqueLines2,
 			double werThreshold) {
-		ArrayList<String> uniqueLines = new ArrayList<>(uniqueLines1);
-		for (String line2 : uniqueLines2) {
-			List<String> wordsInLine2 = getWords(line2.split("\t")[1]);
-			double wer = 1.0;
-			for (String line1 : uniqueLines1) {
-				List<String> wordsInLine1 = getWords(line1.split("\t")[1]);
-				wer = getWER(wordsInLine1, wordsInLine2);
-				if (wer <= werThreshold) {
-					System.out.println(
-							"Close match (wer = " + wer + ") between following sentences\n\t" + line1 + "\n\t" + line2);
-					break;
+		List<String> lines = new ArrayList<>(uniqueLines1);
+		lines.addAll(uniqueLines2);
+		int[] unique1 = new int[uniqueLines1.size()];
+		for (int i = 0; i < unique1.length; i++) {
+			unique1[i] = i;
+		}
+		int[] unique2 = new int[uniqueLines2.size()];
+		for (int i = 0; i < unique2.length; i++) {
+			unique2[i] = unique1.length + i;
+		}
+		int[] unique = mergeUniqueLines(lines, getWordIds(new LevenshteinDistance.TokenIds<>(), lines), unique1,
+				unique2, werThreshold, null);
+		ArrayList<String> uniqueLines = new ArrayList<>(unique.length);
+		for (int i : unique) {
+			uniqueLines.add(lines.get(i));
+		}
+		return uniqueLines;
+	}
+
+	/**
+	 * Returns unique1 followed by the lines of unique2 that are not a close
+	 * match (WER <= werThreshold) of any line in unique1. Candidates are found
+	 * with a {@link NearDuplicateIndex}, so only lines that share enough words
+	 * are compared; the results are the same as comparing with every line.
+	 * Close matches are printed, or if matchedLines is given, recorded in it
+	 * (matchedLines[line2] = line1).
+	 */
+	private static int[] mergeUniqueLines(List<String> lines, List<int[]> wordIds, int[] unique1, int[] unique2,
+			double werThreshold, int[] matchedLines) {
+		NearDuplicateIndex index = getIndex(wordIds, unique1, werThreshold);
+		int[] unique = Arrays.copyOf(unique1, unique1.length + unique2.length);
+		int numUnique = unique1.length;
+		for (int line2 : unique2) {
+			int[] wordIdsInLine2 = wordIds.get(line2);
+			int match = index.findFirstMatch(wordIdsInLine2);
+			if (match >= 0 && matchedLines != null) {
+				matchedLines[line2] = unique1[match];
+			} else if (match >= 0) {
+				double wer = 1.0 * LevenshteinDistance.getEditDistance(wordIds.get(unique1[match]), wordIdsInLine2)
+						/ wordIdsInLine2.length;
+				System.out.println("Close match (wer = " + wer + ") between following sentences\n\t"
+						+ lines.get(unique1[match]) + "\n\t" + lines.get(line2));
+			} else if (unique1.length > 0 || 1.0 > werThreshold) {
+				// (With nothing to compare against, a line used to be kept only if WER 1.0 exceeded the threshold)
+				unique[numUnique++] = line2;
+			}
+		}
+		return Arrays.copyOf(unique, numUnique);
+	}
+
+	private static NearDuplicateIndex getIndex(List<int[]> wordIds, int[] indices, double werThreshold) {
+		List<int[]> wordIdsInLines = new ArrayList<>(indices.length);
+		for (int i : indices) {
+			wordIdsInLines.add(wordIds.get(i));
+		}
+		return new NearDuplicateIndex(wordIdsInLines, werThreshold);
+	}
+
+	// Corpus-level deduplication
+	// --------------------------
+	// Lines of a block task are processed sequentially; blocks are stolen by idle threads
+	private static final int BLOCK_SIZE = 1024;
+
+	private interface BlockProcessor {
+		void process(int begin, int end);
+	}
+
+	// Runs a BlockProcessor over [begin, end) in blocks of BLOCK_SIZE on the current ForkJoinPool
+	private static class BlockAction extends RecursiveAction {
+		private static final long serialVersionUID = 1L;
+		BlockProcessor processor;
+		int begin;
+		int end;
+
+		BlockAction(BlockProcessor processor, int begin, int end) {
+			this.processor = processor;
+			this.begin = begin;
+			this.end = end;
+		}
+
+		@Override
+		protected void compute() {
+			if (end - begin <= BLOCK_SIZE) {
+				processor.process(begin, end);
+				return;
+			}
+			int mid = (begin + end) >>> 1;
+			invokeAll(new BlockAction(processor, begin, mid), new BlockAction(processor, mid, end));
+		}
+	}
+
+	// Parallel version of removeCloseMatches(lines, wordIds, indices, werThreshold, matchedLines), with the same result
+	private static class RemoveCloseMatchesTask extends RecursiveTask<int[]> {
+		private static final long serialVersionUID = 1L;
+		List<int[]> wordIds;
+		int[] indices;
+		double werThreshold;
+		int[] matchedLines;
+
+		RemoveCloseMatchesTask(List<int[]> wordIds, int[] indices, double werThreshold, int[] matchedLines) {
+			this.wordIds = wordIds;
+			this.indices = indices;
+			this.werThreshold = werThreshold;
+			this.matchedLines = matchedLines;
+		}
+
+		@Override
+		protected int[] compute() {
+			if (indices.length <= BLOCK_SIZE) {
+				return removeCloseMatches(null, wordIds, indices, werThreshold, matchedLines);
+			}
+			int mid = indices.length / 2;
+			RemoveCloseMatchesTask firstHalf = new RemoveCloseMatchesTask(wordIds, Arrays.copyOfRange(indices, 0, mid),
+					werThreshold, matchedLines);
+			RemoveCloseMatchesTask secondHalf = new RemoveCloseMatchesTask(wordIds,
+					Arrays.copyOfRange(indices, mid, indices.length), werThreshold, matchedLines);
+			secondHalf.fork();
+			int[] unique1 = firstHalf.compute();
+			int[] unique2 = secondHalf.join();
+
+			// Lines of the 2nd half are only compared with unique lines of the 1st half,
+			// so they can be looked up independently of each other
+			NearDuplicateIndex index = getIndex(wordIds, unique1, werThreshold);
+			new BlockAction(new BlockProcessor() {
+				@Override
+				public void process(int begin, int end) {
+					for (int j = begin; j < end; j++) {
+						int match = index.findFirstMatch(wordIds.get(unique2[j]));
+						if (match >= 0) {
+							matchedLines[unique2[j]] = unique1[match];
+						}
+					}
+				}
+			}, 0, unique2.length).invoke();
+			int[] unique = Arrays.copyOf(unique1, unique1.length + unique2.length);
+			int numUnique = unique1.length;
+			for (int line2 : unique2) {
+				if (matchedLines[line2] < 0) {
+					unique[numUnique++] = line2;
 				}
 			}
-			if (wer > werThreshold) {
-				uniqueLines.add(line2);
+			return Arrays.copyOf(unique, numUnique);
+		}
+	}
+
+	/**
+	 * Deduplicates the lines of all input files against each other and against
+	 * the (already recorded) reference lines, using up to numThreads threads.
+	 *
+	 * A line is dropped if it is a close match of a reference line, or else if
+	 * removeCloseMatches() over the concatenation of the input files (in the
+	 * given order) would drop it. The unique lines of each input file are saved
+	 * to &lt;input-file&gt;.unique, and every dropped line is listed in the report
+	 * along with the line it matched.
+	 */
+	public static void dedupeCorpus(List<String> inputFiles, List<String> referenceFiles, String reportFile,
+			double werThreshold, int numThreads) {
+		List<String> lines = new ArrayList<>();
+		List<Integer> fileEnds = new ArrayList<>();
+		for (String inputFile : inputFiles) {
+			lines.addAll(getLines(inputFile));
+			fileEnds.add(lines.size());
+		}
+		List<String> referenceLines = new ArrayList<>();
+		List<Integer> referenceFileEnds = new ArrayList<>();
+		for (String referenceFile : referenceFiles) {
+			referenceLines.addAll(getLines(referenceFile));
+			referenceFileEnds.add(referenceLines.size());
+		}
+		System.out.println("Deduplicating " + lines.size() + " lines in " + inputFiles.size() + " files against "
+				+ referenceLines.size() + " reference lines");
+
+		ForkJoinPool pool = new ForkJoinPool(Math.max(1, numThreads));
+		try {
+			// Shared by the input and reference lines, whose word ids are compared
+			LevenshteinDistance.TokenIds<String> tokenIds = new LevenshteinDistance.TokenIds<>();
+			List<int[]> wordIds = getWordIdsInParallel(pool, tokenIds, lines);
+			List<int[]> referenceWordIds = getWordIdsInParallel(pool, tokenIds, referenceLines);
+
+			// 1) Lines matching an already recorded sentence
+			int[] matchedReferences = new int[lines.size()];
+			Arrays.fill(matchedReferences, -1);
+			if (!referenceLines.isEmpty()) {
+				NearDuplicateIndex referenceIndex = new NearDuplicateIndex(referenceWordIds, werThreshold);
+				pool.invoke(new BlockAction(new BlockProcessor() {
+					@Override
+					public void process(int begin, int end) {
+						for (int i = begin; i < end; i++) {
+							matchedReferences[i] = referenceIndex.findFirstMatch(wordIds.get(i));
+						}
+					}
+				}, 0, lines.size()));
 			}
+
+			// 2) Close matches among the remaining lines
+			int numRemaining = 0;
+			int[] remaining = new int[lines.size()];
+			for (int i = 0; i < lines.size(); i++) {
+				if (matchedReferences[i] < 0) {
+					remaining[numRemaining++] = i;
+				}
+			}
+			int[] matchedLines = new int[lines.size()];
+			Arrays.fill(matchedLines, -1);
+			pool.invoke(new RemoveCloseMatchesTask(wordIds, Arrays.copyOf(remaining, numRemaining), werThreshold,
+					matchedLines));
+
+			saveCorpusResults(inputFiles, fileEnds, lines, wordIds, matchedLines, referenceFiles, referenceFileEnds,
+					referenceLines, referenceWordIds, matchedReferences, reportFile);
+		} finally {
+			pool.shutdown();
 		}
-		return uniqueLines;
+	}
+
+	private static List<int[]> getWordIdsInParallel(ForkJoinPool pool, LevenshteinDistance.TokenIds<String> tokenIds,
+			List<String> lines) {
+		int[][] wordIds = new int[lines.size()][];
+		pool.invoke(new BlockAction(new BlockProcessor() {
+			@Override
+			public void process(int begin, int end) {
+				for (int i = begin; i < end; i++) {
+					wordIds[i] = getWordIds(tokenIds, lines.get(i));
+				}
+			}
+		}, 0, lines.size()));
+		return Arrays.asList(wordIds);
+	}
+
+	private static void saveCorpusResults(List<String> inputFiles, List<Integer> fileEnds, List<String> lines,
+			List<int[]> wordIds, int[] matchedLines, List<String> referenceFiles, List<Integer> referenceFileEnds,
+			List<String> referenceLines, List<int[]> referenceWordIds, int[] matchedReferences, String reportFile) {
+		try (BufferedWriter report = Files.newBufferedWriter(Paths.get(reportFile), StandardCharsets.UTF_8)) {
+			report.write("file\tid\tmatched_file\tmatched_id\twer" + System.lineSeparator());
+			int begin = 0;
+			for (int f = 0; f < inputFiles.size(); f++) {
+				int end = fileEnds.get(f);
+				String fileName = new File(inputFiles.get(f)).getName();
+				List<String> uniqueLines = new ArrayList<>();
+				for (int i = begin; i < end; i++) {
+					String matchedFileName;
+					String matchedLine;
+					int[] matchedWordIds;
+					if (matchedReferences[i] >= 0) {
+						int r = matchedReferences[i];
+						matchedFileName = new File(referenceFiles.get(getFileIndex(referenceFileEnds, r))).getName();
+						matchedLine = referenceLines.get(r);
+						matchedWordIds = referenceWordIds.get(r);
+					} else if (matchedLines[i] >= 0) {
+						int l = matchedLines[i];
+						matchedFileName = new File(inputFiles.get(getFileIndex(fileEnds, l))).getName();
+						matchedLine = lines.get(l);
+						matchedWordIds = wordIds.get(l);
+					} else {
+						uniqueLines.add(lines.get(i));
+						continue;
+					}
+					double wer = 1.0 * LevenshteinDistance.getEditDistance(matchedWordIds, wordIds.get(i))
+							/ wordIds.get(i).length;
+					report.write(fileName + "\t" + lines.get(i).split("\t")[0] + "\t" + matchedFileName + "\t"
+							+ matchedLine.split("\t")[0] + "\t" + String.format(Locale.ROOT, "%.4f", wer) + System.lineSeparator());
+				}
+				saveLines(inputFiles.get(f) + ".unique", uniqueLines);
+				System.out.println(inputFiles.get(f) + ": " + uniqueLines.size() + "/" + (end - begin)
+						+ " unique lines saved to " + inputFiles.get(f) + ".unique");
+				begin = end;
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+		System.out.println("Report saved to " + reportFile);
+	}
+
+	// Index of the file that the given line (of the concatenated files) belongs to
+	private static int getFileIndex(List<Integer> fileEnds, int line) {
+		int f = 0;
+		while (line >= fileEnds.get(f)) {
+			f++;
+		}
+		return f;
+	}
+
+	// Words are interned, so that lines can be compared as int arrays. The ids are
+	// only comparable within one TokenIds, which lives as long as the call that
+	// created it, so the words of one corpus are not kept after it is processed.
+	private static int[] getWordIds(LevenshteinDistance.TokenIds<String> tokenIds, String line) {
+		return tokenIds.getIds(getWords(line.split("\t")[1]));
+	}
+
+	private static List<int[]> getWordIds(LevenshteinDistance.TokenIds<String> tokenIds, List<String> lines) {
+		List<int[]> lineWordIds = new ArrayList<>(lines.size());
+		for (String line : lines) {
+			lineWordIds.add(getWordIds(tokenIds, line));
+		}
+		return lineWordIds;
 	}
 
 	public static List<String> getWords(String line) {
-		return Arrays.asList(line.split("\\s+"));
+		return Arrays.asList(TextPatterns.WHITESPACES.split(line));
 	}
 
 	public static double getWER(List<String> wordsInLine1, List<String> wordsInLine2) {
@@ -1,13 +1,28 @@
 package ai.bhashini.tts.utils;
 
+import java.io.BufferedWriter;
 import java.io.File;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import org.apache.commons.cli.ParseException;
 
 public class RepairAudio {
 	static double MIN_SPIKE_PERCENT = 0.85;
 	static double CLIP_PERCENT = 90.0;
+	// Frames per channel read at a time in streaming mode
+	static final int CHUNK_FRAMES = 1 << 16;
 
 	public static class Arguments extends CommandLineOptions {
 		StringOption inputDir = new StringOption("in", "input-dir",
@@ -17,6 +32,12 @@ public class RepairAudio {
 				"Minimum absolute spike amplitude as a fraction of quantization max (range 0..1)");
 		DoubleOption clipPercent = new DoubleOption("cp", "clip-percent", CLIP_PERCENT,
 				"Normalize so peak amplitude is this percentage of full-scale range");
+		BooleanOption streaming = new BooleanOption("s", "streaming",
+				"Repair each file in two passes over fixed-size chunks instead of loading it whole. Use this for very long recordings.");
+		IntegerOption numThreads = new IntegerOption("t", "threads", 1,
+				"Number of .wav files repaired in parallel (in streaming mode)");
+		StringOption reportFile = new StringOption("report", "report-file",
+				"Tab-separated report with the duration, number of repaired artifacts, original peak and applied gain of each file");
 
 		public Arguments() {
 			super();
@@ -26,6 +47,57 @@ public class RepairAudio {
 			options.addOption(outputDir);
 			options.addOption(minSpikePercent);
 			options.addOption(clipPercent);
+			options.addOption(streaming);
+			options.addOption(numThreads);
+			options.addOption(reportFile);
+		}
+	}
+
+	// Receives frames [from, to) of the chunk in samples, once they are final
+	private interface ChunkHandler {
+		void handle(long[][] samples, int from, int to) throws IOException, WavFileException;
+	}
+
+	// Chunk buffers of a thread, reused for all the files it repairs in streaming mode
+	private static class ChunkBuffers {
+		long[][] samples = new long[0][];
+		double[][] normalized = new double[0][];
+
+		void ensureChannels(int numChannels) {
+			if (samples.length < numChannels) {
+				samples = new long[numChannels][CHUNK_FRAMES];
+				normalized = new double[numChannels][CHUNK_FRAMES];
+			}
+		}
+	}
+
+	private static final ThreadLocal<ChunkBuffers> buffers = new ThreadLocal<ChunkBuffers>() {
+		@Override
+		protected ChunkBuffers initialValue() {
+			return new ChunkBuffers();
+		}
+	};
+
+	public static class RepairResult {
+		public static final String REPORT_HEADER = "file\tduration_secs\trepaired_artifacts\toriginal_peak\tgain\terror";
+
+		public String fileName;
+		public int repairedCount;
+		public double originalPeak; // Before repair, as a fraction of full scale
+		public double gain; // Factor applied to the repaired audio
+		public double durationInSecs;
+		public String error; // Null if the file was repaired
+
+		public RepairResult(String fileName) {
+			this.fileName = fileName;
+		}
+
+		public String toReportLine() {
+			// Locale.ROOT, so that the numbers are parsable whatever the default locale
+			return fileName + "\t" + String.format(Locale.ROOT, "%.3f", durationInSecs) + "\t" + repairedCount + "\t"
+					+ String.format(Locale.ROOT, "%.6f", originalPeak) + "\t"
+					+ String.format(Locale.ROOT, "%.6f", gain) + "\t"
+					+ (error == null ? "" : error.replace('\t', ' ').replace('\n', ' ').replace('\r', ' '));
 		}
 	}
 
@@ -53,14 +125,32 @@ public class RepairAudio {
 		File outputDir = new File(arguments.outputDir.getStringValue());
 		File[] inputWavFiles = FileUtils.getWavFiles(inputDir);
 
+		boolean streaming = arguments.streaming.getBoolValue();
+		int numThreads = arguments.numThreads.getIntValue();
+		String reportFile = arguments.reportFile.getStringValue();
 		int totalArtifacts = 0;
-		for (int i = 0; i < inputWavFiles.length; i++) {
-			File inputWavFile = inputWavFiles[i];
-			File outputWavFile = new File(outputDir, inputWavFile.getName());
-			int repairedCount = repair(inputWavFile.getAbsolutePath(), outputWavFile.getAbsolutePath(),
-					arguments.minSpikePercent.getDoubleValue(), arguments.clipPercent.getDoubleValue());
-			totalArtifacts += repairedCount;
-			System.out.println(inputWavFile.getName() + ": " + repairedCount);
+		if (numThreads > 1 || reportFile != null) {
+			List<RepairResult> results = repairInParallel(inputWavFiles, outputDir,
+					arguments.minSpikePercent.getDoubleValue(), arguments.clipPercent.getDoubleValue(), numThreads,
+					reportFile);
+			for (RepairResult result : results) {
+				totalArtifacts += result.repairedCount;
+			}
+		} else {
+			for (int i = 0; i < inputWavFiles.length; i++) {
+				File inputWavFile = inputWavFiles[i];
+				File outputWavFile = new File(outputDir, inputWavFile.getName());
+				int repairedCount;
+				if (streaming) {
+					repairedCount = repairStreaming(inputWavFile.getAbsolutePath(), outputWavFile.getAbsolutePath(),
+							arguments.minSpikePercent.getDoubleValue(), arguments.clipPercent.getDoubleValue());
+				} else {
+					repairedCount = repair(inputWavFile.getAbsolutePath(), outputWavFile.getAbsolutePath(),
+							arguments.minSpikePercent.getDoubleValue(), arguments.clipPercent.getDoubleValue());
+				}
+				totalArtifacts += repairedCount;
+				System.out.println(inputWavFile.getName() + ": " + repairedCount);
+			}
 		}
 
 		System.out.println("");
@@ -91,6 +181,193 @@ public class RepairAudio {
 		return 0;
 	}
 
+	/**
+	 * Same output as {@link #repair}, in constant memory. The first pass detects
+	 * clicks and computes the peak of the repaired audio chunk by chunk, the
+	 * second pass reads the file again, repairs, scales and writes it.
+	 */
+	public static int repairStreaming(String inputWavFilePath, String outputWavFilePath, double minSpikePercent,
+			double clipPercent) {
+		try {
+			return repairStreaming(new File(inputWavFilePath), new File(outputWavFilePath), minSpikePercent,
+					clipPercent).repairedCount;
+		} catch (IOException | WavFileException e) {
+			e.printStackTrace();
+		}
+		return 0;
+	}
+
+	public static RepairResult repairStreaming(File inputWavFile, File outputWavFile, double minSpikePercent,
+			double clipPercent) throws IOException, WavFileException {
+		RepairResult result = new RepairResult(inputWavFile.getName());
+		WavHeader header = WavHeader.read(inputWavFile);
+		int numChannels = header.getNumChannels();
+		int validBits = header.getValidBits();
+		double quantizationMax = WavFile.getQuantizationMax(validBits);
+		long minSpikeAmplitude = Math.max(1L, Math.round(Math.abs(minSpikePercent) * quantizationMax));
+		ChunkBuffers chunkBuffers = buffers.get();
+		chunkBuffers.ensureChannels(numChannels);
+		double[][] normalized = chunkBuffers.normalized;
+		AudioKernels kernels = AudioKernels.get();
+
+		// First pass: peak of the repaired audio and number of frames actually present
+		long[] absMax = new long[1];
+		long[] originalAbsMax = new long[1];
+		long[] numFrames = new long[1];
+		result.repairedCount = repairInChunks(inputWavFile, chunkBuffers.samples, minSpikeAmplitude, originalAbsMax,
+				new ChunkHandler() {
+					@Override
+					public void handle(long[][] samples, int from, int to) {
+						for (int c = 0; c < numChannels; c++) {
+							absMax[0] = Math.max(absMax[0], kernels.absMax(samples[c], from, to));
+						}
+						numFrames[0] += to - from;
+					}
+				});
+		// Same as getAbsMax() and normalizeAndClip()
+		long peak = Math.max(0, absMax[0] - 1);
+		double scale = peak / (quantizationMax * getClipRatio(clipPercent));
+		result.originalPeak = originalAbsMax[0] / quantizationMax;
+		result.gain = peak <= 0 ? 0 : 1 / scale;
+		result.durationInSecs = 1.0 * numFrames[0] / header.getSampleRate();
+
+		// Second pass
+		outputWavFile.getAbsoluteFile().getParentFile().mkdirs();
+		WavFile writeWavFile = WavFile.newWavFile(outputWavFile, numChannels, numFrames[0], validBits,
+				header.getSampleRate());
+		try {
+			repairInChunks(inputWavFile, chunkBuffers.samples, minSpikeAmplitude, null, new ChunkHandler() {
+				@Override
+				public void handle(long[][] samples, int from, int to) throws IOException, WavFileException {
+					for (int c = 0; c < numChannels; c++) {
+						if (peak <= 0) {
+							Arrays.fill(normalized[c], from, to, 0);
+						} else {
+							kernels.scale(samples[c], from, normalized[c], from, to - from, scale);
+							kernels.divide(normalized[c], from, to - from, quantizationMax);
+						}
+					}
+					writeWavFile.writeFrames(normalized, from, to - from);
+				}
+			});
+		} finally {
+			writeWavFile.close();
+		}
+		return result;
+	}
+
+	/**
+	 * Repairs the given files with numThreads threads (in streaming mode, so each
+	 * thread needs only its own chunk buffers) and writes a tab-separated report
+	 * with one line per file, in the order of inputWavFiles, to reportFile (if not
+	 * null). Returns the results in the same order.
+	 */
+	public static List<RepairResult> repairInParallel(File[] inputWavFiles, File outputDir, double minSpikePercent,
+			double clipPercent, int numThreads, String reportFile) {
+		ExecutorService executor = Executors.newFixedThreadPool(Math.max(1, numThreads));
+		List<Future<RepairResult>> futures = new ArrayList<>();
+		for (File inputWavFile : inputWavFiles) {
+			File outputWavFile = new File(outputDir, inputWavFile.getName());
+			futures.add(executor.submit(new Callable<RepairResult>() {
+				@Override
+				public RepairResult call() {
+					try {
+						return repairStreaming(inputWavFile, outputWavFile, minSpikePercent, clipPercent);
+					} catch (IOException | WavFileException | RuntimeException e) {
+						RepairResult result = new RepairResult(inputWavFile.getName());
+						result.error = e.toString();
+						return result;
+					}
+				}
+			}));
+		}
+		executor.shutdown();
+
+		List<RepairResult> results = new ArrayList<>();
+		try {
+			for (Future<RepairResult> future : futures) {
+				RepairResult result = future.get();
+				results.add(result);
+				System.out.println(result.fileName + ": "
+						+ (result.error == null ? result.repairedCount : "failed (" + result.error + ")"));
+			}
+		} catch (InterruptedException e) {
+			executor.shutdownNow();
+			Thread.currentThread().interrupt();
+			return results;
+		} catch (ExecutionException e) {
+			e.printStackTrace();
+		}
+
+		if (reportFile != null) {
+			try (BufferedWriter report = Files.newBufferedWriter(Paths.get(reportFile), StandardCharsets.UTF_8)) {
+				report.write(RepairResult.REPORT_HEADER + "\n");
+				for (RepairResult result : results) {
+					report.write(result.toReportLine() + "\n");
+				}
+				System.out.println("Report saved to " + reportFile);
+			} catch (IOException e) {
+				e.printStackTrace();
+			}
+		}
+		return results;
+	}
+
+	/**
+	 * Reads the file chunk by chunk into samples and repairs the clicks exactly as
+	 * repairNegativeClicks() would on the whole file: the last two frames of each
+	 * chunk (the last one not checked yet, as its next neighbour is unknown, and
+	 * its possibly repaired predecessor) are carried over to the start of the next
+	 * chunk. The handler gets every frame once, in order, after it is final.
+	 */
+	private static int repairInChunks(File wavFile, long[][] samples, long minSpikeAmplitude, long[] originalAbsMax,
+			ChunkHandler handler) throws IOException, WavFileException {
+		WavFile readWavFile = WavFile.openWavFile(wavFile);
+		try {
+			int numChannels = readWavFile.getNumChannels();
+			int capacity = samples[0].length;
+			int repairedCount = 0;
+			int carried = 0;
+			while (true) {
+				int framesRead = 0;
+				while (carried + framesRead < capacity) {
+					int n = readWavFile.readFrames(samples, carried + framesRead, capacity - carried - framesRead);
+					if (n == 0) {
+						break;
+					}
+					framesRead += n;
+				}
+				int length = carried + framesRead;
+				boolean last = length < capacity || readWavFile.getFramesRemaining() == 0;
+				if (originalAbsMax != null) {
+					for (int c = 0; c < numChannels; c++) {
+						originalAbsMax[0] = Math.max(originalAbsMax[0],
+								AudioKernels.get().absMax(samples[c], carried, length));
+					}
+				}
+				for (int c = 0; c < numChannels; c++) {
+					repairedCount += repairNegativeClicks(samples[c], length, minSpikeAmplitude);
+				}
+				// The first carried frame was handled with the previous chunk
+				int from = carried == 0 ? 0 : 1;
+				int to = last ? length : length - 1;
+				if (to > from) {
+					handler.handle(samples, from, to);
+				}
+				if (last) {
+					return repairedCount;
+				}
+				for (int c = 0; c < numChannels; c++) {
+					samples[c][0] = samples[c][length - 2];
+					samples[c][1] = samples[c][length - 1];
+				}
+				carried = 2;
+			}
+		} finally {
+			readWavFile.close();
+		}
+	}
+
 	private static AudioData readWavAudio(String wavFilePath) throws IOException, WavFileException {
 		WavFile wavFile = WavFile.openWavFile(new File(wavFilePath));
 		try {
@@ -158,8 +435,7 @@ public class RepairAudio {
 		return repairedCount;
 	}
 
-	public static double[][] normalizeAndClip(long[][] audio, int numChannels, int numFrames, int bitsPerSample,
-			double clipPercent) {
+	private static double getClipRatio(double clipPercent) {
 		double clipRatio = clipPercent / 100.0;
 		if (clipRatio <= 0.0) {
 			clipRatio = 0.9;
@@ -167,6 +443,12 @@ public class RepairAudio {
 		if (clipRatio > 1.0) {
 			clipRatio = 1.0;
 		}
+		return clipRatio;
+	}
+
+	public static double[][] normalizeAndClip(long[][] audio, int numChannels, int numFrames, int bitsPerSample,
+			double clipPercent) {
+		double clipRatio = getClipRatio(clipPercent);
 
 		long absMax = getAbsMax(audio, numChannels, numFrames);
 		double[][] normalized = new double[numChannels][numFrames];
@@ -178,10 +460,10 @@ public class RepairAudio {
 		double targetPeak = quantizationMax * clipRatio;
 		double scale = absMax / targetPeak;
 
+		AudioKernels kernels = AudioKernels.get();
 		for (int c = 0; c < numChannels; c++) {
-			for (int i = 0; i < numFrames; i++) {
-				normalized[c][i] = audio[c][i] / scale / quantizationMax;
-			}
+			kernels.scale(audio[c], 0, normalized[c], 0, numFrames, scale);
+			kernels.divide(normalized[c], 0, numFrames, quantizationMax);
 		}
 		return normalized;
 	}
@@ -198,12 +480,7 @@ public class RepairAudio {
 	public static long getAbsMax(long[][] data, int numChannels, int numFrames) {
 		long max = 0;
 		for (int c = 0; c < numChannels; c++) {
-			for (int i = 0; i < numFrames; i++) {
-				long value = Math.abs(data[c][i]);
-				if (value > max) {
-					max = value;
-				}
-			}
+			max = Math.max(max, AudioKernels.get().absMax(data[c], 0, numFrames));
 		}
 		return Math.max(0, max - 1); // keep headroom to prevent clipping
 	}
@@ -0,0 +1,243 @@
+package ai.bhashini.tts.utils;
+
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Polyphase windowed-sinc sample rate converter.
+ *
+ * The conversion ratio is reduced to upFactor/downFactor (e.g. 48000 -> 22050
+ * becomes 147/320). For every one of the upFactor fractional input positions a
+ * Kaiser windowed sinc filter is precomputed, so converting a sample is a plain
+ * dot product over numTaps input samples. Instances (and therefore the
+ * filter tables) are cached per (srcRate, dstRate, filterLength) and are
+ * immutable, so they can be shared between threads.
+ */
+public class Resampler {
+	// Number of filter taps when upsampling. When downsampling, the filter is
+	// widened by srcRate/dstRate so that its transition band stays the same
+	// relative to the target rate. Longer filters give a sharper cutoff (less
+	// aliasing) at proportionally higher cost.
+	public static final int DEFAULT_FILTER_LENGTH = 32;
+	public static final int MIN_FILTER_LENGTH = 4;
+
+	// Passband edge as a fraction of the lower of the two Nyquist frequencies
+	static final double ROLLOFF = 0.95;
+	static final double KAISER_BETA = 8.6;
+
+	protected int srcRate;
+	protected int dstRate;
+	protected int upFactor;
+	protected int downFactor;
+	protected int numTaps;
+	protected double[] filterTable; // upFactor phases x numTaps coefficients
+
+	// Singleton per conversion => private constructor
+	private Resampler(int srcRate, int dstRate, int filterLength) {
+		if (srcRate <= 0 || dstRate <= 0) {
+			throw new IllegalArgumentException("Sampling rates must be positive: " + srcRate + " -> " + dstRate);
+		}
+		this.srcRate = srcRate;
+		this.dstRate = dstRate;
+		int gcd = gcd(srcRate, dstRate);
+		this.upFactor = dstRate / gcd;
+		this.downFactor = srcRate / gcd;
+
+		double ratio = Math.min(1.0, (double) upFactor / downFactor);
+		int halfLength = (int) Math.ceil(Math.max(MIN_FILTER_LENGTH, filterLength) / (2 * ratio));
+		this.numTaps = 2 * halfLength;
+		this.filterTable = createFilterTable(upFactor, halfLength, ratio * ROLLOFF);
+	}
+
+	// Thread-safe map
+	private static ConcurrentHashMap<String, Resampler> uniqueInstancesMap = new ConcurrentHashMap<>();
+
+	public static Resampler getInstance(int srcRate, int dstRate) {
+		return getInstance(srcRate, dstRate, DEFAULT_FILTER_LENGTH);
+	}
+
+	public static Resampler getInstance(int srcRate, int dstRate, int filterLength) {
+		String key = srcRate + ":" + dstRate + ":" + filterLength;
+		return uniqueInstancesMap.computeIfAbsent(key, k -> new Resampler(srcRate, dstRate, filterLength));
+	}
+
+	private static int gcd(int a, int b) {
+		while (b != 0) {
+			int t = a % b;
+			a = b;
+			b = t;
+		}
+		return a;
+	}
+
+	private static double[] createFilterTable(int numPhases, int halfLength, double cutoff) {
+		int numTaps = 2 * halfLength;
+		double[] table = new double[numPhases * numTaps];
+		double i0Beta = besselI0(KAISER_BETA);
+		for (int phase = 0; phase < numPhases; phase++) {
+			double fraction = (double) phase / numPhases;
+			double sum = 0.0;
+			for (int j = 0; j < numTaps; j++) {
+				// Distance (in input samples) between tap j and the output position
+				double d = j - halfLength + 1 - fraction;
+				double x = d / halfLength;
+				double window = besselI0(KAISER_BETA * Math.sqrt(Math.max(0.0, 1 - x * x))) / i0Beta;
+				double h = cutoff * sinc(cutoff * d) * window;
+				table[phase * numTaps + j] = h;
+				sum += h;
+			}
+			// Unity gain at DC for every phase
+			for (int j = 0; j < numTaps; j++) {
+				table[phase * numTaps + j] /= sum;
+			}
+		}
+		return table;
+	}
+
+	private static double sinc(double x) {
+		if (x == 0.0) {
+			return 1.0;
+		}
+		return Math.sin(Math.PI * x) / (Math.PI * x);
+	}
+
+	// Modified Bessel function of the first kind, order 0
+	private static double besselI0(double x) {
+		double sum = 1.0;
+		double term = 1.0;
+		double halfX = x / 2;
+		for (int k = 1; k < 50; k++) {
+			term *= (halfX / k) * (halfX / k);
+			sum += term;
+			if (term < sum * 1e-17) {
+				break;
+			}
+		}
+		return sum;
+	}
+
+	public int getSrcRate() {
+		return srcRate;
+	}
+
+	public int getDstRate() {
+		return dstRate;
+	}
+
+	public int getNumTaps() {
+		return numTaps;
+	}
+
+	public int getOutputLength(int inputLength) {
+		return (int) (((long) inputLength * upFactor + downFactor - 1) / downFactor);
+	}
+
+	public double[] resample(double[] input) {
+		return resample(input, input.length);
+	}
+
+	public double[] resample(double[] input, int inputLength) {
+		double[] output = new double[getOutputLength(inputLength)];
+		resample(input, inputLength, output);
+		return output;
+	}
+
+	/**
+	 * Resamples the first inputLength samples of input into output, which must
+	 * hold at least getOutputLength(inputLength) samples. Returns the number of
+	 * samples written.
+	 */
+	public int resample(double[] input, int inputLength, double[] output) {
+		int outputLength = getOutputLength(inputLength);
+		resampleBlock(input, 0, inputLength, inputLength, output, 0, outputLength);
+		return outputLength;
+	}
+
+	// Index of the first input sample that output sample n depends on
+	public long getFirstInputIndex(long n) {
+		return n * downFactor / upFactor - numTaps / 2 + 1;
+	}
+
+	// Number of output samples that only depend on input samples before inputEnd
+	public long getNumOutputsBefore(long inputEnd) {
+		// n is covered while floor(n * downFactor / upFactor) + numTaps / 2 < inputEnd
+		long limit = inputEnd - numTaps / 2;
+		if (limit <= 0) {
+			return 0;
+		}
+		return (limit * upFactor + downFactor - 1) / downFactor;
+	}
+
+	/**
+	 * Computes output samples [outputBegin, outputEnd) of an input signal that
+	 * is inputLength samples long, from a block holding input samples
+	 * [blockStart, blockStart + blockLength). The block must contain every
+	 * sample within [0, inputLength) that these outputs depend on. The outputs
+	 * are identical to those of a single resample() call over the whole input,
+	 * so the input can be streamed through a small buffer.
+	 */
+	public void resampleBlock(double[] block, long blockStart, int blockLength, long inputLength, double[] output,
+			long outputBegin, long outputEnd) {
+		if (upFactor == downFactor) {
+			for (long n = outputBegin; n < outputEnd; n++) {
+				output[(int) n] = block[(int) (n - blockStart)];
+			}
+			return;
+		}
+		int halfLength = numTaps / 2;
+		long inputIndex = outputBegin * downFactor / upFactor;
+		int phase = (int) (outputBegin * downFactor % upFactor);
+		for (long n = outputBegin; n < outputEnd; n++) {
+			long start = inputIndex - halfLength + 1;
+			int pos = (int) (start - blockStart);
+			int base = phase * numTaps;
+			double sum = 0.0;
+			if (start >= 0 && start + numTaps <= inputLength) {
+				// numTaps is even; two independent accumulators keep the FP adders busy
+				double sum1 = 0.0;
+				for (int j = 0; j < numTaps; j += 2) {
+					sum += block[pos + j] * filterTable[base + j];
+					sum1 += block[pos + j + 1] * filterTable[base + j + 1];
+				}
+				sum += sum1;
+			} else {
+				int jBegin = (int) Math.max(0, -start);
+				int jEnd = (int) Math.min(numTaps, inputLength - start);
+				for (int j = jBegin; j < jEnd; j++) {
+					sum += block[pos + j] * filterTable[base + j];
+				}
+			}
+			output[(int) n] = sum;
+
+			phase += downFactor;
+			inputIndex += phase / upFactor;
+			phase %= upFactor;
+		}
+	}
+
+	public float[] resample(float[] input) {
+		float[] output = new float[getOutputLength(input.length)];
+		if (upFactor == downFactor) {
+			System.arraycopy(input, 0, output, 0, input.length);
+			return output;
+		}
+		int halfLength = numTaps / 2;
+		int inputIndex = 0;
+		int phase = 0;
+		for (int n = 0; n < output.length; n++) {
+			int start = inputIndex - halfLength + 1;
+			int base = phase * numTaps;
+			int jBegin = Math.max(0, -start);
+			int jEnd = Math.min(numTaps, input.length - start);
+			double sum = 0.0;
+			for (int j = jBegin; j < jEnd; j++) {
+				sum += input[start + j] * filterTable[base + j];
+			}
+			output[n] = (float) sum;
+
+			phase += downFactor;
+			inputIndex += phase / upFactor;
+			phase %= upFactor;
+		}
+		return output;
+	}
+}
@@ -3,14 +3,24 @@ package ai.bhashini.tts.utils;
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
 import java.io.File;
-import java.io.FileWriter;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStreamWriter;
 import java.nio.charset.StandardCharsets;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.HashSet;
+import java.util.List;
+import java.util.concurrent.Callable;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 import java.util.regex.Pattern;
 
 import org.apache.commons.cli.ParseException;
@@ -89,15 +99,15 @@ public class SentenceSplitter {
 		return normalizeAndSplit(language, text, MAX_UNICODES_IN_SENTENCE);
 	}
 
+	protected static final Pattern SQUARE_BRACKETS_PATTERN = Pattern
+			.compile("\\[\\s*(\\p{Nd}[\\p{Nd},\\-–—\\s]*)\\s*\\]");
+
 	public static String removeSquareBrackets(String text) {
 		// Replace "[123]" or "[12, 34]" with "123," or "12, 34," (retain inner numbers/text, remove '[' and replace ']' with ',')
 		// Use \p{Nd} to match Unicode digits (so native digits in other scripts are matched too).
-		String newText = text.replaceAll("\\[\\s*(\\p{Nd}[\\p{Nd},\\-–—\\s]*)\\s*\\]", "$1,");
+		String newText = SQUARE_BRACKETS_PATTERN.matcher(text).replaceAll("$1,");
 		// Collapse multiple commas/spaces introduced by consecutive references or replacements
-		newText = newText.replaceAll(",\\s*,+", ",");
-		newText = newText.replaceAll("\\s+,", ",");
-		newText = newText.replaceAll(",\\s+", ", ");
-		return newText;
+		return TextPatterns.cleanUpCommas(newText);
 	}
 
 	public static ArrayList<Paragraph> normalizeAndSplit(Language language, String text, int maxUnicodesInSentence) {
@@ -112,7 +122,7 @@ public class SentenceSplitter {
 
 	public ArrayList<Paragraph> splitText(String normalizedExpandedText, int maxUnicodesInSentence) {
 		ArrayList<Paragraph> paragraphs = new ArrayList<>();
-		for (String paragraphText : normalizedExpandedText.split("\\R")) {
+		for (String paragraphText : TextPatterns.LINE_BREAK.split(normalizedExpandedText)) {
 			if (paragraphText.isBlank()) {
 				continue;
 			}
@@ -166,7 +176,7 @@ public class SentenceSplitter {
 		ArrayList<String> sentences = new ArrayList<>();
 		for (int i = 0; i < candidateSentences.size(); i++) {
 			String sentence = candidateSentences.get(i);
-			String[] words = sentence.split("\\s+");
+			String[] words = TextPatterns.WHITESPACES.split(sentence);
 			if (words.length == 0) {
 				continue;
 			}
@@ -249,25 +259,127 @@ public class SentenceSplitter {
 
 	public static void splitTextInFile(String inputFilePath, String outputFilePath, boolean normalize,
 			Language language, Script script) {
-		String fileContents = FileUtils.getFileContents(inputFilePath);
+		try {
+			splitTextInFile(new File(inputFilePath), new File(outputFilePath), normalize, language, script);
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	// Same as above, but throws the exception if the input can't be read or the output written
+	public static void splitTextInFile(File inputFile, File outputFile, boolean normalize, Language language,
+			Script script) throws IOException {
+		// UTF-8 in and out, like the streaming version
+		String fileContents = FileUtils.readFileContents(inputFile.getPath(), StandardCharsets.UTF_8);
 		ArrayList<Paragraph> splitText;
 		if (normalize) {
 			splitText = normalizeAndSplit(language, fileContents, MAX_UNICODES_IN_SENTENCE);
 		} else {
 			splitText = SentenceSplitter.getInstance(script).splitText(fileContents, MAX_UNICODES_IN_SENTENCE);
 		}
-		try (BufferedWriter bw = new BufferedWriter(new FileWriter(outputFilePath))) {
+		try (BufferedWriter bw = new BufferedWriter(
+				new OutputStreamWriter(new FileOutputStream(outputFile), StandardCharsets.UTF_8))) {
 			for (Paragraph p : splitText) {
 				for (String s : p.sentences) {
 					bw.write(s + "\n");
 				}
 				bw.write("\n");
 			}
-		} catch (IOException e) {
-			e.printStackTrace();
 		}
 	}
 
+	// Number of lines (paragraphs) processed by one task
+	protected static final int BATCH_SIZE = 256;
+	private static final int IO_BUFFER_SIZE = 1 << 16;
+
+	/**
+	 * Same as {@link #splitTextInFile}, but reads the input (as UTF-8) one
+	 * paragraph, i.e. line, at a time instead of loading the whole file.
+	 * Batches of paragraphs are normalized and split on numThreads threads and
+	 * the sentences are written in input order as the batches finish, with at
+	 * most 2 * numThreads batches in memory, so memory use does not depend on
+	 * the size of the input. Each paragraph is normalized on its own, so unlike
+	 * splitTextInFile, normalization patterns never match across line breaks.
+	 * If reading, splitting or writing fails, the incomplete output file is
+	 * deleted and the exception thrown.
+	 */
+	public static void splitTextInFileStreaming(File inputFile, File outputFile, boolean normalize,
+			Language language, Script script, int numThreads) throws IOException {
+		numThreads = Math.max(1, numThreads);
+		ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+		ArrayDeque<Future<String>> pendingBatches = new ArrayDeque<>();
+		int maxPendingBatches = 2 * numThreads;
+		boolean completed = false;
+		try (BufferedReader br = new BufferedReader(new InputStreamReader(new FileInputStream(inputFile),
+				StandardCharsets.UTF_8), IO_BUFFER_SIZE);
+				BufferedWriter bw = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(outputFile),
+						StandardCharsets.UTF_8), IO_BUFFER_SIZE)) {
+			ArrayList<String> lines = new ArrayList<>();
+			boolean firstBatch = true;
+			String line;
+			while ((line = br.readLine()) != null) {
+				lines.add(line);
+				if (lines.size() == BATCH_SIZE) {
+					while (pendingBatches.size() >= maxPendingBatches) {
+						bw.write(pendingBatches.poll().get());
+					}
+					pendingBatches.add(executor.submit(
+							getSplitTask(lines, firstBatch, normalize, language, script)));
+					lines = new ArrayList<>();
+					firstBatch = false;
+				}
+			}
+			pendingBatches.add(executor.submit(getSplitTask(lines, firstBatch, normalize, language, script)));
+			while (!pendingBatches.isEmpty()) {
+				bw.write(pendingBatches.poll().get());
+			}
+			completed = true;
+		} catch (ExecutionException e) {
+			throw new IOException("Sentence splitting failed", e.getCause());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while splitting sentences");
+		} finally {
+			executor.shutdownNow();
+			// The writer is closed by now; a truncated output is not left behind
+			if (!completed && outputFile.exists() && !outputFile.delete()) {
+				System.err.println("Could not delete incomplete output " + outputFile);
+			}
+		}
+	}
+
+	private static Callable<String> getSplitTask(List<String> lines, boolean firstBatch, boolean normalize,
+			Language language, Script script) {
+		return new Callable<String>() {
+			@Override
+			public String call() {
+				StringBuilder output = new StringBuilder();
+				for (int i = 0; i < lines.size(); i++) {
+					String line = lines.get(i);
+					if (line.isBlank()) {
+						continue;
+					}
+					ArrayList<Paragraph> splitText;
+					if (normalize) {
+						// Patterns such as that of numbered lists expect a paragraph to
+						// follow a line break, as it does when the whole file is normalized
+						String paragraphText = firstBatch && i == 0 ? line : "\n" + line;
+						splitText = normalizeAndSplit(language, paragraphText, MAX_UNICODES_IN_SENTENCE);
+					} else {
+						splitText = SentenceSplitter.getInstance(script).splitText(line, MAX_UNICODES_IN_SENTENCE);
+					}
+					for (Paragraph p : splitText) {
+						for (String s : p.sentences) {
+							output.append(s).append('\n');
+						}
+						output.append('\n');
+					}
+				}
+				return output.toString();
+			}
+		};
+	}
+
 	public static class Arguments extends CommandLineOptions {
 		StringOption inputFilePath = new StringOption("in", "input", "Path of input text file.");
 		StringOption outputFilePath = new StringOption("out", "output",
@@ -276,6 +388,10 @@ public class SentenceSplitter {
 		StringOption language = new StringOption("lang", "language", "Language of the input text file");
 		BooleanOption normalize = new BooleanOption("nrm", "normalize",
 				"Expand numbers and abbreviations in the input text before splitting into sentences.");
+		BooleanOption streaming = new BooleanOption("s", "streaming",
+				"Process the input one paragraph (line) at a time in parallel instead of loading the whole file. Use this for very large files.");
+		IntegerOption numThreads = new IntegerOption("t", "threads", Runtime.getRuntime().availableProcessors(),
+				"Number of threads used with --streaming");
 
 		public Arguments() {
 			super();
@@ -285,6 +401,8 @@ public class SentenceSplitter {
 			options.addOption(script);
 			options.addOption(language);
 			options.addOption(normalize);
+			options.addOption(streaming);
+			options.addOption(numThreads);
 		}
 	}
 
@@ -307,6 +425,8 @@ public class SentenceSplitter {
 		String outputFilePath = arguments.outputFilePath.getStringValue();
 		String languageStr = arguments.language.getStringValue();
 		Boolean normalize = arguments.normalize.getBoolValue();
+		boolean streaming = arguments.streaming.getBoolValue();
+		int numThreads = arguments.numThreads.getIntValue();
 
 		Script script = null;
 		if (scriptStr != null) {
@@ -344,7 +464,17 @@ public class SentenceSplitter {
 			outputFilePath = FileUtils.addSuffixToFilePath(inputFilePath, suffix);
 		}
 		System.out.println("Processing text in " + inputFilePath);
-		splitTextInFile(inputFilePath, outputFilePath, normalize, language, script);
+		try {
+			if (streaming) {
+				splitTextInFileStreaming(new File(inputFilePath), new File(outputFilePath), normalize, language,
+						script, numThreads);
+			} else {
+				splitTextInFile(new File(inputFilePath), new File(outputFilePath), normalize, language, script);
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+			return;
+		}
 		System.out.println("Output saved to " + outputFilePath);
 	}
 }
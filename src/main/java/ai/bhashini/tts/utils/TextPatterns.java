@@ -0,0 +1,160 @@
+package ai.bhashini.tts.utils;
+
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.regex.Pattern;
+
+/**
+ * Shared registry of compiled regular expressions, and hand-written scanners
+ * for the simplest of them.
+ *
+ * String.replaceAll and String.split (except for single-character
+ * separators) compile their regex on every call. Patterns obtained from
+ * {@link #get(String)} are compiled once and then shared by all threads, so
+ * text normalization does not compile any regex per sentence. The registry is
+ * meant for a fixed set of patterns (constants, or e.g. the keys of a
+ * replacements file), not for patterns built from arbitrary input.
+ */
+public class TextPatterns {
+	// Must be initialized before the constants below
+	private static final ConcurrentHashMap<String, Pattern> patterns = new ConcurrentHashMap<>();
+
+	public static final Pattern WHITESPACES = get("\\s+");
+	public static final Pattern WHITESPACE = get("\\s");
+	public static final Pattern LINE_BREAK = get("\\R");
+
+	public static Pattern get(String regex) {
+		return patterns.computeIfAbsent(regex, Pattern::compile);
+	}
+
+	/**
+	 * Same as text.replaceAll(regex, replacement), with the regex compiled only
+	 * once.
+	 */
+	public static String replaceAll(String text, String regex, String replacement) {
+		return get(regex).matcher(text).replaceAll(replacement);
+	}
+
+	/**
+	 * Same as text.split(regex), with the regex compiled only once.
+	 */
+	public static String[] split(String text, String regex) {
+		return get(regex).split(text);
+	}
+
+	// The characters matched by \s
+	public static boolean isWhitespace(char c) {
+		return c == ' ' || c == '\t' || c == '\n' || c == '\u000B' || c == '\f' || c == '\r';
+	}
+
+	/**
+	 * Same as text.replaceAll("\\s+", " ").
+	 */
+	public static String collapseWhitespaces(String text) {
+		StringBuilder sb = null;
+		int n = text.length();
+		for (int i = 0; i < n; i++) {
+			if (!isWhitespace(text.charAt(i))) {
+				if (sb != null) {
+					sb.append(text.charAt(i));
+				}
+				continue;
+			}
+			int end = i + 1;
+			while (end < n && isWhitespace(text.charAt(end))) {
+				end++;
+			}
+			if (sb == null) {
+				if (end == i + 1 && text.charAt(i) == ' ') {
+					continue;
+				}
+				sb = new StringBuilder(n);
+				sb.append(text, 0, i);
+			}
+			sb.append(' ');
+			i = end - 1;
+		}
+		return sb == null ? text : sb.toString();
+	}
+
+	/**
+	 * Same as the sequence of text.replaceAll(",\\s*,+", ","),
+	 * replaceAll("\\s+,", ",") and replaceAll(",\\s+", ", ").
+	 */
+	public static String cleanUpCommas(String text) {
+		if (text.indexOf(',') == -1) {
+			return text;
+		}
+		return normalizeSpacesAfterCommas(removeSpacesBeforeCommas(removeRepeatedCommas(text)));
+	}
+
+	// text.replaceAll(",\\s*,+", ",")
+	private static String removeRepeatedCommas(String text) {
+		StringBuilder sb = new StringBuilder(text.length());
+		int n = text.length();
+		for (int i = 0; i < n; i++) {
+			char c = text.charAt(i);
+			sb.append(c);
+			if (c != ',') {
+				continue;
+			}
+			int j = i + 1;
+			while (j < n && isWhitespace(text.charAt(j))) {
+				j++;
+			}
+			if (j < n && text.charAt(j) == ',') {
+				while (j < n && text.charAt(j) == ',') {
+					j++;
+				}
+				i = j - 1;
+			}
+		}
+		return sb.toString();
+	}
+
+	// text.replaceAll("\\s+,", ",")
+	private static String removeSpacesBeforeCommas(String text) {
+		StringBuilder sb = new StringBuilder(text.length());
+		int n = text.length();
+		for (int i = 0; i < n; i++) {
+			char c = text.charAt(i);
+			if (!isWhitespace(c)) {
+				sb.append(c);
+				continue;
+			}
+			int end = i + 1;
+			while (end < n && isWhitespace(text.charAt(end))) {
+				end++;
+			}
+			if (end < n && text.charAt(end) == ',') {
+				sb.append(',');
+				i = end;
+			} else {
+				sb.append(text, i, end);
+				i = end - 1;
+			}
+		}
+		return sb.toString();
+	}
+
+	// text.replaceAll(",\\s+", ", ")
+	private static String normalizeSpacesAfterCommas(String text) {
+		StringBuilder sb = new StringBuilder(text.length());
+		int n = text.length();
+		for (int i = 0; i < n; i++) {
+			char c = text.charAt(i);
+			sb.append(c);
+			if (c != ',') {
+				continue;
+			}
+			int end = i + 1;
+			while (end < n && isWhitespace(text.charAt(end))) {
+				end++;
+			}
+			if (end > i + 1) {
+				sb.append(' ');
+				i = end - 1;
+			}
+		}
+		return sb.toString();
+	}
+}
@@ -2,18 +2,38 @@ package ai.bhashini.tts.utils;
 
 import java.io.BufferedReader;
 import java.io.BufferedWriter;
-import java.io.FileNotFoundException;
-import java.io.FileReader;
-import java.io.FileWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
 import java.io.InputStreamReader;
+import java.io.InterruptedIOException;
+import java.io.OutputStreamWriter;
 import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
 import java.util.ArrayList;
 import java.util.HashMap;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import org.apache.commons.cli.ParseException;
 
 public class Transliterate {
 	protected HashMap<String, String> transliterationMappings = new HashMap<>();
 	protected HashMap<String, String> arpabetDevanagariMappings = new HashMap<>();
+	// Output for every codepoint in the Unicode block of the input script, indexed by
+	// [inputScript.ordinal() * NUM_SCRIPTS + outputScript.ordinal()][codepoint - unicodeBlockStart]
+	protected String[][] transliterationTables;
+
+	private static final int NUM_SCRIPTS = Script.values().length;
 
 	private static Transliterate uniqueInstance = null;
 
@@ -30,6 +50,7 @@ public class Transliterate {
 	private Transliterate() {
 		loadTransliterationMappings(TRANSLITERATION_MAPPINGS_FILE);
 		loadArpabetDevanagariMappings(ARPABET_DEVANAGARI_MAPPINGS_FILE);
+		createTransliterationTables();
 	}
 
 	protected void loadTransliterationMappings(String transliterationMappingsFile) {
@@ -102,47 +123,229 @@ public class Transliterate {
 		return transliterationMappings.put(getKey(inputText, outputScript), outputText);
 	}
 
-	public String transliterate(String inputText, Script inputScript, Script outputScript) {
-		int srcUnicodeStart = inputScript.unicodeBlockStart;
-		int dstUnicodeStart = outputScript.unicodeBlockStart;
-		String outputText = "";
-		for (int i = 0; i < inputText.length(); i++) {
-			int inputC = inputText.codePointAt(i);
-			String inputS = Character.toString(inputC);
-			String outputS;
-			if (inputScript.isValidCodepoint(inputC)) {
-				outputS = getTransliterationMapping(inputS, outputScript);
-				if (outputS == null) {
-					int outputC = inputC - srcUnicodeStart + dstUnicodeStart;
-					if (Character.isDefined(outputC)) {
-						outputS = Character.toString(outputC);
-					} else {
-						outputS = inputS;
+	protected void createTransliterationTables() {
+		transliterationTables = new String[NUM_SCRIPTS * NUM_SCRIPTS][];
+		for (Script inputScript : Script.values()) {
+			for (Script outputScript : Script.values()) {
+				int blockSize = inputScript.unicodeBlockEnd - inputScript.unicodeBlockStart + 1;
+				String[] table = new String[blockSize];
+				for (int offset = 0; offset < blockSize; offset++) {
+					String inputS = Character.toString(inputScript.unicodeBlockStart + offset);
+					String outputS = getTransliterationMapping(inputS, outputScript);
+					if (outputS == null) {
+						// Same offset in the output script's block, if such a character exists
+						int outputC = offset + outputScript.unicodeBlockStart;
+						outputS = Character.isDefined(outputC) ? Character.toString(outputC) : inputS;
 					}
+					table[offset] = outputS;
 				}
+				transliterationTables[inputScript.ordinal() * NUM_SCRIPTS + outputScript.ordinal()] = table;
+			}
+		}
+	}
+
+	public String transliterate(String inputText, Script inputScript, Script outputScript) {
+		StringBuilder outputText = new StringBuilder(inputText.length());
+		transliterate(inputText, inputScript, outputScript, outputText);
+		return outputText.toString();
+	}
+
+	/**
+	 * Appends the transliteration of the input text to the given StringBuilder.
+	 * Characters outside the Unicode block of the input script are copied as is.
+	 */
+	public void transliterate(CharSequence inputText, Script inputScript, Script outputScript,
+			StringBuilder outputText) {
+		String[] table = transliterationTables[inputScript.ordinal() * NUM_SCRIPTS + outputScript.ordinal()];
+		int srcUnicodeStart = inputScript.unicodeBlockStart;
+		int length = inputText.length();
+		// All the script blocks are in the BMP, so surrogates are always copied as is
+		for (int i = 0; i < length; i++) {
+			char c = inputText.charAt(i);
+			int offset = c - srcUnicodeStart;
+			if (offset >= 0 && offset < table.length) {
+				outputText.append(table[offset]);
 			} else {
-				outputS = inputS;
+				outputText.append(c);
 			}
-			outputText += "" + outputS;
 		}
-		return outputText;
 	}
 
 	public void transliterate(String inputFilePath, String outputFilePath, Script srcScript, Script dstScript) {
-		try (BufferedReader br = new BufferedReader(new FileReader(inputFilePath));
-				BufferedWriter bw = new BufferedWriter(new FileWriter(outputFilePath))) {
-			String line;
-			while ((line = br.readLine()) != null) {
-				String transliteratedString = transliterate(line, srcScript, dstScript);
-				bw.write(transliteratedString + "\n");
-			}
-		} catch (FileNotFoundException e) {
-			e.printStackTrace();
+		ArrayList<File> inputFiles = new ArrayList<>();
+		ArrayList<File> outputFiles = new ArrayList<>();
+		inputFiles.add(new File(inputFilePath));
+		outputFiles.add(new File(outputFilePath));
+		try {
+			transliterateFiles(inputFiles, outputFiles, srcScript, dstScript, Runtime.getRuntime().availableProcessors());
 		} catch (IOException e) {
 			e.printStackTrace();
 		}
 	}
 
+	// A batch of lines is transliterated by one task
+	protected static final int BATCH_SIZE = 4096;
+	protected static final int BATCH_CHARS = 1 << 20;
+	private static final int IO_BUFFER_SIZE = 1 << 16;
+
+	private static class Batch {
+		Future<String> result;
+		BufferedWriter writer;
+		File outputFile;
+		boolean lastOfFile;
+
+		Batch(Future<String> result, BufferedWriter writer, File outputFile, boolean lastOfFile) {
+			this.result = result;
+			this.writer = writer;
+			this.outputFile = outputFile;
+			this.lastOfFile = lastOfFile;
+		}
+	}
+
+	/**
+	 * Transliterates each input file into the corresponding output file. Files
+	 * are read and written as UTF-8, line by line, and batches of lines are
+	 * transliterated on numThreads threads. At most 2 * numThreads batches are
+	 * held in memory at any time, so arbitrarily large files (and any number of
+	 * them) can be processed; the output lines are written in input order.
+	 *
+	 * Processing stops at the first file that can't be read or written, and the
+	 * exception is thrown once the output files that were not completely written
+	 * (that file and any earlier ones with batches still pending) are deleted.
+	 * The output files written before the failure are left as they are.
+	 */
+	public void transliterateFiles(List<File> inputFiles, List<File> outputFiles, Script srcScript,
+			Script dstScript, int numThreads) throws IOException {
+		numThreads = Math.max(1, numThreads);
+		ExecutorService executor = Executors.newFixedThreadPool(numThreads);
+		ArrayDeque<Batch> pendingBatches = new ArrayDeque<>();
+		int maxPendingBatches = 2 * numThreads;
+		BufferedWriter bw = null;
+		File outputFile = null;
+		boolean completed = false;
+		try {
+			for (int f = 0; f < inputFiles.size(); f++) {
+				outputFile = outputFiles.get(f).getAbsoluteFile();
+				outputFile.getParentFile().mkdirs();
+				bw = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(outputFile),
+						StandardCharsets.UTF_8), IO_BUFFER_SIZE);
+				try (BufferedReader br = new BufferedReader(new InputStreamReader(
+						new FileInputStream(inputFiles.get(f)), StandardCharsets.UTF_8), IO_BUFFER_SIZE)) {
+					ArrayList<String> lines = new ArrayList<>();
+					int numChars = 0;
+					String line;
+					while ((line = br.readLine()) != null) {
+						lines.add(line);
+						numChars += line.length() + 1;
+						if (lines.size() == BATCH_SIZE || numChars >= BATCH_CHARS) {
+							while (pendingBatches.size() >= maxPendingBatches) {
+								writeBatch(pendingBatches);
+							}
+							pendingBatches.add(new Batch(executor.submit(
+									getTransliterationTask(lines, numChars, srcScript, dstScript)), bw, outputFile,
+									false));
+							lines = new ArrayList<>();
+							numChars = 0;
+						}
+					}
+					while (pendingBatches.size() >= maxPendingBatches) {
+						writeBatch(pendingBatches);
+					}
+					// The last batch (possibly empty) closes the output file once written
+					pendingBatches.add(new Batch(
+							executor.submit(getTransliterationTask(lines, numChars, srcScript, dstScript)), bw,
+							outputFile, true));
+					bw = null;
+				}
+			}
+			while (!pendingBatches.isEmpty()) {
+				writeBatch(pendingBatches);
+			}
+			completed = true;
+		} catch (ExecutionException e) {
+			throw new IOException("Transliteration failed", e.getCause());
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new InterruptedIOException("Interrupted while transliterating");
+		} finally {
+			executor.shutdownNow();
+			if (!completed) {
+				// The batches still pending are discarded, and the output files they
+				// belong to deleted rather than left truncated
+				for (Batch batch : pendingBatches) {
+					if (batch.lastOfFile) {
+						deleteOutput(batch.writer, batch.outputFile);
+					}
+				}
+				if (bw != null) {
+					deleteOutput(bw, outputFile);
+				}
+			}
+		}
+	}
+
+	private Callable<String> getTransliterationTask(List<String> lines, int numChars, Script srcScript,
+			Script dstScript) {
+		return new Callable<String>() {
+			@Override
+			public String call() {
+				StringBuilder outputText = new StringBuilder(numChars);
+				for (String line : lines) {
+					transliterate(line, srcScript, dstScript, outputText);
+					outputText.append('\n');
+				}
+				return outputText.toString();
+			}
+		};
+	}
+
+	// Writes the oldest pending batch. It is removed from the queue only once
+	// written, so that a batch whose write fails is discarded with the rest.
+	private static void writeBatch(ArrayDeque<Batch> pendingBatches)
+			throws IOException, InterruptedException, ExecutionException {
+		Batch batch = pendingBatches.peek();
+		batch.writer.write(batch.result.get());
+		if (batch.lastOfFile) {
+			batch.writer.close();
+		}
+		pendingBatches.poll();
+	}
+
+	private static void deleteOutput(BufferedWriter bw, File outputFile) {
+		try {
+			bw.close();
+		} catch (IOException e) {
+			// The file is deleted anyway
+		}
+		if (outputFile.exists() && !outputFile.delete()) {
+			System.err.println("Could not delete incomplete output " + outputFile);
+		}
+	}
+
+	/**
+	 * Transliterates every file in the input directory tree into the same
+	 * relative path under the output directory.
+	 */
+	public void transliterateDirectory(File inputDir, File outputDir, Script srcScript, Script dstScript,
+			int numThreads) throws IOException {
+		List<Path> inputPaths;
+		Path inputDirPath = inputDir.toPath();
+		Path outputDirPath = outputDir.getAbsoluteFile().toPath();
+		try (Stream<Path> paths = Files.walk(inputDirPath)) {
+			// Skip the output directory in case it is inside the input directory
+			inputPaths = paths.filter(p -> Files.isRegularFile(p) && !p.toAbsolutePath().startsWith(outputDirPath))
+					.sorted().collect(Collectors.toList());
+		}
+		ArrayList<File> inputFiles = new ArrayList<>();
+		ArrayList<File> outputFiles = new ArrayList<>();
+		for (Path inputPath : inputPaths) {
+			inputFiles.add(inputPath.toFile());
+			outputFiles.add(outputDirPath.resolve(inputDirPath.relativize(inputPath)).toFile());
+		}
+		System.out.println("Transliterating " + inputFiles.size() + " files in " + inputDir);
+		transliterateFiles(inputFiles, outputFiles, srcScript, dstScript, numThreads);
+	}
+
 	private static String DEVANAGARI_HALANT = Script.Devanagari.getUnicode(UnicodeOffsets.HALANT.offset);
 
 	public String getDevanagariMapping(String[] arpabets) {
@@ -192,15 +395,85 @@ public class Transliterate {
 		return strBuilder.toString().trim();
 	}
 
+	public static class Arguments extends CommandLineOptions {
+		StringOption inputPath = new StringOption("in", "input",
+				"Path of input text file, or of a directory in which all the files will be transliterated.");
+		StringOption outputPath = new StringOption("out", "output",
+				"Path of output text file (or directory). If this is not specified, '_<target-script>' is added to the input file (or directory) name.");
+		StringOption srcScript = new StringOption("src", "source-script", "Script of the input text");
+		StringOption dstScript = new StringOption("dst", "target-script", "Script to transliterate to");
+		IntegerOption numThreads = new IntegerOption("t", "threads", Runtime.getRuntime().availableProcessors(),
+				"Number of threads");
+
+		public Arguments() {
+			super();
+			inputPath.setRequired(true);
+			srcScript.setRequired(true);
+			dstScript.setRequired(true);
+			options.addOption(inputPath);
+			options.addOption(outputPath);
+			options.addOption(srcScript);
+			options.addOption(dstScript);
+			options.addOption(numThreads);
+		}
+	}
+
 	public static void main(String[] args) {
-		String inputText = "கடல்களுக்கான உரோமானியக்கடவுள் நெப்டியூன் என்பவரின் பெயரே ஞாயிற்றுத் தொகுதியில் உள்ள கோளான நெப்டியூன் கோளிற்கு சூட்டப்பட்டது.";
-		String outputText = Transliterate.getInstance().transliterate(inputText, Script.Tamil, Script.Kannada);
-		System.out.println(inputText + "\n->\n" + outputText);
+		Arguments arguments = new Arguments();
+		try {
+			arguments.parse(args);
+			arguments.printValues();
+		} catch (ParseException e) {
+			e.printStackTrace();
+			arguments.printHelp(Transliterate.class.getCanonicalName());
+			return;
+		}
+		String inputPath = arguments.inputPath.getStringValue();
+		String outputPath = arguments.outputPath.getStringValue();
+		int numThreads = arguments.numThreads.getIntValue();
 
-		inputText = "अभिषिषेणयिषुं भुवनानि यः स्मरमिवाख्यत लोध्ररजश्चयः।\n" + "क्षुभितसैन्यपरागविपाण्डुर- द्युतिरयं तिरयन्नुदभूद्दिशः॥";
-		outputText = Transliterate.getInstance().transliterate(inputText, Script.Devanagari, Script.Kannada);
-		System.out.println("\n" + inputText + "\n->\n" + outputText);
+		Script srcScript, dstScript;
+		try {
+			srcScript = Script.valueOf(arguments.srcScript.getStringValue());
+			dstScript = Script.valueOf(arguments.dstScript.getStringValue());
+		} catch (IllegalArgumentException e) {
+			System.out.println("Unrecognized script name. Supported scripts are:");
+			for (Script s : Script.values()) {
+				System.out.println("\t" + s);
+			}
+			arguments.printHelp(Transliterate.class.getCanonicalName());
+			return;
+		}
 
-		// Transliterate.getInstance().transliterate(args[0], args[1], ScriptId.Devanagari, ScriptId.Kannada);
+		File inputFile = new File(inputPath);
+		boolean isDirectory = inputFile.isDirectory();
+		if (outputPath == null) {
+			String suffix = "_" + dstScript;
+			if (isDirectory || inputFile.getName().lastIndexOf('.') <= 0) {
+				outputPath = inputFile.getPath() + suffix;
+			} else {
+				outputPath = FileUtils.addSuffixToFilePath(inputFile.getPath(), suffix);
+			}
+		}
+
+		SystemTime systemTime = new SystemTime(true);
+		Transliterate transliterate = Transliterate.getInstance();
+		try {
+			if (isDirectory) {
+				transliterate.transliterateDirectory(inputFile, new File(outputPath), srcScript, dstScript, numThreads);
+			} else {
+				System.out.println("Transliterating " + inputPath);
+				ArrayList<File> inputFiles = new ArrayList<>();
+				ArrayList<File> outputFiles = new ArrayList<>();
+				inputFiles.add(inputFile);
+				outputFiles.add(new File(outputPath));
+				transliterate.transliterateFiles(inputFiles, outputFiles, srcScript, dstScript, numThreads);
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+			return;
+		}
+		System.out.println("Output saved to " + outputPath);
+		systemTime.tock(true);
 	}
 }
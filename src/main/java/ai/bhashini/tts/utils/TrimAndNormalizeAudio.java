@@ -4,6 +4,12 @@ import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.io.InputStream;
+import java.util.Map;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import javax.sound.sampled.AudioFormat;
 import javax.sound.sampled.AudioInputStream;
@@ -37,6 +43,11 @@ public class TrimAndNormalizeAudio {
 				"Amount of silence (hop-length * silence-padding) to be added at the beginning and end of audio after trimming");
 		BooleanOption skipTrimming = new BooleanOption("st", "skip-trim", "Skip trimming of audio files");
 		BooleanOption skipNormalization = new BooleanOption("sn", "skip-normalize", "Skip normalization of audio files");
+		IntegerOption numThreads = new IntegerOption("t", "threads", 1, "Number of .wav files processed in parallel");
+		IntegerOption filterLength = new IntegerOption("rf", "resample-filter-length", Resampler.DEFAULT_FILTER_LENGTH,
+				"Length of the resampling filter; shorter is faster, longer gives less aliasing");
+		BooleanOption fusedPipeline = new BooleanOption("fp", "fused-pipeline",
+				"Resample, normalize, trim and save each file using per-thread reusable buffers (same output, less memory)");
 
 		public Arguments() {
 			super();
@@ -52,6 +63,9 @@ public class TrimAndNormalizeAudio {
 			options.addOption(silencePadding);
 			options.addOption(skipTrimming);
 			options.addOption(skipNormalization);
+			options.addOption(numThreads);
+			options.addOption(filterLength);
+			options.addOption(fusedPipeline);
 		}
 	}
 
@@ -68,6 +82,11 @@ public class TrimAndNormalizeAudio {
 
 		SystemTime sysTime = new SystemTime(true);
 		File[] inputWavFiles = FileUtils.getWavFiles(arguments.inputDir.getStringValue());
+		if (arguments.numThreads.getIntValue() > 1) {
+			trimInParallel(inputWavFiles, arguments);
+			sysTime.tock(true);
+			return;
+		}
 		String inputDirName = new File(arguments.inputDir.getStringValue()).getName() + "/";
 		String outputDirName = new File(arguments.outputDir.getStringValue()).getName() + "/";
 		String fileCountFormat = "%0" + (inputWavFiles.length + "").length() + "d/" + inputWavFiles.length + ": ";
@@ -76,14 +95,76 @@ public class TrimAndNormalizeAudio {
 			File outputWavFile = new File(arguments.outputDir.getStringValue(), inputWavFile.getName());
 			System.out.printf("\r%s", String.format(fileCountFormat, i + 1) + inputDirName + inputWavFile.getName() + " -> "
 					+ outputDirName + outputWavFile.getName());
-			trim(inputWavFile.getAbsolutePath(), outputWavFile.getAbsolutePath(),
+			try {
+				trim(inputWavFile, outputWavFile, arguments);
+			} catch (IOException | UnsupportedAudioFileException | WavFileException e) {
+				e.printStackTrace();
+			}
+		}
+		System.out.println("");
+		sysTime.tock(true);
+	}
+
+	static void trim(File inputWavFile, File outputWavFile, Arguments arguments)
+			throws IOException, UnsupportedAudioFileException, WavFileException {
+		if (arguments.fusedPipeline.getBoolValue()) {
+			trimAudioFused(inputWavFile.getAbsolutePath(), outputWavFile.getAbsolutePath(),
+					arguments.newSamplingRate.getIntValue(), arguments.newBitsPerSample.getIntValue(),
+					arguments.windowLength.getIntValue(), arguments.hopLength.getIntValue(),
+					arguments.cutoffDB.getIntValue(), arguments.silencePadding.getIntValue(),
+					arguments.skipTrimming.getBoolValue(), arguments.skipNormalization.getBoolValue(),
+					arguments.filterLength.getIntValue());
+		} else {
+			trimAudio(inputWavFile.getAbsolutePath(), outputWavFile.getAbsolutePath(),
 					arguments.newSamplingRate.getIntValue(), arguments.newBitsPerSample.getIntValue(),
 					arguments.windowLength.getIntValue(), arguments.hopLength.getIntValue(),
 					arguments.cutoffDB.getIntValue(), arguments.silencePadding.getIntValue(),
-					arguments.skipTrimming.getBoolValue(), arguments.skipNormalization.getBoolValue());
+					arguments.skipTrimming.getBoolValue(), arguments.skipNormalization.getBoolValue(),
+					arguments.filterLength.getIntValue());
+		}
+	}
+
+	private static void trimInParallel(File[] inputWavFiles, Arguments arguments) {
+		String inputDirName = new File(arguments.inputDir.getStringValue()).getName() + "/";
+		String outputDirName = new File(arguments.outputDir.getStringValue()).getName() + "/";
+		String fileCountFormat = "%0" + (inputWavFiles.length + "").length() + "d/" + inputWavFiles.length + ": ";
+		AtomicInteger numProcessed = new AtomicInteger();
+		// Sorted by file name so that the failure report does not depend on thread scheduling
+		Map<String, String> failures = new ConcurrentSkipListMap<>();
+
+		ExecutorService executor = Executors.newFixedThreadPool(arguments.numThreads.getIntValue());
+		for (File inputWavFile : inputWavFiles) {
+			File outputWavFile = new File(arguments.outputDir.getStringValue(), inputWavFile.getName());
+			executor.execute(new Runnable() {
+				@Override
+				public void run() {
+					try {
+						trim(inputWavFile, outputWavFile, arguments);
+					} catch (IOException | UnsupportedAudioFileException | WavFileException | RuntimeException e) {
+						failures.put(inputWavFile.getName(), e.toString());
+					}
+					synchronized (System.out) {
+						System.out.printf("\r%s", String.format(fileCountFormat, numProcessed.incrementAndGet())
+								+ inputDirName + inputWavFile.getName() + " -> " + outputDirName + outputWavFile.getName());
+					}
+				}
+			});
+		}
+		executor.shutdown();
+		try {
+			executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+		} catch (InterruptedException e) {
+			executor.shutdownNow();
+			Thread.currentThread().interrupt();
 		}
 		System.out.println("");
-		sysTime.tock(true);
+
+		if (!failures.isEmpty()) {
+			System.out.println("Failed to process " + failures.size() + "/" + inputWavFiles.length + " files:");
+			for (Map.Entry<String, String> failure : failures.entrySet()) {
+				System.out.println(inputDirName + failure.getKey() + ": " + failure.getValue());
+			}
+		}
 	}
 
 	public static void convertToMonoUsingSOX(String inputWavFilePath, String outputWavFilePath, String soxInstallDir) {
@@ -104,17 +185,230 @@ public class TrimAndNormalizeAudio {
 	public static void trim(String inputWavFilePath, String outputWavFilePath, int newSamplingRate,
 			int newBitsPerSample, int windowLength, int hopLength, int cutoffDB, int silencePadding,
 			boolean skipTrimming, boolean skipNormalization) {
+		trim(inputWavFilePath, outputWavFilePath, newSamplingRate, newBitsPerSample, windowLength, hopLength, cutoffDB,
+				silencePadding, skipTrimming, skipNormalization, Resampler.DEFAULT_FILTER_LENGTH);
+	}
+
+	public static void trim(String inputWavFilePath, String outputWavFilePath, int newSamplingRate,
+			int newBitsPerSample, int windowLength, int hopLength, int cutoffDB, int silencePadding,
+			boolean skipTrimming, boolean skipNormalization, int filterLength) {
+		try {
+			trimAudio(inputWavFilePath, outputWavFilePath, newSamplingRate, newBitsPerSample, windowLength, hopLength,
+					cutoffDB, silencePadding, skipTrimming, skipNormalization, filterLength);
+		} catch (IOException | UnsupportedAudioFileException | WavFileException e) {
+			e.printStackTrace();
+		}
+	}
+
+	public static void trimAudio(String inputWavFilePath, String outputWavFilePath, int newSamplingRate,
+			int newBitsPerSample, int windowLength, int hopLength, int cutoffDB, int silencePadding,
+			boolean skipTrimming, boolean skipNormalization, int filterLength)
+			throws IOException, UnsupportedAudioFileException, WavFileException {
+		long[] audio = getResampledAudioData(inputWavFilePath, newSamplingRate, newBitsPerSample, filterLength);
+		double[] normalizedAudio = skipNormalization ? inverseQuantize(audio, newBitsPerSample)
+				: normalizeAudioToDouble(audio);
+		if (!skipTrimming) {
+			normalizedAudio = OverlappingWindow.trimSilences(normalizedAudio, windowLength, hopLength, cutoffDB,
+					silencePadding);
+		}
+		saveWavData(outputWavFilePath, normalizedAudio, newSamplingRate, newBitsPerSample);
+	}
+
+	// Buffers reused from file to file by trimAudioFused() on the same thread
+	private static class AudioBuffers {
+		double[] block = new double[0];
+		double[] frames = new double[0];
+		double[] resampled = new double[0]; // At most MAX_RETAINED_SAMPLES long
+	}
+
+	private static final ThreadLocal<AudioBuffers> audioBuffers = ThreadLocal.withInitial(AudioBuffers::new);
+	private static final int BLOCK_SIZE = 65536;
+	// Longest resampled audio kept in a thread's buffer between files (4 MB, about
+	// 24 s at 22.05 kHz). Longer files get a buffer of their own that is freed
+	// with the file, so the long-lived threads of a pool don't each hold on to a
+	// copy of the longest recording they have seen.
+	private static final int MAX_RETAINED_SAMPLES = 1 << 19;
+	private static final double[] SILENCE = new double[4096];
+
+	/**
+	 * Produces the same output file as trimAudio(), without materializing the
+	 * decoded, quantized, normalized and trimmed copies of the audio. The 1st
+	 * channel is streamed block by block through the resampler into a
+	 * per-thread buffer (or, for long files, a buffer of its own); one pass then quantizes in place and finds the peak, a
+	 * second computes the window energies, and only the retained range is
+	 * normalized and written out.
+	 */
+	public static void trimAudioFused(String inputWavFilePath, String outputWavFilePath, int newSamplingRate,
+			int newBitsPerSample, int windowLength, int hopLength, int cutoffDB, int silencePadding,
+			boolean skipTrimming, boolean skipNormalization, int filterLength)
+			throws IOException, UnsupportedAudioFileException, WavFileException {
+		WavFile wavFile;
+		try {
+			wavFile = WavFile.openWavFile(new File(inputWavFilePath));
+		} catch (WavFileException e) {
+			// Formats not handled by WavFile are decoded by javax.sound
+			trimAudio(inputWavFilePath, outputWavFilePath, newSamplingRate, newBitsPerSample, windowLength, hopLength,
+					cutoffDB, silencePadding, skipTrimming, skipNormalization, filterLength);
+			return;
+		}
+		TrimmedRange range = findTrimmedRange(wavFile, inputWavFilePath, newSamplingRate, newBitsPerSample,
+				windowLength, hopLength, cutoffDB, silencePadding, skipTrimming, skipNormalization, filterLength);
+		double[] audio = range.audio;
+		for (int i = range.trimBegin; i < range.trimEnd; i++) {
+			audio[i] = audio[i] / range.scale;
+		}
+
+		new File(outputWavFilePath).getParentFile().mkdirs();
+		WavFile writeWavFile = WavFile.newWavFile(new File(outputWavFilePath), 1, range.getNumFrames(),
+				newBitsPerSample, newSamplingRate);
+		try {
+			writeSilence(writeWavFile, range.silenceLength);
+			writeWavFile.writeFrames(audio, range.trimBegin, range.trimEnd - range.trimBegin);
+			writeSilence(writeWavFile, range.silenceLength);
+		} finally {
+			writeWavFile.close();
+		}
+	}
+
+	/**
+	 * Returns the number of frames in the file that trimAudio() would write for
+	 * the given input, without writing (or normalizing) anything.
+	 */
+	public static long getTrimmedNumFrames(String inputWavFilePath, int newSamplingRate, int newBitsPerSample,
+			int windowLength, int hopLength, int cutoffDB, int silencePadding, boolean skipTrimming,
+			boolean skipNormalization, int filterLength)
+			throws IOException, UnsupportedAudioFileException, WavFileException {
+		WavFile wavFile;
 		try {
-			long[] audio = getResampledAudioData(inputWavFilePath, newSamplingRate, newBitsPerSample);
+			wavFile = WavFile.openWavFile(new File(inputWavFilePath));
+		} catch (WavFileException e) {
+			long[] audio = getResampledAudioData(inputWavFilePath, newSamplingRate, newBitsPerSample, filterLength);
+			if (skipTrimming) {
+				return audio.length;
+			}
 			double[] normalizedAudio = skipNormalization ? inverseQuantize(audio, newBitsPerSample)
 					: normalizeAudioToDouble(audio);
-			if (!skipTrimming) {
-				normalizedAudio = OverlappingWindow.trimSilences(normalizedAudio, windowLength, hopLength, cutoffDB,
-						silencePadding);
+			return OverlappingWindow.trimSilences(normalizedAudio, windowLength, hopLength, cutoffDB,
+					silencePadding).length;
+		}
+		return findTrimmedRange(wavFile, inputWavFilePath, newSamplingRate, newBitsPerSample, windowLength, hopLength,
+				cutoffDB, silencePadding, skipTrimming, skipNormalization, filterLength).getNumFrames();
+	}
+
+	// The part of the resampled 1st channel that trimAudioFused() writes out
+	private static class TrimmedRange {
+		double[] audio; // Quantized samples (in the per-thread buffer, unless the file is long)
+		double scale; // Divisor that normalizes the quantized samples
+		int trimBegin;
+		int trimEnd;
+		int silenceLength; // Frames of silence added before and after
+
+		long getNumFrames() {
+			return trimEnd - trimBegin + silenceLength * 2L;
+		}
+	}
+
+	// Resamples and quantizes the 1st channel of wavFile (which is closed) and
+	// locates the range that trimming retains
+	private static TrimmedRange findTrimmedRange(WavFile wavFile, String inputWavFilePath, int newSamplingRate,
+			int newBitsPerSample, int windowLength, int hopLength, int cutoffDB, int silencePadding,
+			boolean skipTrimming, boolean skipNormalization, int filterLength) throws IOException, WavFileException {
+		AudioBuffers buffers = audioBuffers.get();
+		double[] audio;
+		int numSamples;
+		try {
+			if (wavFile.getNumFrames() > Integer.MAX_VALUE) {
+				throw new IOException("Audio is too large for in-memory resampling: " + inputWavFilePath);
+			}
+			Resampler resampler = Resampler.getInstance((int) wavFile.getSampleRate(), newSamplingRate, filterLength);
+			numSamples = resampler.getOutputLength((int) wavFile.getNumFrames());
+			if (numSamples > MAX_RETAINED_SAMPLES) {
+				audio = new double[numSamples];
+			} else {
+				if (buffers.resampled.length < numSamples) {
+					buffers.resampled = new double[numSamples];
+				}
+				audio = buffers.resampled;
+			}
+			resampleFirstChannel(wavFile, resampler, buffers, audio, numSamples);
+		} finally {
+			wavFile.close();
+		}
+
+		// Same values as quantize() followed by getAbsMax()
+		double quantizationMax = WavFile.getQuantizationMax(newBitsPerSample);
+		long max = (long) quantizationMax - 1;
+		long min = -(long) quantizationMax;
+		long absMax = AudioKernels.get().quantize(audio, 0, numSamples, quantizationMax, min, max, audio);
+
+		TrimmedRange range = new TrimmedRange();
+		range.audio = audio;
+		// Same scales as inverseQuantize() and normalizeAudioToDouble()
+		range.scale = skipNormalization ? quantizationMax : (double) (absMax - 1) / 0.9;
+		range.trimBegin = 0;
+		range.trimEnd = numSamples;
+		if (!skipTrimming) {
+			double[] meanSquares = OverlappingWindow.computeMeanSquares(audio, numSamples, range.scale, windowLength,
+					hopLength);
+			int[] trimPoints = OverlappingWindow.getTrimPoints(meanSquares, numSamples, hopLength, cutoffDB);
+			range.trimBegin = trimPoints[0];
+			range.trimEnd = trimPoints[1];
+			range.silenceLength = silencePadding * hopLength;
+		}
+		return range;
+	}
+
+	private static void resampleFirstChannel(WavFile wavFile, Resampler resampler, AudioBuffers buffers,
+			double[] output, int outputLength) throws IOException, WavFileException {
+		long numFrames = wavFile.getNumFrames();
+		int numChannels = wavFile.getNumChannels();
+		if (buffers.block.length < BLOCK_SIZE + resampler.getNumTaps()) {
+			buffers.block = new double[BLOCK_SIZE + resampler.getNumTaps()];
+		}
+		if (numChannels > 1 && buffers.frames.length < BLOCK_SIZE * numChannels) {
+			buffers.frames = new double[BLOCK_SIZE * numChannels];
+		}
+		double[] block = buffers.block;
+		long blockStart = 0;
+		int blockLength = 0;
+		long outputDone = 0;
+		while (outputDone < outputLength) {
+			// Append the next frames of the 1st channel to the block
+			int framesToRead = block.length - blockLength;
+			int framesRead;
+			if (numChannels == 1) {
+				framesRead = wavFile.readFrames(block, blockLength, framesToRead);
+			} else {
+				framesRead = wavFile.readFrames(buffers.frames, Math.min(framesToRead, BLOCK_SIZE));
+				for (int f = 0; f < framesRead; f++) {
+					block[blockLength + f] = buffers.frames[f * numChannels];
+				}
+			}
+			blockLength += framesRead;
+			long blockEnd = blockStart + blockLength;
+
+			long outputEnd = blockEnd == numFrames ? outputLength
+					: Math.min(outputLength, resampler.getNumOutputsBefore(blockEnd));
+			resampler.resampleBlock(block, blockStart, blockLength, numFrames, output, outputDone, outputEnd);
+			outputDone = outputEnd;
+
+			// Keep only the input that the remaining outputs still depend on
+			long keepFrom = Math.max(blockStart, Math.min(blockEnd, resampler.getFirstInputIndex(outputDone)));
+			int numKept = (int) (blockEnd - keepFrom);
+			System.arraycopy(block, (int) (keepFrom - blockStart), block, 0, numKept);
+			blockStart = keepFrom;
+			blockLength = numKept;
+			if (framesRead == 0 && blockEnd < numFrames) {
+				throw new WavFileException("Not enough data available");
 			}
-			saveWavData(outputWavFilePath, normalizedAudio, newSamplingRate, newBitsPerSample);
-		} catch (IOException | UnsupportedAudioFileException | WavFileException e) {
-			e.printStackTrace();
+		}
+	}
+
+	private static void writeSilence(WavFile wavFile, int numFrames) throws IOException, WavFileException {
+		while (numFrames > 0) {
+			int n = Math.min(numFrames, SILENCE.length);
+			wavFile.writeFrames(SILENCE, 0, n);
+			numFrames -= n;
 		}
 	}
 
@@ -126,22 +420,94 @@ public class TrimAndNormalizeAudio {
 
 	public static long[] getResampledAudioData(String wavFilePath, int newSamplingRate, int newBitsPerSample)
 			throws UnsupportedAudioFileException, IOException {
-		AudioInputStream audioInputStream = AudioSystem.getAudioInputStream(new File(wavFilePath));
-		return getResampledAudioData(audioInputStream, newSamplingRate, newBitsPerSample);
+		return getResampledAudioData(wavFilePath, newSamplingRate, newBitsPerSample, Resampler.DEFAULT_FILTER_LENGTH);
+	}
+
+	// Returns the 1st channel, resampled and quantized to newBitsPerSample.
+	public static long[] getResampledAudioData(String wavFilePath, int newSamplingRate, int newBitsPerSample,
+			int filterLength) throws UnsupportedAudioFileException, IOException {
+		WavFile wavFile;
+		try {
+			wavFile = WavFile.openWavFile(new File(wavFilePath));
+		} catch (WavFileException e) {
+			// Formats not handled by WavFile (e.g. WAVE_FORMAT_EXTENSIBLE) are decoded by javax.sound
+			AudioInputStream audioInputStream = AudioSystem.getAudioInputStream(new File(wavFilePath));
+			return getResampledAudioData(audioInputStream, newSamplingRate, newBitsPerSample, filterLength);
+		}
+		try {
+			if (wavFile.getNumFrames() > Integer.MAX_VALUE) {
+				throw new IOException("Audio is too large for in-memory resampling: " + wavFilePath);
+			}
+			int numFrames = (int) wavFile.getNumFrames();
+			int numChannels = wavFile.getNumChannels();
+			double[] audio = new double[numFrames];
+			if (numChannels == 1) {
+				wavFile.readFrames(audio, numFrames);
+			} else {
+				double[][] frames = new double[numChannels][];
+				frames[0] = audio;
+				for (int c = 1; c < numChannels; c++) {
+					frames[c] = new double[numFrames];
+				}
+				wavFile.readFrames(frames, numFrames);
+			}
+			return resampleAndQuantize(audio, (int) wavFile.getSampleRate(), newSamplingRate, newBitsPerSample,
+					filterLength);
+		} catch (WavFileException e) {
+			throw new IOException(e);
+		} finally {
+			wavFile.close();
+		}
 	}
 
 	public static long[] getResampledAudioData(AudioInputStream srcAudioInputStream, int newSamplingRate,
 			int newBitsPerSample) throws UnsupportedAudioFileException, IOException {
-		AudioFormat newFormat = new AudioFormat(newSamplingRate, newBitsPerSample, 1, true, true);
-		AudioInputStream newAudioInputStream = AudioSystem.getAudioInputStream(newFormat, srcAudioInputStream);
+		return getResampledAudioData(srcAudioInputStream, newSamplingRate, newBitsPerSample,
+				Resampler.DEFAULT_FILTER_LENGTH);
+	}
+
+	public static long[] getResampledAudioData(AudioInputStream srcAudioInputStream, int newSamplingRate,
+			int newBitsPerSample, int filterLength) throws UnsupportedAudioFileException, IOException {
+		// javax.sound only decodes to PCM at the source rate; Resampler does the rate conversion
+		AudioFormat format = srcAudioInputStream.getFormat();
+		AudioInputStream pcmAudioInputStream = srcAudioInputStream;
+		if (!AudioFormat.Encoding.PCM_SIGNED.equals(format.getEncoding())
+				&& !AudioFormat.Encoding.PCM_UNSIGNED.equals(format.getEncoding())) {
+			format = new AudioFormat(format.getSampleRate(), 16, format.getChannels(), true, false);
+			pcmAudioInputStream = AudioSystem.getAudioInputStream(format, srcAudioInputStream);
+		}
 		ByteArrayOutputStream dataStream = new ByteArrayOutputStream();
-		byte[] buffer = new byte[1024];
-		while (newAudioInputStream.read(buffer) != -1) {
-			dataStream.writeBytes(buffer);
+		byte[] buffer = new byte[65536];
+		int bytesRead;
+		while ((bytesRead = pcmAudioInputStream.read(buffer)) != -1) {
+			dataStream.write(buffer, 0, bytesRead);
 		}
-		long[] audio = WavFile.audioBytesToLong(dataStream.toByteArray(), newFormat.getChannels(),
-				newBitsPerSample / 8, newFormat.isBigEndian());
-		return audio;
+		int bitsPerSample = format.getSampleSizeInBits();
+		long[] samples = WavFile.audioBytesToLong(dataStream.toByteArray(), format.getChannels(),
+				(bitsPerSample + 7) / 8, format.isBigEndian());
+		double scale = WavFile.getQuantizationMax(bitsPerSample);
+		double offset = AudioFormat.Encoding.PCM_UNSIGNED.equals(format.getEncoding()) ? scale : 0;
+		double[] audio = new double[samples.length];
+		for (int i = 0; i < samples.length; i++) {
+			audio[i] = (samples[i] - offset) / scale;
+		}
+		return resampleAndQuantize(audio, Math.round(format.getSampleRate()), newSamplingRate, newBitsPerSample,
+				filterLength);
+	}
+
+	public static long[] resampleAndQuantize(double[] audio, int samplingRate, int newSamplingRate,
+			int newBitsPerSample, int filterLength) {
+		double[] resampledAudio = Resampler.getInstance(samplingRate, newSamplingRate, filterLength).resample(audio);
+		return quantize(resampledAudio, newBitsPerSample);
+	}
+
+	public static long[] quantize(double[] audio, int bitsPerSample) {
+		double scale = WavFile.getQuantizationMax(bitsPerSample);
+		long max = (long) scale - 1;
+		long min = -(long) scale;
+		long[] quantizedAudio = new long[audio.length];
+		AudioKernels.get().quantize(audio, 0, audio.length, scale, min, max, quantizedAudio);
+		return quantizedAudio;
 	}
 
 	public static float[] normalizeAudio(long[] audio) {
@@ -177,13 +543,7 @@ public class TrimAndNormalizeAudio {
 	}
 
 	public static long getAbsMax(long[] data) {
-		long max = 0;
-		for (long d : data) {
-			d = Math.abs(d);
-			if (d > max) {
-				max = d;
-			}
-		}
+		long max = AudioKernels.get().absMax(data, 0, data.length);
 		return max - 1; // Subtract 1 to prevent clipping
 	}
 }
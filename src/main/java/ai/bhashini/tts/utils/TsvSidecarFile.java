@@ -0,0 +1,128 @@
+package ai.bhashini.tts.utils;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Entries for the files under a root directory, keyed by path and kept in a
+ * TSV sidecar file in that directory, with one line per file: its path
+ * relative to the root and the fields of its entry. Used by
+ * {@link AudioMetadataCache} and {@link RecordingStatsEngine}. Instances are
+ * thread-safe.
+ */
+public abstract class TsvSidecarFile<E> {
+	protected File rootDir;
+	protected File cacheFile;
+	protected String rootPrefix;
+	// First line of the file; entries of a file that doesn't start with it are discarded. May be null.
+	protected String settingsLine;
+	protected String headerLine;
+	protected int numFields;
+	protected ConcurrentHashMap<String, E> entries = new ConcurrentHashMap<>();
+	protected volatile boolean modified = false;
+
+	protected TsvSidecarFile(File rootDir, String fileName, String settingsLine, String headerLine, int numFields) {
+		this.rootDir = rootDir;
+		this.cacheFile = new File(rootDir, fileName);
+		this.rootPrefix = rootDir.getPath() + File.separator;
+		this.settingsLine = settingsLine;
+		this.headerLine = headerLine;
+		this.numFields = numFields;
+	}
+
+	// Parses the fields of a line (fields[0] being the path) into an entry
+	protected abstract E parseEntry(String[] fields) throws NumberFormatException;
+
+	// The fields of the entry after the path, joined by tabs
+	protected abstract String formatEntry(E entry);
+
+	public File getCacheFile() {
+		return cacheFile;
+	}
+
+	// Path relative to the root directory with '/' separators, so that the
+	// file stays valid when the dataset is moved or shared across platforms
+	protected String getKey(File file) {
+		String path = file.getAbsolutePath();
+		if (path.startsWith(rootPrefix)) {
+			path = path.substring(rootPrefix.length());
+		}
+		return path.replace(File.separatorChar, '/');
+	}
+
+	protected void put(String key, E entry) {
+		// Paths that would break the TSV format are simply not kept
+		if (key.indexOf('\t') == -1 && key.indexOf('\n') == -1 && key.indexOf('\r') == -1) {
+			entries.put(key, entry);
+			modified = true;
+		}
+	}
+
+	protected void load() {
+		if (!cacheFile.exists()) {
+			return;
+		}
+		try (BufferedReader br = Files.newBufferedReader(cacheFile.toPath(), StandardCharsets.UTF_8)) {
+			if (settingsLine != null && !settingsLine.equals(br.readLine())) {
+				return;
+			}
+			String line;
+			while ((line = br.readLine()) != null) {
+				if (line.isEmpty() || line.startsWith("#")) {
+					continue;
+				}
+				String[] fields = line.split("\t");
+				if (fields.length < numFields) {
+					continue;
+				}
+				try {
+					entries.put(fields[0], parseEntry(fields));
+				} catch (NumberFormatException e) {
+					// Ignore corrupt lines; the file will simply be processed again
+				}
+			}
+		} catch (IOException e) {
+			e.printStackTrace();
+		}
+	}
+
+	/**
+	 * Writes the file if any entry was added or updated since it was loaded or
+	 * last saved. The file is replaced atomically, so an interrupted run never
+	 * leaves a truncated file behind.
+	 */
+	public synchronized void save() {
+		if (!modified) {
+			return;
+		}
+		// Cleared before the entries are copied, so that an entry added while the
+		// file is written marks it modified for the next save
+		modified = false;
+		File tmpFile = new File(cacheFile.getPath() + ".tmp");
+		try {
+			try (BufferedWriter bw = Files.newBufferedWriter(tmpFile.toPath(), StandardCharsets.UTF_8)) {
+				if (settingsLine != null) {
+					bw.write(settingsLine + "\n");
+				}
+				bw.write(headerLine + "\n");
+				// Sorted so that the file diffs well between runs
+				for (Map.Entry<String, E> e : new TreeMap<>(entries).entrySet()) {
+					bw.write(e.getKey() + "\t" + formatEntry(e.getValue()) + "\n");
+				}
+			}
+			Files.move(tmpFile.toPath(), cacheFile.toPath(), StandardCopyOption.REPLACE_EXISTING,
+					StandardCopyOption.ATOMIC_MOVE);
+		} catch (IOException e) {
+			modified = true;
+			e.printStackTrace();
+		}
+	}
+}
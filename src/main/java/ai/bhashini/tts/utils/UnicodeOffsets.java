@@ -1,5 +1,6 @@
 package ai.bhashini.tts.utils;
 
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.concurrent.ConcurrentHashMap;
 
@@ -233,11 +234,77 @@ public enum UnicodeOffsets {
 	}
 
 	public static class UnicodeNormalization {
+		// Merges of two consecutive characters into one: { first, second, merged }
+		private static final UnicodeOffsets[][] DEVANAGARI_VOWEL_SIGN_MERGES = {
+				{ VOWEL_SIGN_AA, VOWEL_SIGN_CHANDRA_E, VOWEL_SIGN_CHANDRA_O },
+				{ VOWEL_SIGN_AA, VOWEL_SIGN_E, VOWEL_SIGN_O },
+				{ VOWEL_SIGN_AA, VOWEL_SIGN_EE, VOWEL_SIGN_OO },
+				{ VOWEL_SIGN_AA, VOWEL_SIGN_AI, VOWEL_SIGN_AU },
+				{ LETTER_A, VOWEL_SIGN_AA, LETTER_AA } };
+		private static final UnicodeOffsets[][] NUKTA_MERGES = {
+				{ LETTER_K, SIGN_NUKTA, LETTER_Q },
+				{ LETTER_KH, SIGN_NUKTA, LETTER_KHH },
+				{ LETTER_G, SIGN_NUKTA, LETTER_GHH },
+				{ LETTER_J, SIGN_NUKTA, LETTER_Z },
+				{ LETTER_DD, SIGN_NUKTA, LETTER_DDDH },
+				{ LETTER_DDH, SIGN_NUKTA, LETTER_RH },
+				{ LETTER_PH, SIGN_NUKTA, LETTER_F },
+				{ LETTER_Y, SIGN_NUKTA, LETTER_YY },
+				{ LETTER_N, SIGN_NUKTA, LETTER_NNN },
+				{ LETTER_R, SIGN_NUKTA, LETTER_RR },
+				{ LETTER_LL, SIGN_NUKTA, LETTER_LLL } };
+		private static final UnicodeOffsets[][] PRISHTHAMATRA_MERGES = {
+				{ VOWEL_SIGN_PRISHTHAMATRA_E, VOWEL_SIGN_E, VOWEL_SIGN_AI },
+				{ VOWEL_SIGN_PRISHTHAMATRA_E, VOWEL_SIGN_AA, VOWEL_SIGN_O },
+				{ VOWEL_SIGN_PRISHTHAMATRA_E, VOWEL_SIGN_O, VOWEL_SIGN_AU } };
+		private static final UnicodeOffsets[][] BENGALI_NUKTA_MERGES = {
+				{ LETTER_DD, SIGN_NUKTA, LETTER_DDDH },
+				{ LETTER_DDH, SIGN_NUKTA, LETTER_RH },
+				{ LETTER_Y, SIGN_NUKTA, LETTER_YY } };
+		private static final UnicodeOffsets[][] TAMIL_VOWEL_SIGN_MERGES = {
+				{ VOWEL_SIGN_E, VOWEL_SIGN_AA, VOWEL_SIGN_O },
+				{ VOWEL_SIGN_EE, VOWEL_SIGN_AA, VOWEL_SIGN_OO },
+				{ VOWEL_SIGN_E, AU_LENGTH_MARK, VOWEL_SIGN_AU },
+				{ LETTER_O, AU_LENGTH_MARK, LETTER_AU } };
+		private static final UnicodeOffsets[][] TELUGU_VOWEL_SIGN_MERGES = {
+				{ VOWEL_SIGN_I, LENGTH_MARK, VOWEL_SIGN_II },
+				{ VOWEL_SIGN_E, LENGTH_MARK, VOWEL_SIGN_EE },
+				{ VOWEL_SIGN_O, LENGTH_MARK, VOWEL_SIGN_OO },
+				{ VOWEL_SIGN_E, AI_LENGTH_MARK, VOWEL_SIGN_AI },
+				{ VOWEL_SIGN_E, VOWEL_SIGN_U, VOWEL_SIGN_O } };
+		private static final UnicodeOffsets[][] KANNADA_VOWEL_SIGN_MERGES = {
+				{ VOWEL_SIGN_I, LENGTH_MARK, VOWEL_SIGN_II },
+				{ VOWEL_SIGN_E, LENGTH_MARK, VOWEL_SIGN_EE },
+				{ VOWEL_SIGN_O, LENGTH_MARK, VOWEL_SIGN_OO },
+				{ VOWEL_SIGN_E, AI_LENGTH_MARK, VOWEL_SIGN_AI },
+				{ VOWEL_SIGN_E, VOWEL_SIGN_UU, VOWEL_SIGN_O } };
+		// Two-part vowels written around the consonant: { left, right, merged }
+		private static final UnicodeOffsets[][] BENGALI_TWO_PART_VOWELS = {
+				{ VOWEL_SIGN_E, VOWEL_SIGN_AA, VOWEL_SIGN_O },
+				{ VOWEL_SIGN_E, AU_LENGTH_MARK, VOWEL_SIGN_AU } };
+		private static final UnicodeOffsets[][] MALAYALAM_TWO_PART_VOWELS = {
+				{ VOWEL_SIGN_E, VOWEL_SIGN_AA, VOWEL_SIGN_O },
+				{ VOWEL_SIGN_E, AU_LENGTH_MARK, AU_LENGTH_MARK },
+				{ VOWEL_SIGN_EE, VOWEL_SIGN_AA, VOWEL_SIGN_OO } };
+
+		private static final int BLOCK_SIZE = 0x80;
+
 		private Script script;
+		// Compiled form of all the merges of the script, indexed by offsets within
+		// the script's block: merges[first][second] is (rule << 8 | merged offset),
+		// where rule is the position of the merge in the sequence in which the merge
+		// methods below apply them, or -1. replacedOffsets[offset] is the offset of
+		// the replacement of a single character, or -1.
+		private int[][] merges = new int[BLOCK_SIZE][];
+		private int[] replacedOffsets = new int[BLOCK_SIZE];
+		private int numMerges = 0;
+		private UnicodeOffsets[][] twoPartVowelsBefore = {};
+		private UnicodeOffsets[][] twoPartVowelsAfter = {};
 
 		// Enforce similar usage as that of NumberExpansion and AbbreviationExpansion
 		private UnicodeNormalization(Script script) {
 			this.script = script;
+			compileMerges();
 		}
 
 		// Thread-safe map
@@ -247,50 +314,168 @@ public enum UnicodeOffsets {
 			return uniqueInstancesMap.computeIfAbsent(script, UnicodeNormalization::new);
 		}
 
-		public String mergeVowelSigns(String text) {
+		private void compileMerges() {
+			Arrays.fill(replacedOffsets, -1);
 			switch (script) {
 			case Devanagari:
-				text = mergeDevanagariVowelSigns(text);
-				text = mergeNuktas(text);
-				text = mergePrishthamatra(text);
+				addMerges(DEVANAGARI_VOWEL_SIGN_MERGES);
+				addMerges(NUKTA_MERGES);
+				addMerges(PRISHTHAMATRA_MERGES);
 				break;
 			case Bengali:
-				text = mergeBengaliVowelSigns(text);
-				break;
-			case Gurmukhi:
-				break;
-			case Gujarati:
-				break;
-			case Odia:
+				addMerges(BENGALI_NUKTA_MERGES);
+				twoPartVowelsAfter = BENGALI_TWO_PART_VOWELS;
 				break;
 			case Tamil:
-				text = mergeTamilVowelSigns(text);
+				addMerges(TAMIL_VOWEL_SIGN_MERGES);
 				break;
 			case Telugu:
-				text = mergeTeluguVowelSigns(text);
+				addMerges(TELUGU_VOWEL_SIGN_MERGES);
 				break;
 			case Kannada:
-				text = mergeKannadaVowelSigns(text);
+				addMerges(KANNADA_VOWEL_SIGN_MERGES);
 				break;
 			case Malayalam:
-				text = mergeMalayalamVowelSigns(text);
+				twoPartVowelsBefore = MALAYALAM_TWO_PART_VOWELS;
+				// MALAYALAM AU LENGTH MARK: used alone to write the /au/ dependent vowel in modern texts
+				// MALAYALAM VOWEL SIGN AU: archaic form of the /au/ dependent vowel
+				replacedOffsets[VOWEL_SIGN_AU.offset] = AU_LENGTH_MARK.offset;
 				break;
 			default:
 				break;
 			}
+		}
+
+		private void addMerges(UnicodeOffsets[][] mergeList) {
+			for (UnicodeOffsets[] merge : mergeList) {
+				int[] row = merges[merge[0].offset];
+				if (row == null) {
+					row = new int[BLOCK_SIZE];
+					Arrays.fill(row, -1);
+					merges[merge[0].offset] = row;
+				}
+				if (row[merge[1].offset] == -1) {
+					row[merge[1].offset] = (numMerges << 8) | merge[2].offset;
+				}
+				numMerges++;
+			}
+		}
+
+		private int getMerge(int firstOffset, int secondOffset) {
+			if (firstOffset < 0 || firstOffset >= BLOCK_SIZE || merges[firstOffset] == null || secondOffset < 0
+					|| secondOffset >= BLOCK_SIZE) {
+				return -1;
+			}
+			return merges[firstOffset][secondOffset];
+		}
+
+		private int getReplacedOffset(char ch) {
+			int offset = ch - script.unicodeBlockStart;
+			if (offset >= 0 && offset < BLOCK_SIZE && replacedOffsets[offset] != -1) {
+				return replacedOffsets[offset];
+			}
+			return offset;
+		}
+
+		/**
+		 * Applies all the merges of the script (the same ones, with the same
+		 * result, as the script's merge methods below) in a single scan. Each
+		 * character is merged with the previous output character, unless a merge
+		 * with the next character comes first, and a merged character is merged
+		 * again with the one before it if that merge comes later.
+		 */
+		public String mergeVowelSigns(String text) {
+			for (UnicodeOffsets[] twoPartVowel : twoPartVowelsBefore) {
+				text = mergeTwoPartVowels(twoPartVowel[0], twoPartVowel[1], twoPartVowel[2], text);
+			}
+			int blockStart = script.unicodeBlockStart;
+			int length = text.length();
+			StringBuilder newText = null;
+			int[] mergeRules = null; // Merge that produced each character of newText, or -1
+			for (int i = 0; i < length; i++) {
+				char ch = text.charAt(i);
+				int offset = getReplacedOffset(ch);
+				int prevOffset = -1;
+				int prevRule = -1;
+				if (newText != null) {
+					if (newText.length() > 0) {
+						prevOffset = newText.charAt(newText.length() - 1) - blockStart;
+						prevRule = mergeRules[newText.length() - 1];
+					}
+				} else if (i > 0) {
+					prevOffset = text.charAt(i - 1) - blockStart;
+				}
+				int merge = getMerge(prevOffset, offset);
+				// A merge does not apply to characters produced by later merges
+				if (merge != -1 && (merge >> 8) < prevRule) {
+					merge = -1;
+				}
+				if (merge != -1 && i + 1 < length) {
+					int nextMerge = getMerge(offset, getReplacedOffset(text.charAt(i + 1)));
+					if (nextMerge != -1 && (nextMerge >> 8) < (merge >> 8)) {
+						merge = -1;
+					}
+				}
+				if (merge == -1 && offset == ch - blockStart) {
+					if (newText != null) {
+						mergeRules[newText.length()] = -1;
+						newText.append(ch);
+					}
+					continue;
+				}
+				// The text changes here; copy what has been scanned so far
+				if (newText == null) {
+					newText = new StringBuilder(length);
+					newText.append(text, 0, i);
+					mergeRules = new int[length];
+					Arrays.fill(mergeRules, -1);
+				}
+				if (merge == -1) {
+					mergeRules[newText.length()] = -1;
+					newText.append((char) (blockStart + offset));
+					continue;
+				}
+				int newLength = newText.length();
+				newText.setCharAt(newLength - 1, (char) (blockStart + (merge & 0xFF)));
+				mergeRules[newLength - 1] = merge >> 8;
+				while (newLength >= 2) {
+					int cascadedMerge = getMerge(newText.charAt(newLength - 2) - blockStart, merge & 0xFF);
+					if (cascadedMerge == -1 || (cascadedMerge >> 8) < (merge >> 8)
+							|| (cascadedMerge >> 8) < mergeRules[newLength - 2]) {
+						break;
+					}
+					merge = cascadedMerge;
+					newText.setLength(--newLength);
+					newText.setCharAt(newLength - 1, (char) (blockStart + (merge & 0xFF)));
+					mergeRules[newLength - 1] = merge >> 8;
+				}
+			}
+			if (newText != null) {
+				text = newText.toString();
+			}
+			for (UnicodeOffsets[] twoPartVowel : twoPartVowelsAfter) {
+				text = mergeTwoPartVowels(twoPartVowel[0], twoPartVowel[1], twoPartVowel[2], text);
+			}
 			return text;
 		}
 
 		private String mergeUnicode(UnicodeOffsets first, UnicodeOffsets second, UnicodeOffsets replace, String text) {
 			String target = first.getUnicode(script) + second.getUnicode(script);
 			String replacement = replace.getUnicode(script);
-			return text.replaceAll(target, replacement);
+			return text.replace(target, replacement);
+		}
+
+		private String mergeUnicode(UnicodeOffsets[][] merges, String text) {
+			for (UnicodeOffsets[] merge : merges) {
+				text = mergeUnicode(merge[0], merge[1], merge[2], text);
+			}
+			return text;
 		}
 
 		private String replaceUnicode(UnicodeOffsets old, UnicodeOffsets replace, String text) {
 			String target = old.getUnicode(script);
 			String replacement = replace.getUnicode(script);
-			return text.replaceAll(target, replacement);
+			return text.replace(target, replacement);
 		}
 
 		public String mergeTwoPartVowels(UnicodeOffsets left, UnicodeOffsets right, UnicodeOffsets replace,
@@ -322,78 +507,45 @@ public enum UnicodeOffsets {
 			return newText.toString();
 		}
 
+		// The methods below apply the merges one after the other, each with a
+		// separate scan of the text; mergeVowelSigns does the same in one scan.
+
 		public String mergeDevanagariVowelSigns(String text) {
-			text = mergeUnicode(VOWEL_SIGN_AA, VOWEL_SIGN_CHANDRA_E, VOWEL_SIGN_CHANDRA_O, text);
-			text = mergeUnicode(VOWEL_SIGN_AA, VOWEL_SIGN_E, VOWEL_SIGN_O, text);
-			text = mergeUnicode(VOWEL_SIGN_AA, VOWEL_SIGN_EE, VOWEL_SIGN_OO, text);
-			text = mergeUnicode(VOWEL_SIGN_AA, VOWEL_SIGN_AI, VOWEL_SIGN_AU, text);
-			text = mergeUnicode(LETTER_A, VOWEL_SIGN_AA, LETTER_AA, text);
-			return text;
+			return mergeUnicode(DEVANAGARI_VOWEL_SIGN_MERGES, text);
 		}
 
 		public String mergeNuktas(String text) {
-			text = mergeUnicode(LETTER_K, SIGN_NUKTA, LETTER_Q, text);
-			text = mergeUnicode(LETTER_KH, SIGN_NUKTA, LETTER_KHH, text);
-			text = mergeUnicode(LETTER_G, SIGN_NUKTA, LETTER_GHH, text);
-			text = mergeUnicode(LETTER_J, SIGN_NUKTA, LETTER_Z, text);
-			text = mergeUnicode(LETTER_DD, SIGN_NUKTA, LETTER_DDDH, text);
-			text = mergeUnicode(LETTER_DDH, SIGN_NUKTA, LETTER_RH, text);
-			text = mergeUnicode(LETTER_PH, SIGN_NUKTA, LETTER_F, text);
-			text = mergeUnicode(LETTER_Y, SIGN_NUKTA, LETTER_YY, text);
-			text = mergeUnicode(LETTER_N, SIGN_NUKTA, LETTER_NNN, text);
-			text = mergeUnicode(LETTER_R, SIGN_NUKTA, LETTER_RR, text);
-			text = mergeUnicode(LETTER_LL, SIGN_NUKTA, LETTER_LLL, text);
-			return text;
+			return mergeUnicode(NUKTA_MERGES, text);
 		}
 
 		public String mergePrishthamatra(String text) {
-			text = mergeUnicode(VOWEL_SIGN_PRISHTHAMATRA_E, VOWEL_SIGN_E, VOWEL_SIGN_AI, text);
-			text = mergeUnicode(VOWEL_SIGN_PRISHTHAMATRA_E, VOWEL_SIGN_AA, VOWEL_SIGN_O, text);
-			text = mergeUnicode(VOWEL_SIGN_PRISHTHAMATRA_E, VOWEL_SIGN_O, VOWEL_SIGN_AU, text);
-			return text;
+			return mergeUnicode(PRISHTHAMATRA_MERGES, text);
 		}
 
 		public String mergeBengaliVowelSigns(String text) {
-			text = mergeUnicode(LETTER_DD, SIGN_NUKTA, LETTER_DDDH, text);
-			text = mergeUnicode(LETTER_DDH, SIGN_NUKTA, LETTER_RH, text);
-			text = mergeUnicode(LETTER_Y, SIGN_NUKTA, LETTER_YY, text);
-
-			text = mergeTwoPartVowels(VOWEL_SIGN_E, VOWEL_SIGN_AA, VOWEL_SIGN_O, text);
-			text = mergeTwoPartVowels(VOWEL_SIGN_E, AU_LENGTH_MARK, VOWEL_SIGN_AU, text);
-
+			text = mergeUnicode(BENGALI_NUKTA_MERGES, text);
+			for (UnicodeOffsets[] twoPartVowel : BENGALI_TWO_PART_VOWELS) {
+				text = mergeTwoPartVowels(twoPartVowel[0], twoPartVowel[1], twoPartVowel[2], text);
+			}
 			return text;
 		}
 
 		public String mergeTamilVowelSigns(String text) {
-			text = mergeUnicode(VOWEL_SIGN_E, VOWEL_SIGN_AA, VOWEL_SIGN_O, text);
-			text = mergeUnicode(VOWEL_SIGN_EE, VOWEL_SIGN_AA, VOWEL_SIGN_OO, text);
-			text = mergeUnicode(VOWEL_SIGN_E, AU_LENGTH_MARK, VOWEL_SIGN_AU, text);
-			text = mergeUnicode(LETTER_O, AU_LENGTH_MARK, LETTER_AU, text);
-	        return text;
-	    }
-
-	    public String mergeTeluguVowelSigns(String text) {
-			text = mergeUnicode(VOWEL_SIGN_I, LENGTH_MARK, VOWEL_SIGN_II, text);
-			text = mergeUnicode(VOWEL_SIGN_E, LENGTH_MARK, VOWEL_SIGN_EE, text);
-			text = mergeUnicode(VOWEL_SIGN_O, LENGTH_MARK, VOWEL_SIGN_OO, text);
-			text = mergeUnicode(VOWEL_SIGN_E, AI_LENGTH_MARK, VOWEL_SIGN_AI, text);
-			text = mergeUnicode(VOWEL_SIGN_E, VOWEL_SIGN_U, VOWEL_SIGN_O, text);
-	        return text;
-	    }
-
-	    public String mergeKannadaVowelSigns(String text) {
-			text = mergeUnicode(VOWEL_SIGN_I, LENGTH_MARK, VOWEL_SIGN_II, text);
-			text = mergeUnicode(VOWEL_SIGN_E, LENGTH_MARK, VOWEL_SIGN_EE, text);
-			text = mergeUnicode(VOWEL_SIGN_O, LENGTH_MARK, VOWEL_SIGN_OO, text);
-			text = mergeUnicode(VOWEL_SIGN_E, AI_LENGTH_MARK, VOWEL_SIGN_AI, text);
-			text = mergeUnicode(VOWEL_SIGN_E, VOWEL_SIGN_UU, VOWEL_SIGN_O, text);
-		    return text;
+			return mergeUnicode(TAMIL_VOWEL_SIGN_MERGES, text);
+		}
+
+		public String mergeTeluguVowelSigns(String text) {
+			return mergeUnicode(TELUGU_VOWEL_SIGN_MERGES, text);
+		}
+
+		public String mergeKannadaVowelSigns(String text) {
+			return mergeUnicode(KANNADA_VOWEL_SIGN_MERGES, text);
 		}
 
 		public String mergeMalayalamVowelSigns(String text) {
-			text = mergeTwoPartVowels(VOWEL_SIGN_E, VOWEL_SIGN_AA, VOWEL_SIGN_O, text);
-			text = mergeTwoPartVowels(VOWEL_SIGN_E, AU_LENGTH_MARK, AU_LENGTH_MARK, text);
-			text = mergeTwoPartVowels(VOWEL_SIGN_EE, VOWEL_SIGN_AA, VOWEL_SIGN_OO, text);
+			for (UnicodeOffsets[] twoPartVowel : MALAYALAM_TWO_PART_VOWELS) {
+				text = mergeTwoPartVowels(twoPartVowel[0], twoPartVowel[1], twoPartVowel[2], text);
+			}
 
 			// MALAYALAM AU LENGTH MARK: used alone to write the /au/ dependent vowel in modern texts
 			// MALAYALAM VOWEL SIGN AU: archaic form of the /au/ dependent vowel
@@ -11,6 +11,9 @@ package ai.bhashini.tts.utils;
 // Version 1.0
 
 import java.io.*;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
 
 public class WavFile {
 	private enum IOState {
@@ -18,6 +21,11 @@ public class WavFile {
 	};
 
 	private final static int BUFFER_SIZE = 4096;
+	// Data chunks up to this size are fetched with a single positional read,
+	// larger ones are memory-mapped window by window. Mapping lots of small
+	// takes would exhaust the process map count before GC unmaps them.
+	private final static long MAX_HEAP_READ_SIZE = 4 * 1024 * 1024;
+	private final static long MAPPED_WINDOW_SIZE = 256 * 1024 * 1024;
 
 	private final static int FMT_CHUNK_ID = 0x20746D66;
 	private final static int DATA_CHUNK_ID = 0x61746164;
@@ -30,6 +38,9 @@ public class WavFile {
 	private long numFrames; // Number of frames within the data section
 	private FileOutputStream oStream; // Output stream used for writing data
 	private FileInputStream iStream; // Input stream used for reading data
+	private FileChannel dataChannel; // Channel used for reading data in memory-mapped mode
+	private ByteBuffer dataBuffer; // Mapped (or bulk read) window of the data chunk
+	private long dataOffset; // File position of the first byte of the data chunk
 	private double floatScale; // Scaling factor used for int <-> float conversion
 	private double floatOffset; // Offset factor used for int <-> float conversion
 	private boolean wordAlignAdjust; // Specify if an extra byte at the end of the data chunk is required for word alignment
@@ -46,6 +57,7 @@ public class WavFile {
 	private int bufferPointer; // Points to the current position in local buffer
 	private int bytesRead; // Bytes read after last read into local buffer
 	private long frameCounter; // Current number of frames read or written
+	private long[] sampleScratch; // Samples being decoded or encoded in bulk
 
 	// Cannot instantiate WavFile directly, must either use newWavFile() or
 	// openWavFile()
@@ -168,6 +180,10 @@ public class WavFile {
 	}
 
 	public static WavFile openWavFile(File file) throws IOException, WavFileException {
+		return openWavFile(file, true);
+	}
+
+	public static WavFile openWavFile(File file, boolean memoryMapped) throws IOException, WavFileException {
 		// Instantiate new Wavfile and store the file reference
 		WavFile wavFile = new WavFile();
 		wavFile.file = file;
@@ -300,6 +316,13 @@ public class WavFile {
 			wavFile.floatScale = 0.5 * ((1 << wavFile.validBits) - 1);
 		}
 
+		// In memory-mapped mode the data chunk is read through the channel
+		// instead of the input stream, starting right after the chunk header
+		if (memoryMapped) {
+			wavFile.dataChannel = wavFile.iStream.getChannel();
+			wavFile.dataOffset = wavFile.dataChannel.position();
+		}
+
 		wavFile.bufferPointer = 0;
 		wavFile.bytesRead = 0;
 		wavFile.frameCounter = 0;
@@ -331,19 +354,35 @@ public class WavFile {
 
 	// Sample Writing and Reading
 	// --------------------------
-	private void writeSample(long val) throws IOException {
-		for (int b = 0; b < bytesPerSample; b++) {
-			if (bufferPointer == BUFFER_SIZE) {
-				oStream.write(buffer, 0, BUFFER_SIZE);
+	private void writeSamples(long[] samples, int pos, int numSamples) throws IOException {
+		int end = pos + numSamples;
+		while (pos < end) {
+			int room = (BUFFER_SIZE - bufferPointer) / bytesPerSample;
+			if (room == 0) {
+				oStream.write(buffer, 0, bufferPointer);
 				bufferPointer = 0;
+				continue;
 			}
 
-			buffer[bufferPointer] = (byte) (val & 0xFF);
-			val >>= 8;
-			bufferPointer++;
+			int n = Math.min(room, end - pos);
+			bufferPointer = PcmCodec.encodeLE(samples, pos, buffer, bufferPointer, n, bytesPerSample);
+			pos += n;
 		}
 	}
 
+	// Number of frames that fit in the scratch buffer used for bulk conversion
+	private int getScratchFrames() {
+		if (sampleScratch == null) {
+			int scratchFrames = Math.max(1, BUFFER_SIZE / numChannels);
+			sampleScratch = new long[scratchFrames * numChannels];
+		}
+		return sampleScratch.length / numChannels;
+	}
+
+	private int getWritableFrames(int numFramesToWrite) {
+		return (int) Math.min(Math.min(numFramesToWrite, numFrames - frameCounter), getScratchFrames());
+	}
+
 	private long readSample() throws IOException, WavFileException {
 		long val = 0;
 
@@ -367,24 +406,88 @@ public class WavFile {
 		return val;
 	}
 
+	// Memory-mapped Reading
+	// ---------------------
+	// Makes sure dataBuffer holds the next frame to be read and returns the
+	// number of frames (up to numFramesToRead) that can be decoded from it
+	private int prepareDataBuffer(int numFramesToRead) throws IOException, WavFileException {
+		long framesRemaining = numFrames - frameCounter;
+		if (framesRemaining <= 0 || numFramesToRead <= 0)
+			return 0;
+
+		if (dataBuffer == null || !dataBuffer.hasRemaining()) {
+			long position = dataOffset + frameCounter * blockAlign;
+			long numBytes = framesRemaining * blockAlign;
+			if (position + numBytes > dataChannel.size())
+				throw new WavFileException("Not enough data available");
+
+			if (numBytes <= MAX_HEAP_READ_SIZE) {
+				dataBuffer = ByteBuffer.allocate((int) numBytes);
+				while (dataBuffer.hasRemaining()) {
+					if (dataChannel.read(dataBuffer, position + dataBuffer.position()) == -1)
+						throw new WavFileException("Not enough data available");
+				}
+				dataBuffer.flip();
+			} else {
+				long windowSize = Math.min(numBytes, MAPPED_WINDOW_SIZE - MAPPED_WINDOW_SIZE % blockAlign);
+				dataBuffer = dataChannel.map(FileChannel.MapMode.READ_ONLY, position, windowSize);
+			}
+			dataBuffer.order(ByteOrder.LITTLE_ENDIAN);
+		}
+
+		return (int) Math.min(numFramesToRead, Math.min(framesRemaining, dataBuffer.remaining() / blockAlign));
+	}
+
+	private void decodeSamples(int numSamples) {
+		if (!PcmCodec.decode(dataBuffer, bytesPerSample, sampleScratch, 0, numSamples)) {
+			for (int i = 0; i < numSamples; i++)
+				sampleScratch[i] = getDataSample();
+		}
+	}
+
+	private long getDataSample() {
+		long val = 0;
+
+		for (int b = 0; b < bytesPerSample; b++) {
+			int v = dataBuffer.get();
+			if (b < bytesPerSample - 1 || bytesPerSample == 1)
+				v &= 0xFF;
+			val += v << (b * 8);
+		}
+
+		return val;
+	}
+
 	// Returns audio data of 1st channel only.
 	public static long[] audioBytesToLong(byte[] audioBytes, int numChannels, int bytesPerSample,
 			boolean isBigEndian) {
 		int bytesPerFrame = bytesPerSample * numChannels;
 		int numFrames = audioBytes.length / bytesPerFrame;
 		long[] audio = new long[numFrames];
-		for (int f = 0; f < numFrames; f++) {
-			// Reference: WavFile.readSample()
-			long val = 0;
-			for (int b = 0; b < bytesPerSample; b++) {
-				long v = audioBytes[f * bytesPerFrame + b];
-				if (bytesPerSample == 1 || (isBigEndian && b > 0) || (!isBigEndian && b < bytesPerSample - 1)) {
-					v &= 0xff;
+		if (bytesPerSample == 1) {
+			PcmCodec.decode8(audioBytes, 0, bytesPerFrame, audio, 0, numFrames);
+		} else if (bytesPerSample == 2 && isBigEndian) {
+			PcmCodec.decode16BE(audioBytes, 0, bytesPerFrame, audio, 0, numFrames);
+		} else if (bytesPerSample == 2) {
+			PcmCodec.decode16LE(audioBytes, 0, bytesPerFrame, audio, 0, numFrames);
+		} else if (bytesPerSample == 3 && !isBigEndian) {
+			PcmCodec.decode24LE(audioBytes, 0, bytesPerFrame, audio, 0, numFrames);
+		} else if (bytesPerSample == 4 && !isBigEndian) {
+			PcmCodec.decode32LE(audioBytes, 0, bytesPerFrame, audio, 0, numFrames);
+		} else {
+			for (int f = 0; f < numFrames; f++) {
+				// Reference: WavFile.readSample()
+				long val = 0;
+				for (int b = 0; b < bytesPerSample; b++) {
+					long v = audioBytes[f * bytesPerFrame + b];
+					if ((isBigEndian && b > 0) || (!isBigEndian && b < bytesPerSample - 1)) {
+						v &= 0xff;
+					}
+					int shiftBy = isBigEndian ? (bytesPerSample - 1 - b) : b;
+					val += (v << shiftBy * 8);
 				}
-				int shiftBy = isBigEndian ? (bytesPerSample - 1 - b) : b;
-				val += (v << shiftBy * 8);
+				audio[f] = val;
 			}
-			audio[f] = val;
 		}
 		return audio;
 	}
@@ -397,17 +500,13 @@ public class WavFile {
 
 	public static double[] scaleAudio(long[] audio, double scale) {
 		double[] scaledAudio = new double[audio.length];
-		for (int f = 0; f < audio.length; f++) {
-			scaledAudio[f] = audio[f] / scale;
-		}
+		AudioKernels.get().scale(audio, 0, scaledAudio, 0, audio.length, scale);
 		return scaledAudio;
 	}
 
 	public static float[] scaleAudio(long[] audio, float scale) {
 		float[] scaledAudio = new float[audio.length];
-		for (int f = 0; f < audio.length; f++) {
-			scaledAudio[f] = audio[f] / scale;
-		}
+		AudioKernels.get().scale(audio, 0, scaledAudio, 0, audio.length, scale);
 		return scaledAudio;
 	}
 
@@ -425,6 +524,25 @@ public class WavFile {
 		if (ioState != IOState.READING)
 			throw new IOException("Cannot read from WavFile instance");
 
+		if (dataChannel != null) {
+			int framesRead = 0;
+			int n;
+			while ((n = prepareDataBuffer(Math.min(numFramesToRead - framesRead, getScratchFrames()))) > 0) {
+				decodeSamples(n * numChannels);
+				int i = 0;
+				for (int f = 0; f < n; f++) {
+					for (int c = 0; c < numChannels; c++) {
+						sampleBuffer[offset] = (int) sampleScratch[i];
+						offset++;
+						i++;
+					}
+				}
+				framesRead += n;
+				frameCounter += n;
+			}
+			return framesRead;
+		}
+
 		for (int f = 0; f < numFramesToRead; f++) {
 			if (frameCounter == numFrames)
 				return f;
@@ -448,6 +566,25 @@ public class WavFile {
 		if (ioState != IOState.READING)
 			throw new IOException("Cannot read from WavFile instance");
 
+		if (dataChannel != null) {
+			int framesRead = 0;
+			int n;
+			while ((n = prepareDataBuffer(Math.min(numFramesToRead - framesRead, getScratchFrames()))) > 0) {
+				decodeSamples(n * numChannels);
+				int i = 0;
+				for (int f = 0; f < n; f++) {
+					for (int c = 0; c < numChannels; c++) {
+						sampleBuffer[c][offset] = (int) sampleScratch[i];
+						i++;
+					}
+					offset++;
+				}
+				framesRead += n;
+				frameCounter += n;
+			}
+			return framesRead;
+		}
+
 		for (int f = 0; f < numFramesToRead; f++) {
 			if (frameCounter == numFrames)
 				return f;
@@ -470,19 +607,23 @@ public class WavFile {
 		if (ioState != IOState.WRITING)
 			throw new IOException("Cannot write to WavFile instance");
 
-		for (int f = 0; f < numFramesToWrite; f++) {
-			if (frameCounter == numFrames)
-				return f;
-
-			for (int c = 0; c < numChannels; c++) {
-				writeSample(sampleBuffer[offset]);
-				offset++;
+		int framesWritten = 0;
+		int n;
+		while ((n = getWritableFrames(numFramesToWrite - framesWritten)) > 0) {
+			int i = 0;
+			for (int f = 0; f < n; f++) {
+				for (int c = 0; c < numChannels; c++) {
+					sampleScratch[i] = sampleBuffer[offset];
+					offset++;
+					i++;
+				}
 			}
-
-			frameCounter++;
+			writeSamples(sampleScratch, 0, i);
+			framesWritten += n;
+			frameCounter += n;
 		}
 
-		return numFramesToWrite;
+		return framesWritten;
 	}
 
 	public int writeFrames(int[][] sampleBuffer, int numFramesToWrite) throws IOException, WavFileException {
@@ -494,18 +635,23 @@ public class WavFile {
 		if (ioState != IOState.WRITING)
 			throw new IOException("Cannot write to WavFile instance");
 
-		for (int f = 0; f < numFramesToWrite; f++) {
-			if (frameCounter == numFrames)
-				return f;
-
-			for (int c = 0; c < numChannels; c++)
-				writeSample(sampleBuffer[c][offset]);
-
-			offset++;
-			frameCounter++;
+		int framesWritten = 0;
+		int n;
+		while ((n = getWritableFrames(numFramesToWrite - framesWritten)) > 0) {
+			int i = 0;
+			for (int f = 0; f < n; f++) {
+				for (int c = 0; c < numChannels; c++) {
+					sampleScratch[i] = sampleBuffer[c][offset];
+					i++;
+				}
+				offset++;
+			}
+			writeSamples(sampleScratch, 0, i);
+			framesWritten += n;
+			frameCounter += n;
 		}
 
-		return numFramesToWrite;
+		return framesWritten;
 	}
 
 	// Long
@@ -518,6 +664,25 @@ public class WavFile {
 		if (ioState != IOState.READING)
 			throw new IOException("Cannot read from WavFile instance");
 
+		if (dataChannel != null) {
+			int framesRead = 0;
+			int n;
+			while ((n = prepareDataBuffer(Math.min(numFramesToRead - framesRead, getScratchFrames()))) > 0) {
+				decodeSamples(n * numChannels);
+				int i = 0;
+				for (int f = 0; f < n; f++) {
+					for (int c = 0; c < numChannels; c++) {
+						sampleBuffer[offset] = sampleScratch[i];
+						offset++;
+						i++;
+					}
+				}
+				framesRead += n;
+				frameCounter += n;
+			}
+			return framesRead;
+		}
+
 		for (int f = 0; f < numFramesToRead; f++) {
 			if (frameCounter == numFrames)
 				return f;
@@ -541,6 +706,25 @@ public class WavFile {
 		if (ioState != IOState.READING)
 			throw new IOException("Cannot read from WavFile instance");
 
+		if (dataChannel != null) {
+			int framesRead = 0;
+			int n;
+			while ((n = prepareDataBuffer(Math.min(numFramesToRead - framesRead, getScratchFrames()))) > 0) {
+				decodeSamples(n * numChannels);
+				int i = 0;
+				for (int f = 0; f < n; f++) {
+					for (int c = 0; c < numChannels; c++) {
+						sampleBuffer[c][offset] = sampleScratch[i];
+						i++;
+					}
+					offset++;
+				}
+				framesRead += n;
+				frameCounter += n;
+			}
+			return framesRead;
+		}
+
 		for (int f = 0; f < numFramesToRead; f++) {
 			if (frameCounter == numFrames)
 				return f;
@@ -563,19 +747,16 @@ public class WavFile {
 		if (ioState != IOState.WRITING)
 			throw new IOException("Cannot write to WavFile instance");
 
-		for (int f = 0; f < numFramesToWrite; f++) {
-			if (frameCounter == numFrames)
-				return f;
-
-			for (int c = 0; c < numChannels; c++) {
-				writeSample(sampleBuffer[offset]);
-				offset++;
-			}
-
-			frameCounter++;
+		int framesWritten = 0;
+		int n;
+		while ((n = getWritableFrames(numFramesToWrite - framesWritten)) > 0) {
+			writeSamples(sampleBuffer, offset, n * numChannels);
+			offset += n * numChannels;
+			framesWritten += n;
+			frameCounter += n;
 		}
 
-		return numFramesToWrite;
+		return framesWritten;
 	}
 
 	public int writeFrames(long[][] sampleBuffer, int numFramesToWrite) throws IOException, WavFileException {
@@ -587,18 +768,23 @@ public class WavFile {
 		if (ioState != IOState.WRITING)
 			throw new IOException("Cannot write to WavFile instance");
 
-		for (int f = 0; f < numFramesToWrite; f++) {
-			if (frameCounter == numFrames)
-				return f;
-
-			for (int c = 0; c < numChannels; c++)
-				writeSample(sampleBuffer[c][offset]);
-
-			offset++;
-			frameCounter++;
+		int framesWritten = 0;
+		int n;
+		while ((n = getWritableFrames(numFramesToWrite - framesWritten)) > 0) {
+			int i = 0;
+			for (int f = 0; f < n; f++) {
+				for (int c = 0; c < numChannels; c++) {
+					sampleScratch[i] = sampleBuffer[c][offset];
+					i++;
+				}
+				offset++;
+			}
+			writeSamples(sampleScratch, 0, i);
+			framesWritten += n;
+			frameCounter += n;
 		}
 
-		return numFramesToWrite;
+		return framesWritten;
 	}
 
 	// Double
@@ -611,6 +797,25 @@ public class WavFile {
 		if (ioState != IOState.READING)
 			throw new IOException("Cannot read from WavFile instance");
 
+		if (dataChannel != null) {
+			int framesRead = 0;
+			int n;
+			while ((n = prepareDataBuffer(Math.min(numFramesToRead - framesRead, getScratchFrames()))) > 0) {
+				decodeSamples(n * numChannels);
+				int i = 0;
+				for (int f = 0; f < n; f++) {
+					for (int c = 0; c < numChannels; c++) {
+						sampleBuffer[offset] = floatOffset + (double) sampleScratch[i] / floatScale;
+						offset++;
+						i++;
+					}
+				}
+				framesRead += n;
+				frameCounter += n;
+			}
+			return framesRead;
+		}
+
 		for (int f = 0; f < numFramesToRead; f++) {
 			if (frameCounter == numFrames)
 				return f;
@@ -635,6 +840,25 @@ public class WavFile {
 		if (ioState != IOState.READING)
 			throw new IOException("Cannot read from WavFile instance");
 
+		if (dataChannel != null) {
+			int framesRead = 0;
+			int n;
+			while ((n = prepareDataBuffer(Math.min(numFramesToRead - framesRead, getScratchFrames()))) > 0) {
+				decodeSamples(n * numChannels);
+				int i = 0;
+				for (int f = 0; f < n; f++) {
+					for (int c = 0; c < numChannels; c++) {
+						sampleBuffer[c][offset] = floatOffset + (double) sampleScratch[i] / floatScale;
+						i++;
+					}
+					offset++;
+				}
+				framesRead += n;
+				frameCounter += n;
+			}
+			return framesRead;
+		}
+
 		for (int f = 0; f < numFramesToRead; f++) {
 			if (frameCounter == numFrames)
 				return f;
@@ -658,19 +882,23 @@ public class WavFile {
 		if (ioState != IOState.WRITING)
 			throw new IOException("Cannot write to WavFile instance");
 
-		for (int f = 0; f < numFramesToWrite; f++) {
-			if (frameCounter == numFrames)
-				return f;
-
-			for (int c = 0; c < numChannels; c++) {
-				writeSample((long) (floatScale * (floatOffset + sampleBuffer[offset])));
-				offset++;
+		int framesWritten = 0;
+		int n;
+		while ((n = getWritableFrames(numFramesToWrite - framesWritten)) > 0) {
+			int i = 0;
+			for (int f = 0; f < n; f++) {
+				for (int c = 0; c < numChannels; c++) {
+					sampleScratch[i] = (long) (floatScale * (floatOffset + sampleBuffer[offset]));
+					offset++;
+					i++;
+				}
 			}
-
-			frameCounter++;
+			writeSamples(sampleScratch, 0, i);
+			framesWritten += n;
+			frameCounter += n;
 		}
 
-		return numFramesToWrite;
+		return framesWritten;
 	}
 
 	public int writeFrames(float[] sampleBuffer, int offset, int numFramesToWrite)
@@ -678,19 +906,23 @@ public class WavFile {
 		if (ioState != IOState.WRITING)
 			throw new IOException("Cannot write to WavFile instance");
 
-		for (int f = 0; f < numFramesToWrite; f++) {
-			if (frameCounter == numFrames)
-				return f;
-
-			for (int c = 0; c < numChannels; c++) {
-				writeSample((long) (floatScale * (floatOffset + sampleBuffer[offset])));
-				offset++;
+		int framesWritten = 0;
+		int n;
+		while ((n = getWritableFrames(numFramesToWrite - framesWritten)) > 0) {
+			int i = 0;
+			for (int f = 0; f < n; f++) {
+				for (int c = 0; c < numChannels; c++) {
+					sampleScratch[i] = (long) (floatScale * (floatOffset + sampleBuffer[offset]));
+					offset++;
+					i++;
+				}
 			}
-
-			frameCounter++;
+			writeSamples(sampleScratch, 0, i);
+			framesWritten += n;
+			frameCounter += n;
 		}
 
-		return numFramesToWrite;
+		return framesWritten;
 	}
 
 	public int writeFrames(double[][] sampleBuffer, int numFramesToWrite) throws IOException, WavFileException {
@@ -702,18 +934,23 @@ public class WavFile {
 		if (ioState != IOState.WRITING)
 			throw new IOException("Cannot write to WavFile instance");
 
-		for (int f = 0; f < numFramesToWrite; f++) {
-			if (frameCounter == numFrames)
-				return f;
-
-			for (int c = 0; c < numChannels; c++)
-				writeSample((long) (floatScale * (floatOffset + sampleBuffer[c][offset])));
-
-			offset++;
-			frameCounter++;
+		int framesWritten = 0;
+		int n;
+		while ((n = getWritableFrames(numFramesToWrite - framesWritten)) > 0) {
+			int i = 0;
+			for (int f = 0; f < n; f++) {
+				for (int c = 0; c < numChannels; c++) {
+					sampleScratch[i] = (long) (floatScale * (floatOffset + sampleBuffer[c][offset]));
+					i++;
+				}
+				offset++;
+			}
+			writeSamples(sampleScratch, 0, i);
+			framesWritten += n;
+			frameCounter += n;
 		}
 
-		return numFramesToWrite;
+		return framesWritten;
 	}
 
 	public void close() throws IOException {
@@ -721,6 +958,8 @@ public class WavFile {
 		if (iStream != null) {
 			iStream.close();
 			iStream = null;
+			dataChannel = null;
+			dataBuffer = null;
 		}
 
 		if (oStream != null) {
@@ -0,0 +1,225 @@
+package ai.bhashini.tts.utils;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.channels.FileChannel;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Format information of a WAV file, parsed from the RIFF header alone.
+ *
+ * Unlike {@link WavFile#openWavFile(File)} no input stream or IO buffer is
+ * created: the chunk headers are fetched with positional reads on a
+ * FileChannel into a small per-thread buffer, which is typically a single
+ * read for the whole header. The same checks as in WavFile are applied, so a
+ * file is accepted here iff WavFile can open it.
+ */
+public class WavHeader {
+	private final static int FMT_CHUNK_ID = 0x20746D66;
+	private final static int DATA_CHUNK_ID = 0x61746164;
+	private final static int RIFF_CHUNK_ID = 0x46464952;
+	private final static int RIFF_TYPE_ID = 0x45564157;
+
+	public final static int CANONICAL_HEADER_SIZE = 44;
+	// Large enough for the canonical 44 byte header plus the usual LIST/INFO chunks
+	private final static int HEADER_BUFFER_SIZE = 512;
+	// Chunk header (8 bytes) + PCM format fields (16 bytes)
+	private final static int MAX_CHUNK_HEADER_SIZE = 24;
+
+	private static final ThreadLocal<ByteBuffer> headerBuffer = new ThreadLocal<ByteBuffer>() {
+		@Override
+		protected ByteBuffer initialValue() {
+			return ByteBuffer.allocate(HEADER_BUFFER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		}
+	};
+
+	protected long sampleRate;
+	protected int validBits;
+	protected int numChannels;
+	protected long numFrames;
+	protected long dataOffset;
+
+	protected WavHeader() {
+	}
+
+	public WavHeader(long sampleRate, int validBits, int numChannels, long numFrames) {
+		this.sampleRate = sampleRate;
+		this.validBits = validBits;
+		this.numChannels = numChannels;
+		this.numFrames = numFrames;
+	}
+
+	public long getSampleRate() {
+		return sampleRate;
+	}
+
+	public int getValidBits() {
+		return validBits;
+	}
+
+	public int getNumChannels() {
+		return numChannels;
+	}
+
+	public long getNumFrames() {
+		return numFrames;
+	}
+
+	// File position of the first byte of the data chunk
+	public long getDataOffset() {
+		return dataOffset;
+	}
+
+	public double getLengthInSecs() {
+		return 1.0 * numFrames / sampleRate;
+	}
+
+	public int getBlockAlign() {
+		return (validBits + 7) / 8 * numChannels;
+	}
+
+	public long getDataChunkSize() {
+		return getBlockAlign() * numFrames;
+	}
+
+	// Same sample rate, sample size and number of channels, so that the data of
+	// one file can be copied as is into the other
+	public boolean hasSameFormat(WavHeader other) {
+		return sampleRate == other.sampleRate && validBits == other.validBits && numChannels == other.numChannels;
+	}
+
+	/**
+	 * The 44 byte RIFF header that {@link WavFile#newWavFile} writes for this
+	 * format and number of frames, ready to be written. If the data chunk size
+	 * is odd, the file must end with an extra (zero) byte for word alignment.
+	 */
+	public ByteBuffer createCanonicalHeader() {
+		int blockAlign = getBlockAlign();
+		long dataChunkSize = getDataChunkSize();
+		long mainChunkSize = 4 + 8 + 16 + 8 + dataChunkSize + dataChunkSize % 2;
+		ByteBuffer buffer = ByteBuffer.allocate(CANONICAL_HEADER_SIZE).order(ByteOrder.LITTLE_ENDIAN);
+		buffer.putInt(RIFF_CHUNK_ID);
+		buffer.putInt((int) mainChunkSize);
+		buffer.putInt(RIFF_TYPE_ID);
+		buffer.putInt(FMT_CHUNK_ID);
+		buffer.putInt(16);
+		buffer.putShort((short) 1); // Uncompressed
+		buffer.putShort((short) numChannels);
+		buffer.putInt((int) sampleRate);
+		buffer.putInt((int) (sampleRate * blockAlign)); // Average bytes per second
+		buffer.putShort((short) blockAlign);
+		buffer.putShort((short) validBits);
+		buffer.putInt(DATA_CHUNK_ID);
+		buffer.putInt((int) dataChunkSize);
+		buffer.flip();
+		return buffer;
+	}
+
+	public static WavHeader read(File file) throws IOException, WavFileException {
+		try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+			return read(channel);
+		}
+	}
+
+	public static WavHeader read(FileChannel channel) throws IOException, WavFileException {
+		ByteBuffer buffer = headerBuffer.get();
+		long fileLength = channel.size();
+		long windowStart = 0;
+		int windowLength = readAt(channel, buffer, 0);
+		if (windowLength < 12)
+			throw new WavFileException("Not enough wav file bytes for header");
+
+		long riffChunkID = getUnsignedInt(buffer, 0);
+		long chunkSize = getUnsignedInt(buffer, 4);
+		long riffTypeID = getUnsignedInt(buffer, 8);
+		if (riffChunkID != RIFF_CHUNK_ID)
+			throw new WavFileException("Invalid Wav Header data, incorrect riff chunk ID");
+		if (riffTypeID != RIFF_TYPE_ID)
+			throw new WavFileException("Invalid Wav Header data, incorrect riff type ID");
+		if (fileLength != chunkSize + 8) {
+			throw new WavFileException(
+					"Header chunk size (" + chunkSize + ") does not match file size (" + fileLength + ")");
+		}
+
+		WavHeader header = new WavHeader();
+		int blockAlign = 0;
+		boolean foundFormat = false;
+		long pos = 12;
+		while (true) {
+			// Fetch the next chunk header unless it is already in the buffer
+			if (pos < windowStart || (pos + MAX_CHUNK_HEADER_SIZE > windowStart + windowLength
+					&& windowStart + windowLength < fileLength)) {
+				windowStart = pos;
+				windowLength = readAt(channel, buffer, pos);
+			}
+			int p = (int) (pos - windowStart);
+			int available = windowLength - p;
+			if (available <= 0)
+				throw new WavFileException("Reached end of file without finding format chunk");
+			if (available < 8)
+				throw new WavFileException("Could not read chunk header");
+
+			long chunkID = getUnsignedInt(buffer, p);
+			chunkSize = getUnsignedInt(buffer, p + 4);
+			// Chunks are word aligned
+			long numChunkBytes = (chunkSize % 2 == 1) ? chunkSize + 1 : chunkSize;
+
+			if (chunkID == FMT_CHUNK_ID) {
+				if (available < MAX_CHUNK_HEADER_SIZE)
+					throw new WavFileException("Could not read format chunk");
+				foundFormat = true;
+				int compressionCode = buffer.getShort(p + 8) & 0xFFFF;
+				if (compressionCode != 1)
+					throw new WavFileException("Compression Code " + compressionCode + " not supported");
+				header.numChannels = buffer.getShort(p + 10) & 0xFFFF;
+				header.sampleRate = getUnsignedInt(buffer, p + 12);
+				blockAlign = buffer.getShort(p + 20) & 0xFFFF;
+				header.validBits = buffer.getShort(p + 22) & 0xFFFF;
+
+				if (header.numChannels == 0)
+					throw new WavFileException("Number of channels specified in header is equal to zero");
+				if (blockAlign == 0)
+					throw new WavFileException("Block Align specified in header is equal to zero");
+				if (header.validBits < 2)
+					throw new WavFileException("Valid Bits specified in header is less than 2");
+				if (header.validBits > 64)
+					throw new WavFileException(
+							"Valid Bits specified in header is greater than 64, this is greater than a long can hold");
+				int bytesPerSample = (header.validBits + 7) / 8;
+				if (bytesPerSample * header.numChannels != blockAlign)
+					throw new WavFileException(
+							"Block Align does not agree with bytes required for validBits and number of channels");
+				pos += 8 + Math.max(16, numChunkBytes);
+			} else if (chunkID == DATA_CHUNK_ID) {
+				if (foundFormat == false)
+					throw new WavFileException("Data chunk found before Format chunk");
+				if (chunkSize % blockAlign != 0)
+					throw new WavFileException("Data Chunk size is not multiple of Block Align");
+				header.numFrames = chunkSize / blockAlign;
+				header.dataOffset = pos + 8;
+				return header;
+			} else {
+				pos += 8 + numChunkBytes;
+			}
+		}
+	}
+
+	// Fills buffer with the bytes at the given file position (fewer at the end
+	// of the file) and returns how many were read
+	private static int readAt(FileChannel channel, ByteBuffer buffer, long position) throws IOException {
+		buffer.clear();
+		while (buffer.hasRemaining()) {
+			int n = channel.read(buffer, position + buffer.position());
+			if (n < 0) {
+				break;
+			}
+		}
+		return buffer.position();
+	}
+
+	private static long getUnsignedInt(ByteBuffer buffer, int pos) {
+		return buffer.getInt(pos) & 0xFFFFFFFFL;
+	}
+}
@@ -0,0 +1,175 @@
+package ai.bhashini.tts.utils;
+
+import jdk.incubator.vector.DoubleVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.LongVector;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorSpecies;
+
+/**
+ * SIMD versions of the {@link AudioKernels}, built on jdk.incubator.vector.
+ * Only compiled into the multi-release jar for JDK 17+; AudioKernels.get()
+ * falls back to the scalar versions whenever this class can't be loaded. The
+ * remainder of each array that doesn't fill a vector is handled by the scalar
+ * code.
+ */
+public class VectorAudioKernels extends AudioKernels {
+	private static final VectorSpecies<Long> LONGS = LongVector.SPECIES_PREFERRED;
+	private static final VectorSpecies<Double> DOUBLES = DoubleVector.SPECIES_PREFERRED;
+	// Same number of lanes as LONGS, for long -> float conversions; null if
+	// there is no vector shape of half the size
+	private static final VectorSpecies<Float> FLOATS = LONGS.vectorBitSize() >= 128
+			? FloatVector.SPECIES_PREFERRED.withShape(VectorShape.forBitSize(LONGS.vectorBitSize() / 2))
+			: null;
+	// 1.5 * 2^52: integers around it are exactly the doubles with a unit ulp
+	private static final double ROUNDING_BIAS = 0x1.8p52;
+	private static final long ROUNDING_BIAS_BITS = Double.doubleToRawLongBits(ROUNDING_BIAS);
+
+	/**
+	 * Returns whether the vector species are usable on this platform;
+	 * AudioKernels.get() uses the scalar kernels if not. JDK 17 doesn't compile
+	 * compares and blends of 2 doubles into vector instructions, which makes
+	 * quantize() many times slower than the scalar loop, so at least 4 lanes
+	 * are needed.
+	 */
+	public static boolean isSupported() {
+		return DOUBLES.length() >= 4 && LONGS.length() == DOUBLES.length() && FLOATS != null
+				&& FLOATS.length() == DOUBLES.length();
+	}
+
+	public VectorAudioKernels() {
+		if (!isSupported()) {
+			throw new IllegalStateException("No suitable vector shape");
+		}
+	}
+
+	@Override
+	public String getName() {
+		return "vector (" + LONGS.vectorBitSize() + " bits)";
+	}
+
+	@Override
+	public long absMax(long[] data, int from, int to) {
+		int i = from;
+		long max = 0;
+		int bound = from + LONGS.loopBound(to - from);
+		if (bound > from) {
+			LongVector maxVector = LongVector.zero(LONGS);
+			for (; i < bound; i += LONGS.length()) {
+				maxVector = maxVector.max(LongVector.fromArray(LONGS, data, i).abs());
+			}
+			max = maxVector.reduceLanes(VectorOperators.MAX);
+		}
+		return Math.max(max, super.absMax(data, i, to));
+	}
+
+	@Override
+	public void scale(long[] in, int inOffset, double[] out, int outOffset, int length, double divisor) {
+		int i = 0;
+		int bound = LONGS.loopBound(length);
+		for (; i < bound; i += LONGS.length()) {
+			DoubleVector v = (DoubleVector) LongVector.fromArray(LONGS, in, inOffset + i).convert(VectorOperators.L2D, 0);
+			v.div(divisor).intoArray(out, outOffset + i);
+		}
+		super.scale(in, inOffset + i, out, outOffset + i, length - i, divisor);
+	}
+
+	@Override
+	public void scale(long[] in, int inOffset, float[] out, int outOffset, int length, float divisor) {
+		int i = 0;
+		int bound = LONGS.loopBound(length);
+		for (; i < bound; i += LONGS.length()) {
+			FloatVector v = (FloatVector) LongVector.fromArray(LONGS, in, inOffset + i)
+					.convertShape(VectorOperators.L2F, FLOATS, 0);
+			v.div(divisor).intoArray(out, outOffset + i);
+		}
+		super.scale(in, inOffset + i, out, outOffset + i, length - i, divisor);
+	}
+
+	@Override
+	public void divide(double[] data, int offset, int length, double divisor) {
+		int i = 0;
+		int bound = DOUBLES.loopBound(length);
+		for (; i < bound; i += DOUBLES.length()) {
+			DoubleVector.fromArray(DOUBLES, data, offset + i).div(divisor).intoArray(data, offset + i);
+		}
+		super.divide(data, offset + i, length - i, divisor);
+	}
+
+	@Override
+	public double sumOfSquares(double[] data, int from, int to) {
+		int i = from;
+		double sum = 0.0;
+		int bound = from + DOUBLES.loopBound(to - from);
+		if (bound > from) {
+			DoubleVector sums = DoubleVector.zero(DOUBLES);
+			for (; i < bound; i += DOUBLES.length()) {
+				DoubleVector v = DoubleVector.fromArray(DOUBLES, data, i);
+				sums = sums.add(v.mul(v));
+			}
+			sum = sums.reduceLanes(VectorOperators.ADD);
+		}
+		return sum + super.sumOfSquares(data, i, to);
+	}
+
+	/**
+	 * Math.round(x) is floor(x + 1/2) computed exactly, i.e. floor(x) plus 1 if
+	 * the fraction x - floor(x) is at least 1/2. Values are first clamped to
+	 * [min - 1, max + 1], which doesn't change the clamped result, so x and all
+	 * the intermediate integers are well below 2^51: adding and subtracting
+	 * ROUNDING_BIAS rounds x to an integer exactly, and floor(x) is 1 less than
+	 * that if it rounded up. NaN gives 0 as in Math.round(). The double -> long
+	 * conversion isn't used as it isn't vectorized on every JDK.
+	 */
+	private static DoubleVector quantize(double[] in, int i, double scale, double lowerBound, double upperBound,
+			double min, double max) {
+		DoubleVector zero = DoubleVector.zero(DOUBLES);
+		DoubleVector one = DoubleVector.broadcast(DOUBLES, 1.0);
+		DoubleVector x = DoubleVector.fromArray(DOUBLES, in, i).mul(scale);
+		x = x.blend(zero, x.compare(VectorOperators.NE, x)).max(lowerBound).min(upperBound);
+		DoubleVector nearest = x.add(ROUNDING_BIAS).sub(ROUNDING_BIAS);
+		DoubleVector floor = nearest.sub(zero.blend(one, x.compare(VectorOperators.LT, nearest)));
+		DoubleVector rounded = floor.add(zero.blend(one, x.sub(floor).compare(VectorOperators.GE, 0.5)));
+		return rounded.max(min).min(max);
+	}
+
+	// The bits of (k + ROUNDING_BIAS) are ROUNDING_BIAS_BITS + k for any integer |k| < 2^51
+	private static LongVector toLongs(DoubleVector integers) {
+		return integers.add(ROUNDING_BIAS).reinterpretAsLongs().sub(ROUNDING_BIAS_BITS);
+	}
+
+	@Override
+	public long quantize(double[] in, int offset, int length, double scale, long min, long max, long[] out) {
+		int i = 0;
+		long absMax = 0;
+		int bound = DOUBLES.loopBound(length);
+		if (bound > 0) {
+			DoubleVector maxVector = DoubleVector.zero(DOUBLES);
+			for (; i < bound; i += DOUBLES.length()) {
+				DoubleVector samples = quantize(in, offset + i, scale, min - 1.0, max + 1.0, min, max);
+				toLongs(samples).intoArray(out, offset + i);
+				maxVector = maxVector.max(samples.abs());
+			}
+			absMax = (long) maxVector.reduceLanes(VectorOperators.MAX);
+		}
+		return Math.max(absMax, super.quantize(in, offset + i, length - i, scale, min, max, out));
+	}
+
+	@Override
+	public long quantize(double[] in, int offset, int length, double scale, long min, long max, double[] out) {
+		int i = 0;
+		long absMax = 0;
+		int bound = DOUBLES.loopBound(length);
+		if (bound > 0) {
+			DoubleVector maxVector = DoubleVector.zero(DOUBLES);
+			for (; i < bound; i += DOUBLES.length()) {
+				DoubleVector samples = quantize(in, offset + i, scale, min - 1.0, max + 1.0, min, max);
+				samples.intoArray(out, offset + i);
+				maxVector = maxVector.max(samples.abs());
+			}
+			absMax = (long) maxVector.reduceLanes(VectorOperators.MAX);
+		}
+		return Math.max(absMax, super.quantize(in, offset + i, length - i, scale, min, max, out));
+	}
+}
@@ -0,0 +1,161 @@
+package ai.bhashini.tts.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.junit.Test;
+
+/**
+ * Checks that MultiPatternReplacer replaces the longest match at every
+ * position, gives ties to the pattern that comes first in the list (i.e. in
+ * the properties file) and treats regex and plain string patterns alike, both
+ * on hand-picked cases and against a pattern-by-pattern reference on random
+ * texts.
+ */
+public class MultiPatternReplacerTest {
+	static final int NUM_RANDOM_TEXTS = 20000;
+	static final int MAX_RANDOM_LENGTH = 20;
+	static final long SEED = 42;
+
+	// Patterns compiled the way AbbreviationExpansion compiles them
+	static MultiPatternReplacer createReplacer(String... patternsAndReplacements) {
+		List<Pattern> patterns = new ArrayList<>();
+		List<String> replacements = new ArrayList<>();
+		for (int i = 0; i < patternsAndReplacements.length; i += 2) {
+			patterns.add(Pattern.compile(patternsAndReplacements[i], Pattern.UNICODE_CHARACTER_CLASS));
+			replacements.add(patternsAndReplacements[i + 1]);
+		}
+		return new MultiPatternReplacer(patterns, replacements);
+	}
+
+	// Tries every pattern at every position, keeping the first of the longest matches
+	static String replaceOneByOne(List<Pattern> patterns, List<String> replacements, String text) {
+		List<Matcher> matchers = new ArrayList<>();
+		for (Pattern pattern : patterns) {
+			matchers.add(pattern.matcher(text).useTransparentBounds(true).useAnchoringBounds(false));
+		}
+		StringBuilder sb = new StringBuilder();
+		int i = 0;
+		while (i < text.length()) {
+			int bestLength = 0;
+			int bestRule = -1;
+			for (int r = 0; r < matchers.size(); r++) {
+				Matcher matcher = matchers.get(r);
+				matcher.region(i, text.length());
+				if (matcher.lookingAt() && matcher.end() - i > bestLength) {
+					bestLength = matcher.end() - i;
+					bestRule = r;
+				}
+			}
+			if (bestLength == 0) {
+				sb.append(text.charAt(i++));
+				continue;
+			}
+			Matcher best = matchers.get(bestRule);
+			best.region(i, text.length());
+			best.lookingAt();
+			StringBuffer replaced = new StringBuffer();
+			best.appendReplacement(replaced, replacements.get(bestRule));
+			// appendReplacement() also copies the text before the match
+			sb.append(replaced, i, replaced.length());
+			i += bestLength;
+		}
+		return sb.toString();
+	}
+
+	@Test
+	public void testOverlappingKeys() {
+		MultiPatternReplacer replacer = createReplacer("ab", "<ab>", "abc", "<abc>", "bcd", "<bcd>", "c", "<c>");
+		// The longest match at the leftmost position wins, whatever the order of the keys
+		assertEquals("<abc>d", replacer.replaceAll("abcd"));
+		assertEquals("<ab>x<bcd>", replacer.replaceAll("abxbcd"));
+		// Replaced text is not matched again, and scanning continues after the match
+		assertEquals("<abc><c>", replacer.replaceAll("abcc"));
+		// A shorter key inside a longer one is only used where the longer one doesn't match
+		assertEquals("<ab>x<c>", replacer.replaceAll("abxc"));
+	}
+
+	@Test
+	public void testTiesInFileOrder() {
+		// Two regex keys of the same length: the first one in the list wins
+		MultiPatternReplacer replacer = createReplacer("a\\w", "first", "\\wb", "second");
+		assertEquals("first", replacer.replaceAll("ab"));
+		replacer = createReplacer("\\wb", "second", "a\\w", "first");
+		assertEquals("second", replacer.replaceAll("ab"));
+
+		// A literal key and a regex key of the same length: again the first one wins
+		replacer = createReplacer("ab", "literal", "a.", "regex");
+		assertEquals("literal", replacer.replaceAll("ab"));
+		replacer = createReplacer("a.", "regex", "ab", "literal");
+		assertEquals("regex", replacer.replaceAll("ab"));
+
+		// The same string given twice, once quoted: the first one wins
+		replacer = createReplacer("ab", "plain", Pattern.quote("ab"), "quoted");
+		assertEquals("plain", replacer.replaceAll("ab"));
+		replacer = createReplacer(Pattern.quote("ab"), "quoted", "ab", "plain");
+		assertEquals("quoted", replacer.replaceAll("ab"));
+	}
+
+	@Test
+	public void testRegexAndLiteralKeys() {
+		MultiPatternReplacer replacer = createReplacer("Dr.", "Doctor", "\\bSt\\.", "Saint", "(\\d+)km", "$1 kilometres",
+				"km", "kilometre", "ಡಾ.", "ಡಾಕ್ಟರ್");
+		// "Dr." contains a metacharacter, so the dot matches any character
+		assertEquals("Doctor Rao", replacer.replaceAll("Dr. Rao"));
+		assertEquals("Doctor Rao", replacer.replaceAll("Dr- Rao"));
+		// The regex match is longer than the literal one inside it
+		assertEquals("5 kilometres, kilometre", replacer.replaceAll("5km, km"));
+		// \b sees the text before the position where the pattern is tried
+		assertEquals("Saint Mary, ESt.", replacer.replaceAll("St. Mary, ESt."));
+		// \b and \w treat Kannada letters as word characters
+		assertEquals("ಡಾಕ್ಟರ್ ರಾವ್", replacer.replaceAll("ಡಾ. ರಾವ್"));
+	}
+
+	@Test
+	public void testReplacementSyntax() {
+		MultiPatternReplacer replacer = createReplacer("(a)(b)?c", "[$2$1]", "x", "\\$1", "y", "$0$0");
+		assertEquals("[ba][a]", replacer.replaceAll("abcac"));
+		assertEquals("$1", replacer.replaceAll("x"));
+		assertEquals("yy", replacer.replaceAll("y"));
+	}
+
+	@Test
+	public void testNothingMatches() {
+		String text = "no match here";
+		assertSame(text, createReplacer("xyz", "", "\\d+", "").replaceAll(text));
+		assertSame(text, createReplacer().replaceAll(text));
+	}
+
+	@Test
+	public void testRandomTexts() {
+		String[] patternsAndReplacements = { "ab", "1", "abc", "2", "b", "3", "bca", "4", "a.c", "5", "(c)\\1", "6",
+				"\\bca", "7", "[bc]a", "8", "cab", "9", "a", "0", "(b+)c", "<$1>", "aa", "A" };
+		MultiPatternReplacer replacer = createReplacer(patternsAndReplacements);
+		List<Pattern> patterns = new ArrayList<>();
+		List<String> replacements = new ArrayList<>();
+		for (int i = 0; i < patternsAndReplacements.length; i += 2) {
+			patterns.add(Pattern.compile(patternsAndReplacements[i], Pattern.UNICODE_CHARACTER_CLASS));
+			replacements.add(patternsAndReplacements[i + 1]);
+		}
+		char[] alphabet = { 'a', 'b', 'c', ' ' };
+		Random random = new Random(SEED);
+		StringBuilder sb = new StringBuilder();
+		for (int n = 0; n < NUM_RANDOM_TEXTS; n++) {
+			sb.setLength(0);
+			int length = 1 + random.nextInt(MAX_RANDOM_LENGTH);
+			for (int i = 0; i < length; i++) {
+				sb.append(alphabet[random.nextInt(alphabet.length)]);
+			}
+			String text = sb.toString();
+			assertEquals(text + " " + Arrays.toString(patternsAndReplacements),
+					replaceOneByOne(patterns, replacements, text), replacer.replaceAll(text));
+		}
+	}
+}
@@ -0,0 +1,214 @@
+package ai.bhashini.tts.utils;
+
+import static org.junit.Assert.assertArrayEquals;
+import static org.junit.Assert.assertEquals;
+
+import java.util.ArrayList;
+import java.util.Random;
+
+import org.junit.Test;
+
+/**
+ * Checks that the running-sum OverlappingWindow.computeMeanSquares() and
+ * getTrimPoints() give the same trim points as the original per-window
+ * computation, on synthetic recordings of speech between silences: low noise,
+ * digital silence, no silence at all, very short files and long files. The
+ * per-window computeMeanSquare(), which sums with AudioKernels.get() (the
+ * vector kernels when the tests run on JDK 17+), is checked the same way.
+ */
+public class OverlappingWindowTest {
+	static final int SAMPLING_RATE = 22050;
+	static final int WINDOW_LENGTH = TrimAndNormalizeAudio.WINDOW_LENGTH;
+	static final int HOP_LENGTH = TrimAndNormalizeAudio.HOP_LENGTH;
+	static final int CUTOFF_DB = TrimAndNormalizeAudio.CUTOFF_DB;
+	static final long SEED = 42;
+
+	// The trim points of trimSilences() as it was before computeMeanSquares():
+	// every window's samples are squared with Math.pow() and summed separately
+	static int[] getTrimPointsPerWindow(double[] wavData, int windowLength, int hopLength, double cutoffDB) {
+		ArrayList<OverlappingWindow> overlappingWindows = OverlappingWindow.getOverlappingWindows(wavData,
+				windowLength, hopLength);
+		double maxP = 0.0;
+		double[] powerDB = new double[overlappingWindows.size()];
+		for (int i = 0; i < powerDB.length; i++) {
+			OverlappingWindow win = overlappingWindows.get(i);
+			double sum = 0.0;
+			for (int j = win.winBegin; j < win.winEnd; j++) {
+				if (j >= 0 && j < wavData.length) {
+					sum += Math.pow(wavData[j], 2);
+				}
+			}
+			double p = sum / windowLength;
+			if (p > maxP) {
+				maxP = p;
+			}
+			powerDB[i] = OverlappingWindow.convertPowerToDB(p);
+		}
+		double refDB = OverlappingWindow.convertPowerToDB(maxP);
+		int trimBegin = 0;
+		for (int i = 0; i < powerDB.length; i++) {
+			if (powerDB[i] - refDB > cutoffDB) {
+				trimBegin = Math.max(0, overlappingWindows.get(i).frameBegin);
+				break;
+			}
+		}
+		int trimEnd = wavData.length;
+		for (int i = powerDB.length - 1; i > 0; i--) {
+			if (powerDB[i] - refDB > cutoffDB) {
+				trimEnd = Math.min(wavData.length, overlappingWindows.get(i).frameEnd);
+				break;
+			}
+		}
+		return new int[] { trimBegin, trimEnd };
+	}
+
+	// Syllable-like bursts of harmonics with a random envelope, for the given duration
+	static void addSpeech(double[] data, int begin, int end, double amplitude, Random random) {
+		double f0 = 100 + random.nextDouble() * 150;
+		int i = begin;
+		while (i < end) {
+			int syllableLength = Math.min(end - i, SAMPLING_RATE / 10 + random.nextInt(SAMPLING_RATE / 5));
+			double syllableAmplitude = amplitude * (0.2 + 0.8 * random.nextDouble());
+			for (int j = 0; j < syllableLength; j++) {
+				double envelope = Math.sin(Math.PI * j / syllableLength);
+				double t = (double) (i + j) / SAMPLING_RATE;
+				double sample = 0;
+				for (int h = 1; h <= 5; h++) {
+					sample += Math.sin(2 * Math.PI * h * f0 * t) / h;
+				}
+				data[i + j] += syllableAmplitude * envelope * sample / 2.3;
+			}
+			i += syllableLength;
+			// Short pauses between words
+			if (random.nextInt(4) == 0) {
+				i += SAMPLING_RATE / 20;
+			}
+		}
+	}
+
+	static void addNoise(double[] data, int begin, int end, double amplitude, Random random) {
+		for (int i = begin; i < end; i++) {
+			data[i] += amplitude * random.nextGaussian();
+		}
+	}
+
+	// Silence (noise of the given amplitude, 0 for digital silence), speech and silence again
+	static double[] getRecording(double leadingSeconds, double speechSeconds, double trailingSeconds,
+			double noiseAmplitude, Random random) {
+		int speechBegin = (int) (leadingSeconds * SAMPLING_RATE);
+		int speechEnd = speechBegin + (int) (speechSeconds * SAMPLING_RATE);
+		double[] data = new double[speechEnd + (int) (trailingSeconds * SAMPLING_RATE)];
+		addSpeech(data, speechBegin, speechEnd, 0.8, random);
+		if (noiseAmplitude > 0) {
+			addNoise(data, 0, data.length, noiseAmplitude, random);
+		}
+		return data;
+	}
+
+	// As the audio read from a WAV file: integer samples, to be divided by scale
+	static double[] quantize(double[] data, double scale) {
+		double[] quantized = new double[data.length];
+		for (int i = 0; i < data.length; i++) {
+			quantized[i] = Math.max(-scale, Math.min(scale - 1, Math.round(data[i] * scale)));
+		}
+		return quantized;
+	}
+
+	static void check(String name, double[] data) {
+		int[] expected = getTrimPointsPerWindow(data, WINDOW_LENGTH, HOP_LENGTH, CUTOFF_DB);
+		double[] meanSquares = OverlappingWindow.computeMeanSquares(data, WINDOW_LENGTH, HOP_LENGTH);
+		assertEquals(name, OverlappingWindow.getOverlappingWindows(data, WINDOW_LENGTH, HOP_LENGTH).size(),
+				meanSquares.length);
+		assertArrayEquals(name, expected,
+				OverlappingWindow.getTrimPoints(meanSquares, data.length, HOP_LENGTH, CUTOFF_DB));
+
+		// Per-window mean squares with the current kernels
+		ArrayList<OverlappingWindow> windows = OverlappingWindow.getOverlappingWindows(data, WINDOW_LENGTH,
+				HOP_LENGTH);
+		double[] windowMeanSquares = new double[windows.size()];
+		for (int i = 0; i < windowMeanSquares.length; i++) {
+			windowMeanSquares[i] = windows.get(i).computeMeanSquare();
+		}
+		assertArrayEquals(name + " (" + AudioKernels.get().getName() + " kernels)", expected,
+				OverlappingWindow.getTrimPoints(windowMeanSquares, data.length, HOP_LENGTH, CUTOFF_DB));
+
+		// The trimmed audio itself, with silence padding
+		int silencePadding = TrimAndNormalizeAudio.SILENCE_PADDING;
+		int silenceLength = silencePadding * HOP_LENGTH;
+		double[] trimmed = OverlappingWindow.trimSilences(data, WINDOW_LENGTH, HOP_LENGTH, CUTOFF_DB,
+				silencePadding);
+		assertEquals(name, expected[1] - expected[0] + 2 * silenceLength, trimmed.length);
+		for (int i = expected[0]; i < expected[1]; i++) {
+			assertEquals(name, data[i], trimmed[silenceLength + i - expected[0]], 0.0);
+		}
+
+		// Integer samples scaled on the fly, as TrimAndNormalizeAudio does, against scaling them beforehand
+		double scale = 32768;
+		double[] quantized = quantize(data, scale);
+		double[] scaled = new double[data.length];
+		for (int i = 0; i < data.length; i++) {
+			scaled[i] = quantized[i] / scale;
+		}
+		double[] padded = new double[data.length + 1000];
+		System.arraycopy(quantized, 0, padded, 0, data.length);
+		assertArrayEquals(name + " (scaled)", getTrimPointsPerWindow(scaled, WINDOW_LENGTH, HOP_LENGTH, CUTOFF_DB),
+				OverlappingWindow.getTrimPoints(
+						OverlappingWindow.computeMeanSquares(padded, data.length, scale, WINDOW_LENGTH, HOP_LENGTH),
+						data.length, HOP_LENGTH, CUTOFF_DB));
+	}
+
+	@Test
+	public void testNoisySilences() {
+		Random random = new Random(SEED);
+		for (int n = 0; n < 20; n++) {
+			double noise = Math.pow(10, -1 - 3 * random.nextDouble());
+			check("noise " + noise, getRecording(random.nextDouble(), 1 + 4 * random.nextDouble(),
+					random.nextDouble(), noise, random));
+		}
+	}
+
+	@Test
+	public void testDigitalSilences() {
+		Random random = new Random(SEED);
+		for (int n = 0; n < 20; n++) {
+			check("digital silence " + n, getRecording(random.nextDouble(), 1 + 4 * random.nextDouble(),
+					random.nextDouble(), 0, random));
+		}
+		check("all zeros", new double[SAMPLING_RATE]);
+		// Speech only in one window
+		double[] data = new double[SAMPLING_RATE];
+		data[SAMPLING_RATE / 2] = 0.5;
+		check("single sample", data);
+	}
+
+	@Test
+	public void testNoSilences() {
+		Random random = new Random(SEED);
+		check("speech only", getRecording(0, 3, 0, 0.001, random));
+		check("noise only", getRecording(0, 0, 2, 0.01, random));
+	}
+
+	@Test
+	public void testShortFiles() {
+		Random random = new Random(SEED);
+		for (int length : new int[] { 1, 2, HOP_LENGTH / 2, HOP_LENGTH - 1, HOP_LENGTH, HOP_LENGTH + 1,
+				WINDOW_LENGTH - 1, WINDOW_LENGTH, WINDOW_LENGTH + 1, 3 * WINDOW_LENGTH + 17 }) {
+			double[] data = new double[length];
+			addNoise(data, 0, length, 0.01, random);
+			addNoise(data, length / 3, 2 * length / 3, 0.5, random);
+			check("length " + length, data);
+		}
+	}
+
+	@Test
+	public void testLongFiles() {
+		Random random = new Random(SEED);
+		// Loud speech for minutes makes the running sums large before the quiet end
+		check("10 minutes, noise", getRecording(2, 600, 3, 0.003, random));
+		check("10 minutes, digital silence", getRecording(2, 600, 3, 0, random));
+		double[] data = getRecording(1, 300, 1, 0, random);
+		// A full-scale click in the middle sets the reference level
+		data[data.length / 2] = 1.0;
+		check("5 minutes, click", data);
+	}
+}
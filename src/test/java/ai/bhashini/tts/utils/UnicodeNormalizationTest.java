@@ -0,0 +1,181 @@
+package ai.bhashini.tts.utils;
+
+import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertFalse;
+
+import java.util.LinkedHashSet;
+import java.util.Random;
+import java.util.Set;
+
+import org.junit.Test;
+
+import ai.bhashini.tts.utils.UnicodeOffsets.UnicodeNormalization;
+
+/**
+ * Checks that the single-scan UnicodeNormalization.mergeVowelSigns() gives the
+ * same result as applying the script's merge methods one after the other, on
+ * all the short strings and many random longer ones made of the characters
+ * that take part in the script's merges.
+ */
+public class UnicodeNormalizationTest {
+	static final int MAX_EXHAUSTIVE_LENGTH = 4;
+	static final int NUM_RANDOM_STRINGS = 100000;
+	static final int MAX_RANDOM_LENGTH = 12;
+	static final long SEED = 42;
+
+	// The merge methods in the order in which mergeVowelSigns() used to call them
+	static String mergeSequentially(UnicodeNormalization normalization, Script script, String text) {
+		switch (script) {
+		case Devanagari:
+			text = normalization.mergeDevanagariVowelSigns(text);
+			text = normalization.mergeNuktas(text);
+			return normalization.mergePrishthamatra(text);
+		case Bengali:
+			return normalization.mergeBengaliVowelSigns(text);
+		case Tamil:
+			return normalization.mergeTamilVowelSigns(text);
+		case Telugu:
+			return normalization.mergeTeluguVowelSigns(text);
+		case Kannada:
+			return normalization.mergeKannadaVowelSigns(text);
+		case Malayalam:
+			return normalization.mergeMalayalamVowelSigns(text);
+		default:
+			return text;
+		}
+	}
+
+	// The characters of the script's block that a merge changes or produces, plus
+	// a consonant (for the two-part vowels, which are written around one) and a
+	// character of another script. They are found by merging every character,
+	// every pair of characters and every pair around the consonant, and keeping
+	// those whose result is not that of merging their parts separately.
+	static char[] getAlphabet(UnicodeNormalization normalization, Script script) {
+		Set<Character> alphabet = new LinkedHashSet<>();
+		String consonant = String.valueOf((char) (script.unicodeBlockStart + UnicodeOffsets.LETTER_K.offset));
+		for (int first = script.unicodeBlockStart; first <= script.unicodeBlockEnd; first++) {
+			String x = String.valueOf((char) first);
+			String mergedX = mergeSequentially(normalization, script, x);
+			addIfMerged(alphabet, normalization, script, x, x);
+			for (int second = script.unicodeBlockStart; second <= script.unicodeBlockEnd; second++) {
+				String y = String.valueOf((char) second);
+				String mergedY = mergeSequentially(normalization, script, y);
+				addIfMerged(alphabet, normalization, script, x + y, mergedX + mergedY);
+				addIfMerged(alphabet, normalization, script, x + consonant + y,
+						mergeSequentially(normalization, script, x + consonant) + mergedY,
+						mergedX + mergeSequentially(normalization, script, consonant + y));
+			}
+		}
+		alphabet.add(consonant.charAt(0));
+		alphabet.add(' ');
+		char[] chars = new char[alphabet.size()];
+		int i = 0;
+		for (char c : alphabet) {
+			chars[i++] = c;
+		}
+		return chars;
+	}
+
+	// Adds the characters of text and of its merged form if that is none of the given results
+	static void addIfMerged(Set<Character> alphabet, UnicodeNormalization normalization, Script script,
+			String text, String... separatelyMerged) {
+		String merged = mergeSequentially(normalization, script, text);
+		for (String result : separatelyMerged) {
+			if (merged.equals(result)) {
+				return;
+			}
+		}
+		addAll(alphabet, text);
+		addAll(alphabet, merged);
+	}
+
+	static void addAll(Set<Character> set, String text) {
+		for (int i = 0; i < text.length(); i++) {
+			set.add(text.charAt(i));
+		}
+	}
+
+	// Checks text and every string that can be made by appending up to maxLength - length characters
+	static void checkAllStrings(UnicodeNormalization normalization, Script script, char[] alphabet,
+			StringBuilder text, int maxLength) {
+		check(normalization, script, text.toString());
+		if (text.length() == maxLength) {
+			return;
+		}
+		for (char c : alphabet) {
+			text.append(c);
+			checkAllStrings(normalization, script, alphabet, text, maxLength);
+			text.setLength(text.length() - 1);
+		}
+	}
+
+	static void check(UnicodeNormalization normalization, Script script, String text) {
+		assertEquals(script + ": " + toHex(text), mergeSequentially(normalization, script, text),
+				normalization.mergeVowelSigns(text));
+	}
+
+	static void checkScript(Script script) {
+		UnicodeNormalization normalization = UnicodeNormalization.getInstance(script);
+		char[] alphabet = getAlphabet(normalization, script);
+		// Only the consonant and the space would mean that no merge was found
+		assertFalse(script + " has no merges", alphabet.length <= 2);
+
+		checkAllStrings(normalization, script, alphabet, new StringBuilder(), MAX_EXHAUSTIVE_LENGTH);
+		Random random = new Random(SEED);
+		StringBuilder sb = new StringBuilder();
+		for (int n = 0; n < NUM_RANDOM_STRINGS; n++) {
+			sb.setLength(0);
+			int length = MAX_EXHAUSTIVE_LENGTH + 1 + random.nextInt(MAX_RANDOM_LENGTH - MAX_EXHAUSTIVE_LENGTH);
+			for (int i = 0; i < length; i++) {
+				sb.append(alphabet[random.nextInt(alphabet.length)]);
+			}
+			check(normalization, script, sb.toString());
+		}
+	}
+
+	static String toHex(String text) {
+		StringBuilder sb = new StringBuilder();
+		for (int i = 0; i < text.length(); i++) {
+			sb.append(String.format("%04X ", (int) text.charAt(i)));
+		}
+		return sb.toString().trim();
+	}
+
+	@Test
+	public void testDevanagari() {
+		checkScript(Script.Devanagari);
+	}
+
+	@Test
+	public void testBengali() {
+		checkScript(Script.Bengali);
+	}
+
+	@Test
+	public void testTamil() {
+		checkScript(Script.Tamil);
+	}
+
+	@Test
+	public void testTelugu() {
+		checkScript(Script.Telugu);
+	}
+
+	@Test
+	public void testKannada() {
+		checkScript(Script.Kannada);
+	}
+
+	@Test
+	public void testMalayalam() {
+		checkScript(Script.Malayalam);
+	}
+
+	@Test
+	public void testScriptsWithoutMerges() {
+		String text = "ਕਾ કા କା abc";
+		for (Script script : new Script[] { Script.Gurmukhi, Script.Gujarati, Script.Odia }) {
+			assertEquals(text, UnicodeNormalization.getInstance(script).mergeVowelSigns(text));
+		}
+	}
+}